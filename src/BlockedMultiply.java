@@ -0,0 +1,316 @@
+/**
+ * Cache-blocked, register-tiled classical matrix multiply.
+ * <p>
+ * The loop nest follows the usual GEMM layering: B is cut into KC x NC panels that are packed into a contiguous
+ * buffer sized for the L2/L3 cache, A into MC x KC blocks packed for L1/L2, and a 4 x 4 micro-kernel keeps
+ * sixteen accumulators in registers while streaming through both packed buffers. Packing buffers are per thread and
+ * reused, so a multiply allocates nothing; callers on short-lived threads pass {@link Packing} buffers of their own
+ * instead. Operands may be {@link LinearCombination}s: their terms are summed into the
+ * packed buffers, so the sums never exist as matrices.
+ */
+public class BlockedMultiply {
+
+    // micro-tile held in registers
+    static final int MR = 4;
+    static final int NR = 4;
+
+    // rows of A packed per block (L2), depth of a panel (L1 sliver of B), columns of B packed per panel (L3)
+    static final int MC = 128;
+    static final int KC = 256;
+    static final int NC = 1024;
+
+    // below this many multiply-adds packing costs more than it saves
+    static final long SMALL_PRODUCT = 32L * 32 * 32;
+
+    /**
+     * The buffers a multiply packs A and B into, and the vector kernel's edge tile. Every thread that multiplies keeps
+     * a set of its own, created on its first packed multiply; a caller on virtual threads, which would create and drop
+     * a set per thread, lends a set it reuses instead, one per thread that may multiply at once.
+     */
+    static final class Packing {
+        final int[] a = new int[MC * KC];
+        final int[] b = new int[KC * NC];
+        private int[] edge = new int[0];
+
+        // The edge tile of the vector kernel, at least length elements
+        int[] edge(int length) {
+            if (edge.length < length) {
+                edge = new int[length];
+            }
+            return edge;
+        }
+    }
+
+    private static final ThreadLocal<Packing> packing = ThreadLocal.withInitial(Packing::new);
+
+    // C = A * B, C must not alias A or B
+    public static void multiply(Matrix A, Matrix B, Matrix C) {
+        multiply(A, B, C, null);
+    }
+
+    // C = A * B packed into the given buffers, or the thread's own if null
+    static void multiply(Matrix A, Matrix B, Matrix C, Packing buffers) {
+        C.fill(0);
+        multiplyAdd(A, B, C, buffers);
+    }
+
+    // C += A * B, C must not alias A or B
+    public static void multiplyAdd(Matrix A, Matrix B, Matrix C) {
+        multiplyAdd(A, B, C, null);
+    }
+
+    // C += A * B packed into the given buffers, or the thread's own if null
+    static void multiplyAdd(Matrix A, Matrix B, Matrix C, Packing buffers) {
+        multiplyAdd(LinearCombination.of(A), LinearCombination.of(B), C, buffers);
+    }
+
+    // C = A * B for lazy operands, C must not alias a term of A or B
+    public static void multiply(LinearCombination A, LinearCombination B, Matrix C) {
+        multiply(A, B, C, null);
+    }
+
+    // C = A * B for lazy operands packed into the given buffers, or the thread's own if null
+    static void multiply(LinearCombination A, LinearCombination B, Matrix C, Packing buffers) {
+        C.fill(0);
+        multiplyAdd(A, B, C, buffers);
+    }
+
+    // C += A * B with the operand sums formed while packing, C must not alias a term of A or B
+    public static void multiplyAdd(LinearCombination A, LinearCombination B, Matrix C) {
+        multiplyAdd(A, B, C, null);
+    }
+
+    // C += A * B packed into the given buffers, or the thread's own if null; the small cases pack nothing
+    static void multiplyAdd(LinearCombination A, LinearCombination B, Matrix C, Packing buffers) {
+        int m = A.rows(), k = A.cols(), n = B.cols();
+        if (m == 0 || n == 0 || k == 0) return;
+
+        // peeled rows and columns are too thin to fill a micro-tile
+        if ((long) m * n * k <= SMALL_PRODUCT || m < MR || n < NR) {
+            if (A.plain() && B.plain()) {
+                multiplyAddSmall(A.term(0), B.term(0), C);
+            } else {
+                multiplyAddSmall(A, B, C);
+            }
+            return;
+        }
+
+        if (buffers == null) {
+            buffers = packing.get();
+        }
+
+        if (MatrixOperations.VECTORIZED) {
+            VectorOperations.multiplyAdd(A, B, C, buffers);
+            return;
+        }
+
+        int[] Ap = buffers.a;
+        int[] Bp = buffers.b;
+
+        for (int jc = 0; jc < n; jc += NC) {
+            int nc = Math.min(NC, n - jc);
+            for (int pc = 0; pc < k; pc += KC) {
+                int kc = Math.min(KC, k - pc);
+                packB(B, pc, jc, kc, nc, NR, Bp);
+                for (int ic = 0; ic < m; ic += MC) {
+                    int mc = Math.min(MC, m - ic);
+                    packA(A, ic, pc, mc, kc, Ap);
+                    macroKernel(Ap, Bp, C, ic, jc, mc, nc, kc);
+                }
+            }
+        }
+    }
+
+    // i-k-j loop for blocks too small to amortize packing
+    private static void multiplyAddSmall(Matrix A, Matrix B, Matrix C) {
+        int[] a = A.data, b = B.data, c = C.data;
+        int k = A.cols, n = B.cols;
+
+        for (int i = 0; i < A.rows; i++) {
+            int iA = A.offset + i * A.stride;
+            int iC = C.offset + i * C.stride;
+            for (int p = 0; p < k; p++) {
+                int aip = a[iA + p];
+                int iB = B.offset + p * B.stride;
+                for (int j = 0; j < n; j++) {
+                    c[iC + j] += aip * b[iB + j];
+                }
+            }
+        }
+    }
+
+    // i-k-j loop over lazy operands: every a(i, p) is summed once and every B term streamed with its sign
+    private static void multiplyAddSmall(LinearCombination A, LinearCombination B, Matrix C) {
+        int[] c = C.data;
+        int k = A.cols(), n = B.cols();
+
+        for (int i = 0; i < A.rows(); i++) {
+            int iC = C.offset + i * C.stride;
+            for (int p = 0; p < k; p++) {
+                int aip = 0;
+                for (int t = 0; t < A.size(); t++) {
+                    Matrix T = A.term(t);
+                    int value = T.data[T.offset + i * T.stride + p];
+                    aip += A.negated(t) ? -value : value;
+                }
+                for (int t = 0; t < B.size(); t++) {
+                    Matrix T = B.term(t);
+                    int[] b = T.data;
+                    int iB = T.offset + p * T.stride;
+                    int scaled = B.negated(t) ? -aip : aip;
+                    for (int j = 0; j < n; j++) {
+                        c[iC + j] += scaled * b[iB + j];
+                    }
+                }
+            }
+        }
+    }
+
+    // Packs the sum of A's terms: the first term is packed as usual and the others are added into the slivers
+    static void packA(LinearCombination A, int ic, int pc, int mc, int kc, int[] Ap) {
+        packA(A.term(0), ic, pc, mc, kc, Ap);
+
+        for (int t = 1; t < A.size(); t++) {
+            Matrix T = A.term(t);
+            int[] a = T.data;
+            int sign = A.negated(t) ? -1 : 1;
+            int idx = 0;
+
+            for (int ir = 0; ir < mc; ir += MR) {
+                int rows = Math.min(MR, mc - ir);
+                int base = T.offset + (ic + ir) * T.stride + pc;
+                for (int p = 0; p < kc; p++) {
+                    for (int r = 0; r < rows; r++) {
+                        Ap[idx + r] += sign * a[base + r * T.stride + p];
+                    }
+                    idx += MR;
+                }
+            }
+        }
+    }
+
+    // Packs the sum of B's terms in nr-column slivers, as packA does for A
+    static void packB(LinearCombination B, int pc, int jc, int kc, int nc, int nr, int[] Bp) {
+        packB(B.term(0), pc, jc, kc, nc, nr, Bp);
+
+        for (int t = 1; t < B.size(); t++) {
+            Matrix T = B.term(t);
+            int[] b = T.data;
+            int sign = B.negated(t) ? -1 : 1;
+            int idx = 0;
+
+            for (int jr = 0; jr < nc; jr += nr) {
+                int cols = Math.min(nr, nc - jr);
+                int base = T.offset + pc * T.stride + jc + jr;
+                for (int p = 0; p < kc; p++) {
+                    int row = base + p * T.stride;
+                    for (int c = 0; c < cols; c++) {
+                        Bp[idx + c] += sign * b[row + c];
+                    }
+                    idx += nr;
+                }
+            }
+        }
+    }
+
+    // Packs A[ic:ic+mc, pc:pc+kc] into MR-row slivers, each stored column by column and zero padded to MR rows
+    static void packA(Matrix A, int ic, int pc, int mc, int kc, int[] Ap) {
+        int[] a = A.data;
+        int idx = 0;
+
+        for (int ir = 0; ir < mc; ir += MR) {
+            int rows = Math.min(MR, mc - ir);
+            int base = A.offset + (ic + ir) * A.stride + pc;
+            for (int p = 0; p < kc; p++) {
+                int r = 0;
+                for (; r < rows; r++) {
+                    Ap[idx++] = a[base + r * A.stride + p];
+                }
+                for (; r < MR; r++) {
+                    Ap[idx++] = 0;
+                }
+            }
+        }
+    }
+
+    // Packs B[pc:pc+kc, jc:jc+nc] into nr-column slivers, each stored row by row and zero padded to nr columns
+    static void packB(Matrix B, int pc, int jc, int kc, int nc, int nr, int[] Bp) {
+        int[] b = B.data;
+        int idx = 0;
+
+        for (int jr = 0; jr < nc; jr += nr) {
+            int cols = Math.min(nr, nc - jr);
+            int base = B.offset + pc * B.stride + jc + jr;
+            for (int p = 0; p < kc; p++) {
+                int row = base + p * B.stride;
+                int c = 0;
+                for (; c < cols; c++) {
+                    Bp[idx++] = b[row + c];
+                }
+                for (; c < nr; c++) {
+                    Bp[idx++] = 0;
+                }
+            }
+        }
+    }
+
+    private static void macroKernel(int[] Ap, int[] Bp, Matrix C, int ic, int jc, int mc, int nc, int kc) {
+        for (int jr = 0; jr < nc; jr += NR) {
+            int cols = Math.min(NR, nc - jr);
+            int offB = (jr / NR) * kc * NR;
+            for (int ir = 0; ir < mc; ir += MR) {
+                int rows = Math.min(MR, mc - ir);
+                int offA = (ir / MR) * kc * MR;
+                microKernel(Ap, offA, Bp, offB, kc, C, ic + ir, jc + jr, rows, cols);
+            }
+        }
+    }
+
+    // C[i:i+rows, j:j+cols] += packed A sliver * packed B sliver, accumulated in a 4 x 4 register tile
+    private static void microKernel(int[] Ap, int offA, int[] Bp, int offB, int kc,
+                                    Matrix C, int i, int j, int rows, int cols) {
+        int c00 = 0, c01 = 0, c02 = 0, c03 = 0;
+        int c10 = 0, c11 = 0, c12 = 0, c13 = 0;
+        int c20 = 0, c21 = 0, c22 = 0, c23 = 0;
+        int c30 = 0, c31 = 0, c32 = 0, c33 = 0;
+
+        for (int p = 0; p < kc; p++) {
+            int a0 = Ap[offA], a1 = Ap[offA + 1], a2 = Ap[offA + 2], a3 = Ap[offA + 3];
+            int b0 = Bp[offB], b1 = Bp[offB + 1], b2 = Bp[offB + 2], b3 = Bp[offB + 3];
+            offA += MR;
+            offB += NR;
+
+            c00 += a0 * b0; c01 += a0 * b1; c02 += a0 * b2; c03 += a0 * b3;
+            c10 += a1 * b0; c11 += a1 * b1; c12 += a1 * b2; c13 += a1 * b3;
+            c20 += a2 * b0; c21 += a2 * b1; c22 += a2 * b2; c23 += a2 * b3;
+            c30 += a3 * b0; c31 += a3 * b1; c32 += a3 * b2; c33 += a3 * b3;
+        }
+
+        int[] c = C.data;
+        int row = C.offset + i * C.stride + j;
+
+        if (rows == MR && cols == NR) {
+            c[row] += c00; c[row + 1] += c01; c[row + 2] += c02; c[row + 3] += c03;
+            row += C.stride;
+            c[row] += c10; c[row + 1] += c11; c[row + 2] += c12; c[row + 3] += c13;
+            row += C.stride;
+            c[row] += c20; c[row + 1] += c21; c[row + 2] += c22; c[row + 3] += c23;
+            row += C.stride;
+            c[row] += c30; c[row + 1] += c31; c[row + 2] += c32; c[row + 3] += c33;
+            return;
+        }
+
+        // edge tile: only the valid part of the register tile is written back
+        int[] tile = {
+                c00, c01, c02, c03,
+                c10, c11, c12, c13,
+                c20, c21, c22, c23,
+                c30, c31, c32, c33
+        };
+        for (int r = 0; r < rows; r++) {
+            for (int col = 0; col < cols; col++) {
+                c[row + r * C.stride + col] += tile[r * NR + col];
+            }
+        }
+    }
+}
@@ -1,26 +1,57 @@
 import java.io.FileWriter;
 import java.io.IOException;
 import java.lang.ProcessBuilder;
+import java.lang.foreign.Arena;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class ComparisonTest {
 
+    // size divisors of a mixed workload, whose products all start at once: one product of the benchmark size, two of
+    // half and four of a quarter of it
+    private static final int[] MIXED_DIVISORS = {1, 2, 2, 4, 4, 4, 4};
+
+    // An engine's C = A * B
+    private interface Product {
+        Matrix multiply(Matrix A, Matrix B) throws InterruptedException;
+    }
+
     public static void main(String[] args) {
         if (args.length < 1 || args.length > 2) {
             System.out.println("Usage: java -Xmx32G -cp out ComparisonTest <mode> [num_processes]");
-            System.out.println("Modes: sequential, parallel, distributed, all");
+            System.out.println("Modes: sequential, parallel, virtual, classical, distributed, all, variants, mixed,"
+                    + " calibrate");
+            System.out.println("Append -winograd to sequential, parallel or distributed for the Strassen-Winograd variant");
+            System.out.println("Append -long, -float or -double (after -winograd, if given) to run that element type");
+            System.out.println("Append -offheap to sequential or parallel to keep the int matrices in off-heap memory");
+            System.out.println("Append -mixed to parallel or virtual to run several int products of mixed sizes at once;"
+                    + " 'mixed' compares both");
             System.out.println("For 'distributed' or 'all' modes, optionally specify number of processes (default = 8)");
             System.out.println("Note: You may need to increase the Java heap size with -Xmx (e.g., -Xmx32G) for large matrices.");
+            System.out.println("Add -Dstrassen.verify=<rounds> to check every result with Freivalds' algorithm (untimed)");
             return;
         }
 
         String mode = args[0].toLowerCase();
+
+        if (mode.equals("calibrate")) {
+            StrassenCrossover.main(args.length == 2 ? new String[] {args[1]} : new String[0]);
+            return;
+        }
+
         String[] modesToRun = switch (mode) {
             case "all" -> new String[] {"sequential", "parallel", "distributed"}; //"sequential",
+            case "variants" -> new String[] {"sequential", "sequential-winograd", "parallel", "parallel-winograd"};
+            case "mixed" -> new String[] {"parallel-mixed", "virtual-mixed"};
             default -> new String[] {mode};
         };
 
         int numProcesses = 8;
-        if ((mode.equals("distributed") || mode.equals("all")) && args.length == 2) {
+        if ((mode.startsWith("distributed") || mode.equals("all")) && args.length == 2) {
             try {
                 numProcesses = Integer.parseInt(args[1]);
             } catch (NumberFormatException e) {
@@ -35,46 +66,189 @@ public class ComparisonTest {
         new java.io.File("results").mkdirs();
 
         while (true) {
-            int[][] A = MatrixOperations.create(size);
-            int[][] B = MatrixOperations.create(size);
+            // seeded, so every mode (and the distributed root) multiplies the same inputs
+            Matrix flatA = MatrixGenerator.random(size, size, MatrixGenerator.SEED);
+            Matrix flatB = MatrixGenerator.random(size, size, MatrixGenerator.SEED + 1);
             long avgTime = 0;
             long avgSeq = 0;
             long avgPar = 0;
             long avgDist = 0;
+            long[] avgVariants = new long[modesToRun.length];
             boolean shouldStop = false;
 
-            for (String currentMode : modesToRun) {
+            for (int m = 0; m < modesToRun.length; m++) {
+                String currentMode = modesToRun[m];
+                StrassenVariant variant = currentMode.endsWith("-winograd")
+                        ? StrassenVariant.WINOGRAD : StrassenVariant.CLASSIC;
+                String engine = currentMode.split("-")[0];
+                ElementType type = ElementType.INT;
+                boolean offHeap = currentMode.endsWith("-offheap");
+                boolean mixed = currentMode.endsWith("-mixed");
+                for (String part : currentMode.split("-")) {
+                    if (part.equals("long") || part.equals("float") || part.equals("double")) {
+                        type = ElementType.parse(part);
+                    }
+                }
                 System.out.println("Testing size: " + size + " (" + currentMode + ")");
                 long totalTime = 0;
 
                 for (int i = 0; i < 3; i++) {
                     long time = 0;
-                    int[][] result = null;
 
-                    switch (currentMode) {
+                    switch (engine) {
                         case "sequential": {
-                            long start = System.nanoTime();
-                            StrassenAlgorithmSA sa = new StrassenAlgorithmSA();
-                            result = sa.multiplySA(A, B);
+                            int crossover = StrassenCrossover.load(type.crossoverKey("sequential"));
+                            long start;
+                            if (offHeap) {
+                                try (Arena arena = Arena.ofShared();
+                                     OffHeapStrassenAlgorithmSA sa = new OffHeapStrassenAlgorithmSA(crossover, variant)) {
+                                    OffHeapMatrix a = OffHeapMatrix.of(arena, flatA), b = OffHeapMatrix.of(arena, flatB);
+                                    OffHeapMatrix c = new OffHeapMatrix(arena, size);
+                                    start = System.nanoTime();
+                                    sa.multiplySA(a, b, c);
+                                    // checked before the arena closes
+                                    start += untimed(() -> Freivalds.report(a, b, c));
+                                }
+                            } else {
+                                // inputs are widened to the element type before the clock starts
+                                switch (type) {
+                                    case LONG -> {
+                                        LongMatrix a = LongMatrix.of(flatA), b = LongMatrix.of(flatB);
+                                        start = System.nanoTime();
+                                        LongMatrix c = new LongStrassenAlgorithmSA(crossover, variant).multiplySA(a, b);
+                                        start += untimed(() -> Freivalds.report(a, b, c));
+                                    }
+                                    case FLOAT -> {
+                                        FloatMatrix a = FloatMatrix.of(flatA), b = FloatMatrix.of(flatB);
+                                        start = System.nanoTime();
+                                        FloatMatrix c = new FloatStrassenAlgorithmSA(crossover, variant).multiplySA(a, b);
+                                        start += untimed(() -> Freivalds.report(a, b, c));
+                                    }
+                                    case DOUBLE -> {
+                                        DoubleMatrix a = DoubleMatrix.of(flatA), b = DoubleMatrix.of(flatB);
+                                        start = System.nanoTime();
+                                        DoubleMatrix c = new DoubleStrassenAlgorithmSA(crossover, variant).multiplySA(a, b);
+                                        start += untimed(() -> Freivalds.report(a, b, c));
+                                    }
+                                    default -> {
+                                        start = System.nanoTime();
+                                        StrassenAlgorithmSA sa = new StrassenAlgorithmSA(crossover, variant);
+                                        Matrix c = sa.multiplySA(flatA, flatB);
+                                        start += untimed(() -> Freivalds.report(flatA, flatB, c));
+                                    }
+                                }
+                            }
                             long end = System.nanoTime();
                             time = end - start;
                         }
                         break;
                         case "parallel": {
-                            long start = System.nanoTime();
-                            StrassenAlgorithmPA pa = new StrassenAlgorithmPA();
-                            result = pa.multiplyParallel(A, B);
+                            int crossover = StrassenCrossover.load(type.crossoverKey("parallel"));
+                            long start;
+                            if (mixed) {
+                                StrassenAlgorithmPA pa = new StrassenAlgorithmPA(crossover, variant);
+                                time = mixedWorkload(size, pa::multiplyParallel);
+                                break;
+                            }
+                            if (offHeap) {
+                                OffHeapStrassenAlgorithmPA pa = new OffHeapStrassenAlgorithmPA(crossover, variant);
+                                try (Arena arena = Arena.ofShared()) {
+                                    OffHeapMatrix a = OffHeapMatrix.of(arena, flatA), b = OffHeapMatrix.of(arena, flatB);
+                                    OffHeapMatrix c = new OffHeapMatrix(arena, size);
+                                    start = System.nanoTime();
+                                    pa.multiplyParallel(a, b, c);
+                                    start += untimed(() -> Freivalds.report(a, b, c));
+                                }
+                            } else {
+                                switch (type) {
+                                    case LONG -> {
+                                        LongMatrix a = LongMatrix.of(flatA), b = LongMatrix.of(flatB);
+                                        start = System.nanoTime();
+                                        LongMatrix c = new LongStrassenAlgorithmPA(crossover, variant).multiplyParallel(a, b);
+                                        start += untimed(() -> Freivalds.report(a, b, c));
+                                    }
+                                    case FLOAT -> {
+                                        FloatMatrix a = FloatMatrix.of(flatA), b = FloatMatrix.of(flatB);
+                                        start = System.nanoTime();
+                                        FloatMatrix c = new FloatStrassenAlgorithmPA(crossover, variant).multiplyParallel(a, b);
+                                        start += untimed(() -> Freivalds.report(a, b, c));
+                                    }
+                                    case DOUBLE -> {
+                                        DoubleMatrix a = DoubleMatrix.of(flatA), b = DoubleMatrix.of(flatB);
+                                        start = System.nanoTime();
+                                        DoubleMatrix c = new DoubleStrassenAlgorithmPA(crossover, variant).multiplyParallel(a, b);
+                                        start += untimed(() -> Freivalds.report(a, b, c));
+                                    }
+                                    default -> {
+                                        start = System.nanoTime();
+                                        StrassenAlgorithmPA pa = new StrassenAlgorithmPA(crossover, variant);
+                                        Matrix c = pa.multiplyParallel(flatA, flatB);
+                                        start += untimed(() -> Freivalds.report(flatA, flatB, c));
+                                    }
+                                }
+                            }
                             long end = System.nanoTime();
                             time = end - start;
                         }
                         break;
+                        case "classical": {
+                            // the parallel engine's fallback: no Strassen levels, C tiled across the pool
+                            long start;
+                            switch (type) {
+                                case LONG -> {
+                                    LongMatrix a = LongMatrix.of(flatA), b = LongMatrix.of(flatB);
+                                    start = System.nanoTime();
+                                    LongMatrix c = new LongStrassenAlgorithmPA().multiplyClassical(a, b);
+                                    start += untimed(() -> Freivalds.report(a, b, c));
+                                }
+                                case FLOAT -> {
+                                    FloatMatrix a = FloatMatrix.of(flatA), b = FloatMatrix.of(flatB);
+                                    start = System.nanoTime();
+                                    FloatMatrix c = new FloatStrassenAlgorithmPA().multiplyClassical(a, b);
+                                    start += untimed(() -> Freivalds.report(a, b, c));
+                                }
+                                case DOUBLE -> {
+                                    DoubleMatrix a = DoubleMatrix.of(flatA), b = DoubleMatrix.of(flatB);
+                                    start = System.nanoTime();
+                                    DoubleMatrix c = new DoubleStrassenAlgorithmPA().multiplyClassical(a, b);
+                                    start += untimed(() -> Freivalds.report(a, b, c));
+                                }
+                                default -> {
+                                    start = System.nanoTime();
+                                    Matrix c = new StrassenAlgorithmPA().multiplyClassical(flatA, flatB);
+                                    start += untimed(() -> Freivalds.report(flatA, flatB, c));
+                                }
+                            }
+                            time = System.nanoTime() - start;
+                        }
+                        break;
+                        case "virtual": {
+                            // int only, with the ForkJoin engine's crossover
+                            StrassenAlgorithmVT vt = new StrassenAlgorithmVT(
+                                    StrassenCrossover.load(ElementType.INT.crossoverKey("parallel")), variant);
+                            if (mixed) {
+                                time = mixedWorkload(size, vt::multiplyVirtual);
+                                break;
+                            }
+                            try {
+                                long start = System.nanoTime();
+                                Matrix c = vt.multiplyVirtual(flatA, flatB);
+                                start += untimed(() -> Freivalds.report(flatA, flatB, c));
+                                time = System.nanoTime() - start;
+                            } catch (InterruptedException e) {
+                                throw new RuntimeException("Virtual thread product interrupted", e);
+                            }
+                        }
+                        break;
                         case "distributed": {
                             System.out.println("Number of processes: " + String.valueOf(numProcesses));
                             ProcessBuilder pb = new ProcessBuilder(
                                     //mpjrun.bat -np <num> -cp <classpath> <MainClass> <args...>
-                                    "mpjrun.bat", "-Xmx32G", "-np", String.valueOf(numProcesses),
+                                    "mpjrun.bat", "-Xmx32G", "-Dstrassen.verify=" + Freivalds.ROUNDS,
+                                    "-Dstrassen.seed=" + MatrixGenerator.SEED,
+                                    "-np", String.valueOf(numProcesses),
                                     "-cp", "out;C:/Program Files/mpj-v0_44/lib/mpj.jar", "StrassenAlgorithmDA",
-                                    Integer.toString(size)
+                                    variant.name().toLowerCase(), type.name().toLowerCase(), Integer.toString(size)
                             );
                             pb.redirectErrorStream(true);
 
@@ -89,6 +263,9 @@ public class ComparisonTest {
                             try (var reader = new java.io.BufferedReader(new java.io.InputStreamReader(process.getInputStream()))) {
                                 String line;
                                 while ((line = reader.readLine()) != null) {
+                                    if (line.startsWith("Freivalds check")) {
+                                        System.out.println(line);
+                                    }
                                     if (line.contains("Execution time:")) {
                                         try {
                                             String[] parts = line.split(":");
@@ -141,6 +318,7 @@ public class ComparisonTest {
                     case "parallel" -> avgPar = avgTime;
                     case "distributed" -> avgDist = avgTime;
                 }
+                avgVariants[m] = avgTime;
 
                 if (avgTime > maxAllowedTime) {
                     System.out.printf("Stopping test: %s version exceeded 10-minute limit.\n", currentMode);
@@ -153,7 +331,13 @@ public class ComparisonTest {
                 case "parallel" -> "results/par_results.csv";
                 case "distributed" -> "results/dist_results.csv";
                 case "all" -> "results/all_results.csv";
-                default -> "results/unknown.csv";
+                case "variants" -> "results/variant_results.csv";
+                case "sequential-winograd" -> "results/seq_winograd_results.csv";
+                case "parallel-winograd" -> "results/par_winograd_results.csv";
+                case "distributed-winograd" -> "results/dist_winograd_results.csv";
+                // e.g. parallel-winograd-double -> results/par_winograd_double_results.csv
+                default -> "results/" + mode.replace("sequential", "seq").replace("parallel", "par")
+                        .replace("distributed", "dist").replace('-', '_') + "_results.csv";
             };
 
             if (shouldStop) break;
@@ -161,6 +345,11 @@ public class ComparisonTest {
             try (FileWriter writer = new FileWriter(fileName, true)) {
                 if(mode.equals("all")){
                     writer.write(String.format("%d,%d,%d,%d\n", size, avgSeq, avgPar, avgDist));
+                } else if (mode.equals("mixed")) {
+                    writer.write(String.format("%d,%d,%d\n", size, avgVariants[0], avgVariants[1]));
+                } else if (mode.equals("variants")) {
+                    writer.write(String.format("%d,%d,%d,%d,%d\n", size,
+                            avgVariants[0], avgVariants[1], avgVariants[2], avgVariants[3]));
                 } else {
                     writer.write(String.format("%d,%d\n", size, avgTime));
                 }
@@ -172,4 +361,46 @@ public class ComparisonTest {
             size += 500;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Runs the products of a mixed workload for the given size at once, each from its own virtual thread, and returns
+     * the nanoseconds until the last one finished. The inputs are generated and the results checked off the clock.
+     */
+    private static long mixedWorkload(int size, Product product) {
+        List<Matrix> A = new ArrayList<>(), B = new ArrayList<>();
+        for (int divisor : MIXED_DIVISORS) {
+            int n = Math.max(1, size / divisor);
+            A.add(MatrixGenerator.random(n, n, MatrixGenerator.SEED + 2L * A.size()));
+            B.add(MatrixGenerator.random(n, n, MatrixGenerator.SEED + 2L * B.size() + 1));
+        }
+        Matrix[] C = new Matrix[A.size()];
+
+        long start = System.nanoTime();
+        try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> products = new ArrayList<>();
+            for (int i = 0; i < C.length; i++) {
+                int p = i;
+                products.add(callers.submit(() -> C[p] = product.multiply(A.get(p), B.get(p))));
+            }
+            for (Future<?> f : products) {
+                f.get();
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException("Mixed workload failed", e);
+        }
+        long time = System.nanoTime() - start;
+
+        for (int i = 0; i < C.length; i++) {
+            Freivalds.report(A.get(i), B.get(i), C[i]);
+        }
+        return time;
+    }
+
+    // Runs an opt-in check and returns the nanoseconds it took, which the caller adds to its start time
+    private static long untimed(Runnable check) {
+        if (!Freivalds.enabled()) return 0;
+        long start = System.nanoTime();
+        check.run();
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,118 @@
+import java.util.Arrays;
+
+/**
+ * {@link LinearCombination} for {@link DoubleMatrix}: a lazy sum of equally shaped matrices with coefficients +1 and
+ * -1, evaluated in one row-by-row sweep or packed directly by the classical kernel of {@link DoubleMatrixOperations}.
+ */
+public final class DoubleLinearCombination {
+
+    private final DoubleMatrix[] terms;
+    private final boolean[] negated;
+
+    private DoubleLinearCombination(DoubleMatrix[] terms, boolean[] negated) {
+        this.terms = terms;
+        this.negated = negated;
+    }
+
+    public static DoubleLinearCombination of(DoubleMatrix A) {
+        return new DoubleLinearCombination(new DoubleMatrix[]{A}, new boolean[1]);
+    }
+
+    // this + A
+    public DoubleLinearCombination plus(DoubleMatrix A) {
+        return append(A, false);
+    }
+
+    // this - A
+    public DoubleLinearCombination minus(DoubleMatrix A) {
+        return append(A, true);
+    }
+
+    private DoubleLinearCombination append(DoubleMatrix A, boolean negate) {
+        if (A.rows != rows() || A.cols != cols()) {
+            throw new IllegalArgumentException("Cannot combine " + rows() + "x" + cols() + " with " + A.rows + "x" +
+                    A.cols);
+        }
+        int size = terms.length;
+        DoubleMatrix[] t = Arrays.copyOf(terms, size + 1);
+        boolean[] n = Arrays.copyOf(negated, size + 1);
+        t[size] = A;
+        n[size] = negate;
+        return new DoubleLinearCombination(t, n);
+    }
+
+    public int rows() {
+        return terms[0].rows;
+    }
+
+    public int cols() {
+        return terms[0].cols;
+    }
+
+    public int size() {
+        return terms.length;
+    }
+
+    // The combination of the rows [row, row + rows) of the terms
+    public DoubleLinearCombination rowBlock(int row, int rows) {
+        DoubleMatrix[] t = new DoubleMatrix[terms.length];
+        for (int i = 0; i < t.length; i++) {
+            t[i] = terms[i].rowBlock(row, rows);
+        }
+        return new DoubleLinearCombination(t, negated);
+    }
+
+    DoubleMatrix term(int t) {
+        return terms[t];
+    }
+
+    boolean negated(int t) {
+        return negated[t];
+    }
+
+    // A single matrix, which kernels can use as is
+    boolean plain() {
+        return terms.length == 1;
+    }
+
+    // The single term itself, or the sum in a new matrix
+    public DoubleMatrix evaluate() {
+        return plain() ? terms[0] : evaluate(new DoubleMatrix(rows(), cols()));
+    }
+
+    /**
+     * The single term itself, or C holding the sum. C may be the first term but no other one: every row of C is set
+     * from the first term and then the others are added in while the row is still in cache.
+     */
+    public DoubleMatrix evaluate(DoubleMatrix C) {
+        if (plain()) {
+            return terms[0];
+        }
+        if (C.rows != rows() || C.cols != cols()) {
+            throw new IllegalArgumentException("Cannot evaluate a " + rows() + "x" + cols() + " combination into " +
+                    C.rows + "x" + C.cols);
+        }
+
+        double[] c = C.data;
+        int cols = C.cols;
+
+        for (int i = 0; i < C.rows; i++) {
+            int iC = C.offset + i * C.stride;
+            System.arraycopy(terms[0].data, terms[0].offset + i * terms[0].stride, c, iC, cols);
+            for (int t = 1; t < terms.length; t++) {
+                double[] a = terms[t].data;
+                int iA = terms[t].offset + i * terms[t].stride;
+                if (negated[t]) {
+                    for (int j = 0; j < cols; j++) {
+                        c[iC + j] -= a[iA + j];
+                    }
+                } else {
+                    for (int j = 0; j < cols; j++) {
+                        c[iC + j] += a[iA + j];
+                    }
+                }
+            }
+        }
+        return C;
+    }
+}
@@ -0,0 +1,449 @@
+import java.util.List;
+
+/**
+ * Sequential Strassen engine for {@link DoubleMatrix}: the same recursion, peeling, variants and workspace reuse as
+ * {@link StrassenAlgorithmSA}, with its own crossover stored under {@code sequential-double}.
+ */
+public class DoubleStrassenAlgorithmSA extends DoubleMatrixOperations {
+
+    // blocks of this size or smaller are multiplied classically
+    private final int crossover;
+    private final StrassenVariant variant;
+    // scratch arena (see StrassenWorkspace), grown on demand and reused across products
+    private double[] workspace;
+    private int top;
+    // Strassen levels, from the top, still to run on the lean schedule
+    private int leanLevels;
+
+    public DoubleStrassenAlgorithmSA() {
+        this(StrassenCrossover.load(ElementType.DOUBLE.crossoverKey("sequential")));
+    }
+
+    public DoubleStrassenAlgorithmSA(int crossover) {
+        this(crossover, StrassenVariant.CLASSIC);
+    }
+
+    public DoubleStrassenAlgorithmSA(int crossover, StrassenVariant variant) {
+        this.crossover = Math.max(1, crossover);
+        this.variant = variant;
+    }
+
+    public int getCrossover() {
+        return crossover;
+    }
+
+    public StrassenVariant getVariant() {
+        return variant;
+    }
+
+    // Memory plan of C = A * B for an m x k matrix A and a k x n matrix B, see MemoryPlanner
+    public MemoryPlanner.Plan plan(int m, int k, int n) {
+        return MemoryPlanner.sequential(m, k, n, crossover, variant, ElementType.DOUBLE, MemoryPlanner.budget());
+    }
+
+    public double[][] multiplySA(double[][] A, double[][] B) {
+        return multiplySA(DoubleMatrix.of(A), DoubleMatrix.of(B)).toArray();
+    }
+
+    public DoubleMatrix multiplySA(DoubleMatrix A, DoubleMatrix B) {
+        DoubleMatrix C = new DoubleMatrix(A.rows(), B.cols());
+        multiplySA(A, B, C);
+        return C;
+    }
+
+    /**
+     * The product of a chain of factors, in the order {@link MatrixChain} finds cheapest for this engine's crossover
+     * and variant. Every intermediate is dropped as soon as the product that consumes it is formed.
+     */
+    public DoubleMatrix multiplyChain(List<DoubleMatrix> factors) {
+        int[] dims = MatrixChain.dimensions(factors.size(), i -> factors.get(i).rows(), i -> factors.get(i).cols());
+        MatrixChain.Order order = MatrixChain.order(dims, crossover, variant);
+        return multiplyChain(factors, order, 0, factors.size() - 1);
+    }
+
+    // The product of factors i..j
+    private DoubleMatrix multiplyChain(List<DoubleMatrix> factors, MatrixChain.Order order, int i, int j) {
+        if (i == j) return factors.get(i);
+        int s = order.split(i, j);
+        return multiplySA(multiplyChain(factors, order, i, s), multiplyChain(factors, order, s + 1, j));
+    }
+
+    /**
+     * A^exponent for a square A by repeated squaring, see {@link MatrixPower}: at most three n x n buffers and this
+     * engine's workspace, sized by the first squaring, are reused by every product. A^0 is the identity.
+     */
+    public DoubleMatrix power(DoubleMatrix A, long exponent) {
+        MatrixPower.check(A.rows(), A.cols(), exponent);
+        int n = A.rows();
+        if (exponent == 0) return DoubleMatrix.of(MatrixGenerator.identity(n));
+
+        return MatrixPower.power(A, exponent, () -> new DoubleMatrix(n), this::multiplySA, M -> {
+            DoubleMatrix C = new DoubleMatrix(n);
+            C.copyFrom(M);
+            return C;
+        });
+    }
+
+    // C = A * B for an m x k matrix A and a k x n matrix B. Not thread-safe.
+    public void multiplySA(DoubleMatrix A, DoubleMatrix B, DoubleMatrix C) {
+
+        checkDimensions(A, B, C);
+
+        int m = A.rows(), k = A.cols(), n = B.cols();
+        long scratch = StrassenWorkspace.scratchSize(m, k, n, crossover, variant);
+
+        if (workspace != null && workspace.length >= scratch) {
+            multiplySA(A, B, C, 0);
+            return;
+        }
+
+        // the workspace has to grow: plan first, trading temporaries for the lean schedule before giving up Strassen
+        workspace = null;
+        MemoryPlanner.Plan plan = plan(m, k, n);
+        if (!plan.strassen()) {
+            System.out.println("Insufficient memory for Strassen recursion, falling back to conventional " +
+                    "multiplication: " + plan);
+            multiply(A, B, C);
+            return;
+        }
+        if (plan.leanLevels() > 0) {
+            System.out.println("Memory is tight, using the lean schedule: " + plan);
+        }
+        multiplySA(A, B, C, plan.leanLevels());
+    }
+
+    // C = A * B with the top leanLevels Strassen levels on the lean schedule, growing the workspace without planning
+    void multiplySA(DoubleMatrix A, DoubleMatrix B, DoubleMatrix C, int leanLevels) {
+        long scratch = StrassenWorkspace.scratchSize(A.rows(), A.cols(), B.cols(), crossover, variant, leanLevels);
+        if (workspace == null || workspace.length < scratch) {
+            workspace = null;
+            workspace = new double[(int) scratch];
+        }
+
+        top = 0;
+        this.leanLevels = leanLevels;
+        strassen(A, B, C);
+    }
+
+    private DoubleMatrix allocate(int rows, int cols) {
+        DoubleMatrix M = new DoubleMatrix(workspace, top, cols, rows, cols);
+        top += rows * cols;
+        return M;
+    }
+
+    private void strassen(DoubleMatrix A, DoubleMatrix B, DoubleMatrix C) {
+
+        int m = A.rows(), k = A.cols(), n = B.cols();
+        int smallest = Math.min(m, Math.min(k, n));
+        int largest = Math.max(m, Math.max(k, n));
+
+        if (smallest <= crossover) {
+            multiply(A, B, C);
+            return;
+        }
+
+        if (largest >= 2 * smallest) {
+            splitLargest(A, B, C);
+            return;
+        }
+
+        if (m % 2 != 0 || k % 2 != 0 || n % 2 != 0) {
+            // dynamic peeling: Strassen on the even core, then the odd row, column and inner slice classically
+            int me = m & ~1, ke = k & ~1, ne = n & ~1;
+            strassen(A.view(0, 0, me, ke), B.view(0, 0, ke, ne), C.view(0, 0, me, ne));
+            completePeeled(A, B, C, me, ke, ne);
+            return;
+        }
+
+        if (leanLevels > 0) {
+            lean(A, B, C);
+            return;
+        }
+
+        if (variant == StrassenVariant.WINOGRAD) {
+            winograd(A, B, C);
+            return;
+        }
+
+        int mh = m / 2, kh = k / 2, nh = n / 2;
+        int mark = top;
+
+        DoubleMatrix A11 = A.quadrant(0, 0);
+        DoubleMatrix A12 = A.quadrant(0, 1);
+        DoubleMatrix A21 = A.quadrant(1, 0);
+        DoubleMatrix A22 = A.quadrant(1, 1);
+        DoubleMatrix B11 = B.quadrant(0, 0);
+        DoubleMatrix B12 = B.quadrant(0, 1);
+        DoubleMatrix B21 = B.quadrant(1, 0);
+        DoubleMatrix B22 = B.quadrant(1, 1);
+
+        DoubleMatrix M1 = allocate(mh, nh);
+        DoubleMatrix M2 = allocate(mh, nh);
+        DoubleMatrix M3 = allocate(mh, nh);
+        DoubleMatrix M4 = allocate(mh, nh);
+        DoubleMatrix M5 = allocate(mh, nh);
+        DoubleMatrix M6 = allocate(mh, nh);
+        DoubleMatrix M7 = allocate(mh, nh);
+        // operand sums, overwritten for every product that recurses further
+        DoubleMatrix S = allocate(mh, kh);
+        DoubleMatrix T = allocate(kh, nh);
+
+        // M1 = (A11 + A22) * (B11 + B22)
+        product(DoubleLinearCombination.of(A11).plus(A22),
+                DoubleLinearCombination.of(B11).plus(B22), S, T, M1);
+        // M2 = (A21 + A22) * B11
+        product(DoubleLinearCombination.of(A21).plus(A22),
+                DoubleLinearCombination.of(B11), S, T, M2);
+        // M3 = A11 * (B12 - B22)
+        product(DoubleLinearCombination.of(A11),
+                DoubleLinearCombination.of(B12).minus(B22), S, T, M3);
+        // M4 = A22 * (B21 − B11)
+        product(DoubleLinearCombination.of(A22),
+                DoubleLinearCombination.of(B21).minus(B11), S, T, M4);
+        // M5 = (A11 + A12) * B22
+        product(DoubleLinearCombination.of(A11).plus(A12),
+                DoubleLinearCombination.of(B22), S, T, M5);
+        // M6 = (A21 - A11) * (B11 + B12)
+        product(DoubleLinearCombination.of(A21).minus(A11),
+                DoubleLinearCombination.of(B11).plus(B12), S, T, M6);
+        // M7 = (A12 - A22) * (B21 + B22)
+        product(DoubleLinearCombination.of(A12).minus(A22),
+                DoubleLinearCombination.of(B21).plus(B22), S, T, M7);
+
+        combineClassic(new DoubleMatrix[] {M1, M2, M3, M4, M5, M6, M7}, C);
+
+        top = mark;
+    }
+
+    /**
+     * M = L * R for lazy operand sums. A product at the crossover packs the sums straight from the quadrants; a
+     * deeper one evaluates them into the workspace blocks S and T first, since its own quadrants must be views.
+     */
+    private void product(DoubleLinearCombination L, DoubleLinearCombination R, DoubleMatrix S, DoubleMatrix T, DoubleMatrix M) {
+        if (Math.min(L.rows(), Math.min(L.cols(), R.cols())) <= crossover) {
+            multiply(L, R, M);
+            return;
+        }
+        strassen(L.evaluate(S), R.evaluate(T), M);
+    }
+
+    /**
+     * One classic Strassen level with three temporaries: an A-side sum S, a B-side sum T and a product M. M1, M2 and
+     * M3 are computed straight into C quadrants and the other products are folded into C as soon as they are formed,
+     * so the level needs mh x kh + kh x nh + mh x nh scratch instead of seven products.
+     */
+    private void lean(DoubleMatrix A, DoubleMatrix B, DoubleMatrix C) {
+
+        int mh = A.rows() / 2, kh = A.cols() / 2, nh = B.cols() / 2;
+        int mark = top;
+        leanLevels--;
+
+        DoubleMatrix A11 = A.quadrant(0, 0);
+        DoubleMatrix A12 = A.quadrant(0, 1);
+        DoubleMatrix A21 = A.quadrant(1, 0);
+        DoubleMatrix A22 = A.quadrant(1, 1);
+        DoubleMatrix B11 = B.quadrant(0, 0);
+        DoubleMatrix B12 = B.quadrant(0, 1);
+        DoubleMatrix B21 = B.quadrant(1, 0);
+        DoubleMatrix B22 = B.quadrant(1, 1);
+        DoubleMatrix C11 = C.quadrant(0, 0);
+        DoubleMatrix C12 = C.quadrant(0, 1);
+        DoubleMatrix C21 = C.quadrant(1, 0);
+        DoubleMatrix C22 = C.quadrant(1, 1);
+
+        DoubleMatrix S = allocate(mh, kh);
+        DoubleMatrix T = allocate(kh, nh);
+        DoubleMatrix M = allocate(mh, nh);
+
+        // M1 = (A11 + A22) * (B11 + B22): C11 = M1, C22 = M1
+        product(DoubleLinearCombination.of(A11).plus(A22),
+                DoubleLinearCombination.of(B11).plus(B22), S, T, C11);
+        C22.copyFrom(C11);
+        // M2 = (A21 + A22) * B11: C21 = M2, C22 -= M2
+        product(DoubleLinearCombination.of(A21).plus(A22),
+                DoubleLinearCombination.of(B11), S, T, C21);
+        subtract(C22, C21, C22);
+        // M3 = A11 * (B12 - B22): C12 = M3, C22 += M3
+        product(DoubleLinearCombination.of(A11),
+                DoubleLinearCombination.of(B12).minus(B22), S, T, C12);
+        add(C22, C12, C22);
+        // M4 = A22 * (B21 - B11): C11 += M4, C21 += M4
+        product(DoubleLinearCombination.of(A22),
+                DoubleLinearCombination.of(B21).minus(B11), S, T, M);
+        add(C11, M, C11);
+        add(C21, M, C21);
+        // M5 = (A11 + A12) * B22: C11 -= M5, C12 += M5
+        product(DoubleLinearCombination.of(A11).plus(A12),
+                DoubleLinearCombination.of(B22), S, T, M);
+        subtract(C11, M, C11);
+        add(C12, M, C12);
+        // M6 = (A21 - A11) * (B11 + B12): C22 += M6
+        product(DoubleLinearCombination.of(A21).minus(A11),
+                DoubleLinearCombination.of(B11).plus(B12), S, T, M);
+        add(C22, M, C22);
+        // M7 = (A12 - A22) * (B21 + B22): C11 += M7
+        product(DoubleLinearCombination.of(A12).minus(A22),
+                DoubleLinearCombination.of(B21).plus(B22), S, T, M);
+        add(C11, M, C11);
+
+        leanLevels++;
+        top = mark;
+    }
+
+    // Halves the largest of m, k and n; a product this skewed gains nothing from a Strassen step
+    private void splitLargest(DoubleMatrix A, DoubleMatrix B, DoubleMatrix C) {
+
+        int m = A.rows(), k = A.cols(), n = B.cols();
+
+        if (m >= k && m >= n) {
+            int half = (m + 1) / 2;
+            strassen(A.view(0, 0, half, k), B, C.view(0, 0, half, n));
+            strassen(A.view(half, 0, m - half, k), B, C.view(half, 0, m - half, n));
+        } else if (n >= k) {
+            int left = (n + 1) / 2;
+            strassen(A, B.view(0, 0, k, left), C.view(0, 0, m, left));
+            strassen(A, B.view(0, left, k, n - left), C.view(0, left, m, n - left));
+        } else {
+            // C = A1 * B1 + A2 * B2 over the two halves of the inner dimension
+            int front = (k + 1) / 2;
+            int mark = top;
+            DoubleMatrix T = allocate(m, n);
+            strassen(A.view(0, 0, m, front), B.view(0, 0, front, n), C);
+            strassen(A.view(0, front, m, k - front), B.view(front, 0, k - front, n), T);
+            add(C, T, C);
+            top = mark;
+        }
+    }
+
+    // One Strassen-Winograd level: 8 operand additions, 7 products and 7 result additions
+    private void winograd(DoubleMatrix A, DoubleMatrix B, DoubleMatrix C) {
+
+        int mh = A.rows() / 2, kh = A.cols() / 2, nh = B.cols() / 2;
+        int mark = top;
+
+        DoubleMatrix A11 = A.quadrant(0, 0);
+        DoubleMatrix A12 = A.quadrant(0, 1);
+        DoubleMatrix A21 = A.quadrant(1, 0);
+        DoubleMatrix A22 = A.quadrant(1, 1);
+        DoubleMatrix B11 = B.quadrant(0, 0);
+        DoubleMatrix B12 = B.quadrant(0, 1);
+        DoubleMatrix B21 = B.quadrant(1, 0);
+        DoubleMatrix B22 = B.quadrant(1, 1);
+
+        DoubleMatrix S1 = allocate(mh, kh);
+        DoubleMatrix S2 = allocate(mh, kh);
+        DoubleMatrix S3 = allocate(mh, kh);
+        DoubleMatrix S4 = allocate(mh, kh);
+        DoubleMatrix T1 = allocate(kh, nh);
+        DoubleMatrix T2 = allocate(kh, nh);
+        DoubleMatrix T3 = allocate(kh, nh);
+        DoubleMatrix T4 = allocate(kh, nh);
+
+        // S1 = A21 + A22, S2 = S1 − A11, S3 = A11 − A21, S4 = A12 − S2
+        add(A21, A22, S1);
+        subtract(S1, A11, S2);
+        subtract(A11, A21, S3);
+        subtract(A12, S2, S4);
+        // T1 = B12 − B11, T2 = B22 − T1, T3 = B22 − B12, T4 = T2 − B21
+        subtract(B12, B11, T1);
+        subtract(B22, T1, T2);
+        subtract(B22, B12, T3);
+        subtract(T2, B21, T4);
+
+        DoubleMatrix M1 = allocate(mh, nh);
+        DoubleMatrix M2 = allocate(mh, nh);
+        DoubleMatrix M3 = allocate(mh, nh);
+        DoubleMatrix M4 = allocate(mh, nh);
+        DoubleMatrix M5 = allocate(mh, nh);
+        DoubleMatrix M6 = allocate(mh, nh);
+        DoubleMatrix M7 = allocate(mh, nh);
+
+        strassen(A11, B11, M1);
+        strassen(A12, B21, M2);
+        strassen(S4, B22, M3);
+        strassen(A22, T4, M4);
+        strassen(S1, T1, M5);
+        strassen(S2, T2, M6);
+        strassen(S3, T3, M7);
+
+        combineWinograd(new DoubleMatrix[] {M1, M2, M3, M4, M5, M6, M7}, C);
+
+        top = mark;
+    }
+
+    // C11 = M1 + M4 − M5 + M7, C12 = M3 + M5, C21 = M2 + M4, C22 = M1 − M2 + M3 + M6
+    private void combineClassic(DoubleMatrix[] M, DoubleMatrix C) {
+        addSubtractAdd(M[0], M[3], M[4], M[6], C.quadrant(0, 0));
+        add(M[2], M[4], C.quadrant(0, 1));
+        add(M[1], M[3], C.quadrant(1, 0));
+        subtractAddAdd(M[0], M[1], M[2], M[5], C.quadrant(1, 1));
+    }
+
+    // U2 = M1 + M6, U3 = U2 + M7, U4 = U2 + M5 (kept in M6, M7 and M6), then C12 = U4 + M3, C21 = U3 − M4, C22 = U3 + M5
+    private void combineWinograd(DoubleMatrix[] M, DoubleMatrix C) {
+        add(M[0], M[1], C.quadrant(0, 0));
+        add(M[0], M[5], M[5]);
+        add(M[5], M[6], M[6]);
+        add(M[5], M[4], M[5]);
+        add(M[5], M[2], C.quadrant(0, 1));
+        subtract(M[6], M[3], C.quadrant(1, 0));
+        add(M[6], M[4], C.quadrant(1, 1));
+    }
+
+    /**
+     * Operands of the seven products of one recursion level as compact blocks, for shipping to other processes:
+     * element 2i is the A-side and 2i + 1 the B-side operand of product i + 1. A and B must have even dimensions.
+     */
+    DoubleMatrix[] productOperands(DoubleMatrix A, DoubleMatrix B) {
+
+        DoubleMatrix A11 = A.quadrant(0, 0);
+        DoubleMatrix A12 = A.quadrant(0, 1);
+        DoubleMatrix A21 = A.quadrant(1, 0);
+        DoubleMatrix A22 = A.quadrant(1, 1);
+        DoubleMatrix B11 = B.quadrant(0, 0);
+        DoubleMatrix B12 = B.quadrant(0, 1);
+        DoubleMatrix B21 = B.quadrant(1, 0);
+        DoubleMatrix B22 = B.quadrant(1, 1);
+
+        if (variant == StrassenVariant.WINOGRAD) {
+            DoubleMatrix S1 = add(A21, A22);
+            DoubleMatrix S2 = subtract(S1, A11);
+            DoubleMatrix T1 = subtract(B12, B11);
+            DoubleMatrix T2 = subtract(B22, T1);
+            return new DoubleMatrix[] {
+                    copy(A11), copy(B11),
+                    copy(A12), copy(B21),
+                    subtract(A12, S2), copy(B22),
+                    copy(A22), subtract(T2, B21),
+                    S1, T1,
+                    S2, T2,
+                    subtract(A11, A21), subtract(B22, B12)
+            };
+        }
+
+        return new DoubleMatrix[] {
+                add(A11, A22), add(B11, B22),
+                add(A21, A22), copy(B11),
+                copy(A11), subtract(B12, B22),
+                copy(A22), subtract(B21, B11),
+                add(A11, A12), copy(B22),
+                subtract(A21, A11), add(B11, B12),
+                subtract(A12, A22), add(B21, B22)
+        };
+    }
+
+    // Assembles C from the seven products of productOperands; the products are overwritten
+    void combineProducts(DoubleMatrix[] M, DoubleMatrix C) {
+        if (variant == StrassenVariant.WINOGRAD) {
+            combineWinograd(M, C);
+        } else {
+            combineClassic(M, C);
+        }
+    }
+
+    private static DoubleMatrix copy(DoubleMatrix A) {
+        DoubleMatrix C = new DoubleMatrix(A.rows(), A.cols());
+        C.copyFrom(A);
+        return C;
+    }
+}
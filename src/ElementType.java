@@ -0,0 +1,37 @@
+/**
+ * Element type of the matrices being multiplied. {@link #INT} runs the original engines; {@link #LONG} avoids the
+ * overflow of int products and {@link #FLOAT} and {@link #DOUBLE} carry floating point data. Every type has its own
+ * specialized engines and its own crossover.
+ */
+public enum ElementType {
+    INT(Integer.BYTES),
+    LONG(Long.BYTES),
+    FLOAT(Float.BYTES),
+    DOUBLE(Double.BYTES);
+
+    private final int bytes;
+
+    ElementType(int bytes) {
+        this.bytes = bytes;
+    }
+
+    // Size of one element in bytes
+    public int bytes() {
+        return bytes;
+    }
+
+    public static ElementType parse(String name) {
+        return switch (name.toLowerCase()) {
+            case "int" -> INT;
+            case "long" -> LONG;
+            case "float" -> FLOAT;
+            case "double" -> DOUBLE;
+            default -> throw new IllegalArgumentException("Unknown element type: " + name);
+        };
+    }
+
+    // Key under which an engine's crossover for this type is stored, e.g. "parallel-double"; int keeps the plain name
+    public String crossoverKey(String engine) {
+        return this == INT ? engine : engine + "-" + name().toLowerCase();
+    }
+}
@@ -0,0 +1,118 @@
+import java.util.Arrays;
+
+/**
+ * {@link LinearCombination} for {@link FloatMatrix}: a lazy sum of equally shaped matrices with coefficients +1 and
+ * -1, evaluated in one row-by-row sweep or packed directly by the classical kernel of {@link FloatMatrixOperations}.
+ */
+public final class FloatLinearCombination {
+
+    private final FloatMatrix[] terms;
+    private final boolean[] negated;
+
+    private FloatLinearCombination(FloatMatrix[] terms, boolean[] negated) {
+        this.terms = terms;
+        this.negated = negated;
+    }
+
+    public static FloatLinearCombination of(FloatMatrix A) {
+        return new FloatLinearCombination(new FloatMatrix[]{A}, new boolean[1]);
+    }
+
+    // this + A
+    public FloatLinearCombination plus(FloatMatrix A) {
+        return append(A, false);
+    }
+
+    // this - A
+    public FloatLinearCombination minus(FloatMatrix A) {
+        return append(A, true);
+    }
+
+    private FloatLinearCombination append(FloatMatrix A, boolean negate) {
+        if (A.rows != rows() || A.cols != cols()) {
+            throw new IllegalArgumentException("Cannot combine " + rows() + "x" + cols() + " with " + A.rows + "x" +
+                    A.cols);
+        }
+        int size = terms.length;
+        FloatMatrix[] t = Arrays.copyOf(terms, size + 1);
+        boolean[] n = Arrays.copyOf(negated, size + 1);
+        t[size] = A;
+        n[size] = negate;
+        return new FloatLinearCombination(t, n);
+    }
+
+    public int rows() {
+        return terms[0].rows;
+    }
+
+    public int cols() {
+        return terms[0].cols;
+    }
+
+    public int size() {
+        return terms.length;
+    }
+
+    // The combination of the rows [row, row + rows) of the terms
+    public FloatLinearCombination rowBlock(int row, int rows) {
+        FloatMatrix[] t = new FloatMatrix[terms.length];
+        for (int i = 0; i < t.length; i++) {
+            t[i] = terms[i].rowBlock(row, rows);
+        }
+        return new FloatLinearCombination(t, negated);
+    }
+
+    FloatMatrix term(int t) {
+        return terms[t];
+    }
+
+    boolean negated(int t) {
+        return negated[t];
+    }
+
+    // A single matrix, which kernels can use as is
+    boolean plain() {
+        return terms.length == 1;
+    }
+
+    // The single term itself, or the sum in a new matrix
+    public FloatMatrix evaluate() {
+        return plain() ? terms[0] : evaluate(new FloatMatrix(rows(), cols()));
+    }
+
+    /**
+     * The single term itself, or C holding the sum. C may be the first term but no other one: every row of C is set
+     * from the first term and then the others are added in while the row is still in cache.
+     */
+    public FloatMatrix evaluate(FloatMatrix C) {
+        if (plain()) {
+            return terms[0];
+        }
+        if (C.rows != rows() || C.cols != cols()) {
+            throw new IllegalArgumentException("Cannot evaluate a " + rows() + "x" + cols() + " combination into " +
+                    C.rows + "x" + C.cols);
+        }
+
+        float[] c = C.data;
+        int cols = C.cols;
+
+        for (int i = 0; i < C.rows; i++) {
+            int iC = C.offset + i * C.stride;
+            System.arraycopy(terms[0].data, terms[0].offset + i * terms[0].stride, c, iC, cols);
+            for (int t = 1; t < terms.length; t++) {
+                float[] a = terms[t].data;
+                int iA = terms[t].offset + i * terms[t].stride;
+                if (negated[t]) {
+                    for (int j = 0; j < cols; j++) {
+                        c[iC + j] -= a[iA + j];
+                    }
+                } else {
+                    for (int j = 0; j < cols; j++) {
+                        c[iC + j] += a[iA + j];
+                    }
+                }
+            }
+        }
+        return C;
+    }
+}
@@ -0,0 +1,602 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * ForkJoin Strassen engine for {@link FloatMatrix}, mirroring {@link StrassenAlgorithmPA} with its own crossover stored
+ * under {@code parallel-float}.
+ */
+public class FloatStrassenAlgorithmPA extends FloatMatrixOperations {
+
+    // pool and granularity, see ParallelConfig
+    private final ParallelConfig config;
+    private final ForkJoinPool forkJoinPool;
+    private final int crossover;
+    private final StrassenVariant variant;
+
+    public FloatStrassenAlgorithmPA() {
+        this(StrassenCrossover.load(ElementType.FLOAT.crossoverKey("parallel")));
+    }
+
+    public FloatStrassenAlgorithmPA(int crossover) {
+        this(crossover, StrassenVariant.CLASSIC);
+    }
+
+    public FloatStrassenAlgorithmPA(int crossover, StrassenVariant variant) {
+        this(crossover, variant, ParallelConfig.defaults());
+    }
+
+    public FloatStrassenAlgorithmPA(int crossover, StrassenVariant variant, ParallelConfig config) {
+        this.crossover = Math.max(1, crossover);
+        this.variant = variant;
+        this.config = config;
+        this.forkJoinPool = config.pool();
+    }
+
+    public float[][] multiplyParallel(float[][] A, float[][] B) {
+        return multiplyParallel(FloatMatrix.of(A), FloatMatrix.of(B)).toArray();
+    }
+
+    // Memory plan of C = A * B for an m x k matrix A and a k x n matrix B on this pool, see MemoryPlanner
+    public MemoryPlanner.Plan plan(int m, int k, int n) {
+        return MemoryPlanner.parallel(m, k, n, crossover, variant, ElementType.FLOAT, config,
+                MemoryPlanner.budget());
+    }
+
+    // C = A * B for an m x k matrix A and a k x n matrix B
+    public FloatMatrix multiplyParallel(FloatMatrix A, FloatMatrix B) {
+
+        FloatMatrix C = new FloatMatrix(A.rows(), B.cols());
+        checkDimensions(A, B, C);
+
+        MemoryPlanner.Plan plan = plan(A.rows(), A.cols(), B.cols());
+        System.out.println(plan);
+
+        multiplyParallel(A, B, C, plan, sequentialEngines());
+        return C;
+    }
+
+    // C = A * B with the schedule of plan, its leaves on the given sequential engines
+    private void multiplyParallel(FloatMatrix A, FloatMatrix B, FloatMatrix C, MemoryPlanner.Plan plan,
+                                  SequentialEngines<FloatStrassenAlgorithmSA> engines) {
+        if (!plan.strassen()) {
+            multiplyClassical(A, B, C);
+            return;
+        }
+        forkJoinPool.invoke(new StrassenTask(A, B, C, 0, ForkSchedule.of(plan), engines));
+    }
+
+    // Sequential engines for the leaves of one product, dropped with their workspaces when it ends
+    private SequentialEngines<FloatStrassenAlgorithmSA> sequentialEngines() {
+        return new SequentialEngines<>(() -> new FloatStrassenAlgorithmSA(crossover, variant));
+    }
+
+    // C = A * B by the classical blocked kernel on tiles of C across the pool, see TiledMultiply
+    public FloatMatrix multiplyClassical(FloatMatrix A, FloatMatrix B) {
+        FloatMatrix C = new FloatMatrix(A.rows(), B.cols());
+        checkDimensions(A, B, C);
+        multiplyClassical(A, B, C);
+        return C;
+    }
+
+    private void multiplyClassical(FloatMatrix A, FloatMatrix B, FloatMatrix C) {
+        int k = A.cols();
+        TiledMultiply.run(config, A.rows(), k, B.cols(), (row, rows, col, cols) ->
+                multiply(A.view(row, 0, rows, k), B.view(0, col, k, cols), C.view(row, col, rows, cols)));
+    }
+
+    /**
+     * C_i = A_i * B_i for every pair of a batch of independent products. Products of at least BATCH_INNER_SIZE^3
+     * multiply-adds (see StrassenAlgorithmPA) run one after another, each forked over the whole pool. The smaller
+     * ones run whole, one per thread, on sequential engines that the whole batch shares, so their workspaces are
+     * reused from product to product. The batch is planned once for the envelope of its small products
+     * and submitted to the pool as a single task.
+     */
+    public List<FloatMatrix> multiplyBatch(List<FloatMatrix> A, List<FloatMatrix> B) {
+        if (A.size() != B.size()) {
+            throw new IllegalArgumentException("Batch has " + A.size() + " left and " + B.size() + " right operands");
+        }
+
+        List<FloatMatrix> C = new ArrayList<>(A.size());
+        List<Integer> small = new ArrayList<>();
+        List<Integer> large = new ArrayList<>();
+        long inner = (long) StrassenAlgorithmPA.BATCH_INNER_SIZE * StrassenAlgorithmPA.BATCH_INNER_SIZE
+                * StrassenAlgorithmPA.BATCH_INNER_SIZE;
+        long operands = 0;
+        // envelope of the small products
+        int m = 0, k = 0, n = 0;
+
+        for (int i = 0; i < A.size(); i++) {
+            FloatMatrix a = A.get(i), b = B.get(i);
+            FloatMatrix c = new FloatMatrix(a.rows(), b.cols());
+            checkDimensions(a, b, c);
+            C.add(c);
+            operands += (long) a.rows() * a.cols() + (long) b.rows() * b.cols() + (long) c.rows() * c.cols();
+
+            if ((long) a.rows() * a.cols() * b.cols() >= inner) {
+                large.add(i);
+            } else {
+                small.add(i);
+                m = Math.max(m, a.rows());
+                k = Math.max(k, a.cols());
+                n = Math.max(n, b.cols());
+            }
+        }
+
+        SequentialEngines<FloatStrassenAlgorithmSA> engines = sequentialEngines();
+        long budget = MemoryPlanner.budget();
+        for (int i : large) {
+            FloatMatrix a = A.get(i), b = B.get(i), c = C.get(i);
+            // the operands and results of the rest of the batch stay live next to this product
+            long others = operands - (long) a.rows() * a.cols() - (long) b.rows() * b.cols()
+                    - (long) c.rows() * c.cols();
+            multiplyParallel(a, b, c, MemoryPlanner.parallel(a.rows(), a.cols(), b.cols(), crossover, variant,
+                    ElementType.FLOAT, config, budget - others * ElementType.FLOAT.bytes()), engines);
+        }
+
+        if (!small.isEmpty()) {
+            MemoryPlanner.Plan plan = MemoryPlanner.batch(m, k, n, operands, crossover, variant, ElementType.FLOAT,
+                    config.parallelism(), budget);
+            System.out.println(plan);
+            forkJoinPool.invoke(new BatchTask(A, B, C, small, plan, engines, 0, small.size()));
+        }
+        return C;
+    }
+
+    /**
+     * The product of a chain of factors, in the order {@link MatrixChain} finds cheapest for this engine's crossover
+     * and variant. The products of the order run in rounds: a round multiplies every subproduct whose two operands
+     * are ready, as a batch when there are several, and drops the intermediates it consumed before the next round.
+     */
+    public FloatMatrix multiplyChain(List<FloatMatrix> factors) {
+        int count = factors.size();
+        int[] dims = MatrixChain.dimensions(count, i -> factors.get(i).rows(), i -> factors.get(i).cols());
+        MatrixChain.Order order = MatrixChain.order(dims, crossover, variant);
+        System.out.println(order);
+
+        // products[i][j] holds the product of factors i..j once it is formed and until it is consumed
+        FloatMatrix[][] products = new FloatMatrix[count][count];
+        for (int i = 0; i < count; i++) {
+            products[i][i] = factors.get(i);
+        }
+
+        for (int round = 1; round <= order.rounds(0, count - 1); round++) {
+            List<int[]> ready = new ArrayList<>();
+            collect(order, 0, count - 1, round, ready);
+
+            List<FloatMatrix> A = new ArrayList<>(ready.size());
+            List<FloatMatrix> B = new ArrayList<>(ready.size());
+            for (int[] r : ready) {
+                int s = order.split(r[0], r[1]);
+                A.add(products[r[0]][s]);
+                B.add(products[s + 1][r[1]]);
+                products[r[0]][s] = null;
+                products[s + 1][r[1]] = null;
+            }
+
+            // a single product gets the whole pool
+            List<FloatMatrix> C = ready.size() == 1
+                    ? List.of(multiplyParallel(A.get(0), B.get(0)))
+                    : multiplyBatch(A, B);
+            for (int r = 0; r < ready.size(); r++) {
+                products[ready.get(r)[0]][ready.get(r)[1]] = C.get(r);
+            }
+        }
+        return products[0][count - 1];
+    }
+
+    // Adds the subproducts {i, j} of factors i..j that are formed in the given round to ready
+    private static void collect(MatrixChain.Order order, int i, int j, int round, List<int[]> ready) {
+        if (i == j) return;
+        if (order.rounds(i, j) == round) {
+            ready.add(new int[] {i, j});
+            return;
+        }
+        int s = order.split(i, j);
+        collect(order, i, s, round, ready);
+        collect(order, s + 1, j, round, ready);
+    }
+
+    /**
+     * A^exponent for a square A by repeated squaring, see {@link MatrixPower}. The n x n product is planned and
+     * printed once and every squaring and product forks with that plan. The sequential engines' workspaces and at
+     * most three n x n buffers are reused throughout; the temporaries of the forked levels above the leaves (the
+     * seven products, the operand sums, the Winograd blocks and a depth-first level's product) are allocated by every
+     * product, as in multiplyParallel, and stay within the plan's peak. A^0 is the identity.
+     */
+    public FloatMatrix power(FloatMatrix A, long exponent) {
+        MatrixPower.check(A.rows(), A.cols(), exponent);
+        int n = A.rows();
+        if (exponent == 0) return FloatMatrix.of(MatrixGenerator.identity(n));
+
+        MemoryPlanner.Plan plan = plan(n, n, n);
+        System.out.println(plan);
+        SequentialEngines<FloatStrassenAlgorithmSA> engines = sequentialEngines();
+
+        return MatrixPower.power(A, exponent, () -> new FloatMatrix(n),
+                (X, Y, Z) -> multiplyParallel(X, Y, Z, plan, engines),
+                M -> {
+                    FloatMatrix C = new FloatMatrix(n);
+                    C.copyFrom(M);
+                    return C;
+                });
+    }
+
+    // Runs the small products at indices[lo:hi] of a batch, halving the range until a task holds a single product
+    private class BatchTask extends RecursiveAction {
+        private final List<FloatMatrix> A, B, C;
+        private final List<Integer> indices;
+        private final MemoryPlanner.Plan plan;
+        private final SequentialEngines<FloatStrassenAlgorithmSA> engines;
+        private final int lo, hi;
+
+        BatchTask(List<FloatMatrix> A, List<FloatMatrix> B, List<FloatMatrix> C, List<Integer> indices,
+                  MemoryPlanner.Plan plan, SequentialEngines<FloatStrassenAlgorithmSA> engines, int lo, int hi) {
+            this.A = A;
+            this.B = B;
+            this.C = C;
+            this.indices = indices;
+            this.plan = plan;
+            this.engines = engines;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo > 1) {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new BatchTask(A, B, C, indices, plan, engines, lo, mid),
+                        new BatchTask(A, B, C, indices, plan, engines, mid, hi));
+                return;
+            }
+
+            int i = indices.get(lo);
+            if (plan.strassen()) {
+                engines.run(engine -> engine.multiplySA(A.get(i), B.get(i), C.get(i), plan.leanLevels()));
+            } else {
+                multiply(A.get(i), B.get(i), C.get(i));
+            }
+        }
+    }
+
+    /**
+     * Computes C = A * B in place; quadrants of A, B and C are views into their parents. The operands may be lazy
+     * sums: a leaf packs them straight from the parent's quadrants, any other task evaluates them when it runs, so
+     * the sums of a level are formed in parallel by the tasks instead of by the parent before it forks. The schedule
+     * of the product travels with its tasks.
+     */
+    private class StrassenTask extends RecursiveAction {
+        private final FloatLinearCombination lazyA, lazyB;
+        private final FloatMatrix C;
+        private final int depth;
+        // the schedule handed down by the parent, and the one of this task once it has its grain
+        private final ForkSchedule inherited;
+        private ForkSchedule schedule;
+        // where the leaves of the product run
+        private final SequentialEngines<FloatStrassenAlgorithmSA> engines;
+        private FloatMatrix A, B;
+
+        public StrassenTask(FloatMatrix A, FloatMatrix B, FloatMatrix C, int depth, ForkSchedule schedule,
+                            SequentialEngines<FloatStrassenAlgorithmSA> engines) {
+            this(FloatLinearCombination.of(A), FloatLinearCombination.of(B), C, depth, schedule, engines);
+        }
+
+        public StrassenTask(FloatLinearCombination A, FloatLinearCombination B, FloatMatrix C, int depth,
+                            ForkSchedule schedule, SequentialEngines<FloatStrassenAlgorithmSA> engines) {
+            this.lazyA = A;
+            this.lazyB = B;
+            this.C = C;
+            this.depth = depth;
+            this.inherited = schedule;
+            this.engines = engines;
+        }
+
+        @Override
+        protected void compute() {
+            int m = lazyA.rows(), k = lazyA.cols(), n = lazyB.cols();
+            int smallest = Math.min(m, Math.min(k, n));
+            int largest = Math.max(m, Math.max(k, n));
+
+            if (smallest <= crossover) {
+                multiply(lazyA, lazyB, C);
+                return;
+            }
+
+            A = evaluate(lazyA);
+            B = evaluate(lazyB);
+
+            schedule = inherited.at(depth, config, m, k, n);
+            if (schedule.sequential(depth, (long) m * k * n)) {
+                engines.run(engine -> engine.multiplySA(A, B, C, schedule.leafLean()));
+                return;
+            }
+
+            if (largest >= 2 * smallest) {
+                computeSplit();
+                return;
+            }
+
+            if (m % 2 != 0 || k % 2 != 0 || n % 2 != 0) {
+                // dynamic peeling: Strassen on the even core, then the odd row, column and inner slice classically
+                int me = m & ~1, ke = k & ~1, ne = n & ~1;
+                new StrassenTask(A.view(0, 0, me, ke), B.view(0, 0, ke, ne), C.view(0, 0, me, ne), depth,
+                        inherited, engines).compute();
+                completePeeledInBlocks(me, ke, ne);
+                return;
+            }
+
+            if (schedule.depthFirstAt(depth)) {
+                computeDepthFirst();
+                return;
+            }
+
+            if (variant == StrassenVariant.WINOGRAD) {
+                computeWinograd();
+                return;
+            }
+
+            int mh = m / 2, nh = n / 2;
+            FloatMatrix A11 = A.quadrant(0, 0);
+            FloatMatrix A12 = A.quadrant(0, 1);
+            FloatMatrix A21 = A.quadrant(1, 0);
+            FloatMatrix A22 = A.quadrant(1, 1);
+            FloatMatrix B11 = B.quadrant(0, 0);
+            FloatMatrix B12 = B.quadrant(0, 1);
+            FloatMatrix B21 = B.quadrant(1, 0);
+            FloatMatrix B22 = B.quadrant(1, 1);
+
+            FloatMatrix m1 = new FloatMatrix(mh, nh);
+            FloatMatrix m2 = new FloatMatrix(mh, nh);
+            FloatMatrix m3 = new FloatMatrix(mh, nh);
+            FloatMatrix m4 = new FloatMatrix(mh, nh);
+            FloatMatrix m5 = new FloatMatrix(mh, nh);
+            FloatMatrix m6 = new FloatMatrix(mh, nh);
+            FloatMatrix m7 = new FloatMatrix(mh, nh);
+
+            StrassenTask M1 = new StrassenTask(FloatLinearCombination.of(A11).plus(A22),
+                    FloatLinearCombination.of(B11).plus(B22), m1, depth + 1, schedule, engines);
+            StrassenTask M2 = new StrassenTask(FloatLinearCombination.of(A21).plus(A22),
+                    FloatLinearCombination.of(B11), m2, depth + 1, schedule, engines);
+            StrassenTask M3 = new StrassenTask(FloatLinearCombination.of(A11),
+                    FloatLinearCombination.of(B12).minus(B22), m3, depth + 1, schedule, engines);
+            StrassenTask M4 = new StrassenTask(FloatLinearCombination.of(A22),
+                    FloatLinearCombination.of(B21).minus(B11), m4, depth + 1, schedule, engines);
+            StrassenTask M5 = new StrassenTask(FloatLinearCombination.of(A11).plus(A12),
+                    FloatLinearCombination.of(B22), m5, depth + 1, schedule, engines);
+            StrassenTask M6 = new StrassenTask(FloatLinearCombination.of(A21).minus(A11),
+                    FloatLinearCombination.of(B11).plus(B12), m6, depth + 1, schedule, engines);
+            StrassenTask M7 = new StrassenTask(FloatLinearCombination.of(A12).minus(A22),
+                    FloatLinearCombination.of(B21).plus(B22), m7, depth + 1, schedule, engines);
+
+            M1.fork();
+            M2.fork();
+            M3.fork();
+            M4.fork();
+            M5.fork();
+            M6.fork();
+            M7.compute();
+            M6.join();
+            M5.join();
+            M4.join();
+            M3.join();
+            M2.join();
+            M1.join();
+
+            FloatMatrix C11 = C.quadrant(0, 0);
+            FloatMatrix C12 = C.quadrant(0, 1);
+            FloatMatrix C21 = C.quadrant(1, 0);
+            FloatMatrix C22 = C.quadrant(1, 1);
+
+            RowBlocks.run(mh, 4 * nh, (row, rows) -> {
+                FloatMatrix p1 = m1.rowBlock(row, rows), p2 = m2.rowBlock(row, rows), p3 = m3.rowBlock(row, rows);
+                FloatMatrix p4 = m4.rowBlock(row, rows), p5 = m5.rowBlock(row, rows), p6 = m6.rowBlock(row, rows);
+                FloatMatrix p7 = m7.rowBlock(row, rows);
+                addSubtractAdd(p1, p4, p5, p7, C11.rowBlock(row, rows));
+                add(p3, p5, C12.rowBlock(row, rows));
+                add(p2, p4, C21.rowBlock(row, rows));
+                subtractAddAdd(p1, p2, p3, p6, C22.rowBlock(row, rows));
+            });
+        }
+
+        // The lazy operand itself if it is a single matrix, otherwise its sum, formed over row blocks at the top levels
+        private FloatMatrix evaluate(FloatLinearCombination lazy) {
+            if (lazy.size() == 1) {
+                return lazy.evaluate();
+            }
+            FloatMatrix S = new FloatMatrix(lazy.rows(), lazy.cols());
+            RowBlocks.run(S.rows(), lazy.size() * S.cols(),
+                    (row, rows) -> lazy.rowBlock(row, rows).evaluate(S.rowBlock(row, rows)));
+            return S;
+        }
+
+        // completePeeled over row blocks of the even core and column blocks of the odd row
+        private void completePeeledInBlocks(int m, int k, int n) {
+            int kA = A.cols(), nB = B.cols();
+            if (k < kA) {
+                RowBlocks.run(m, n, (row, rows) -> multiplyAdd(A.view(row, k, rows, kA - k),
+                        B.view(k, 0, kA - k, n), C.view(row, 0, rows, n)));
+            }
+            if (n < nB) {
+                RowBlocks.run(m, kA, (row, rows) -> multiply(A.view(row, 0, rows, kA), B.view(0, n, kA, nB - n),
+                        C.view(row, n, rows, nB - n)));
+            }
+            if (m < A.rows()) {
+                // a single row, so its columns are split instead
+                FloatMatrix lastA = A.view(m, 0, 1, kA), lastC = C.view(m, 0, 1, nB);
+                RowBlocks.run(nB, kA, (col, cols) -> multiply(lastA, B.view(0, col, kA, cols),
+                        lastC.view(0, col, 1, cols)));
+            }
+        }
+
+        /**
+         * One depth-first level: the seven products run one after another, each forking on the whole pool, and are
+         * folded into C as soon as they are formed, as on the sequential engine's lean schedule. The level holds a
+         * single product and the operand sums of the subproduct that runs instead of seven products and all sums.
+         */
+        private void computeDepthFirst() {
+            int mh = A.rows() / 2, nh = B.cols() / 2;
+            FloatMatrix A11 = A.quadrant(0, 0);
+            FloatMatrix A12 = A.quadrant(0, 1);
+            FloatMatrix A21 = A.quadrant(1, 0);
+            FloatMatrix A22 = A.quadrant(1, 1);
+            FloatMatrix B11 = B.quadrant(0, 0);
+            FloatMatrix B12 = B.quadrant(0, 1);
+            FloatMatrix B21 = B.quadrant(1, 0);
+            FloatMatrix B22 = B.quadrant(1, 1);
+            FloatMatrix C11 = C.quadrant(0, 0);
+            FloatMatrix C12 = C.quadrant(0, 1);
+            FloatMatrix C21 = C.quadrant(1, 0);
+            FloatMatrix C22 = C.quadrant(1, 1);
+
+            FloatMatrix M = new FloatMatrix(mh, nh);
+
+            // M1 = (A11 + A22) * (B11 + B22): C11 = M1, C22 = M1
+            product(FloatLinearCombination.of(A11).plus(A22), FloatLinearCombination.of(B11).plus(B22), C11);
+            RowBlocks.run(mh, nh, (row, rows) -> C22.rowBlock(row, rows).copyFrom(C11.rowBlock(row, rows)));
+            // M2 = (A21 + A22) * B11: C21 = M2, C22 -= M2
+            product(FloatLinearCombination.of(A21).plus(A22), FloatLinearCombination.of(B11), C21);
+            fold(C22, C21, true);
+            // M3 = A11 * (B12 - B22): C12 = M3, C22 += M3
+            product(FloatLinearCombination.of(A11), FloatLinearCombination.of(B12).minus(B22), C12);
+            fold(C22, C12, false);
+            // M4 = A22 * (B21 - B11): C11 += M4, C21 += M4
+            product(FloatLinearCombination.of(A22), FloatLinearCombination.of(B21).minus(B11), M);
+            fold(C11, M, false);
+            fold(C21, M, false);
+            // M5 = (A11 + A12) * B22: C11 -= M5, C12 += M5
+            product(FloatLinearCombination.of(A11).plus(A12), FloatLinearCombination.of(B22), M);
+            fold(C11, M, true);
+            fold(C12, M, false);
+            // M6 = (A21 - A11) * (B11 + B12): C22 += M6
+            product(FloatLinearCombination.of(A21).minus(A11), FloatLinearCombination.of(B11).plus(B12), M);
+            fold(C22, M, false);
+            // M7 = (A12 - A22) * (B21 + B22): C11 += M7
+            product(FloatLinearCombination.of(A12).minus(A22), FloatLinearCombination.of(B21).plus(B22), M);
+            fold(C11, M, false);
+        }
+
+        // L * R into M as a subproduct of this depth-first level, forking on the whole pool below it
+        private void product(FloatLinearCombination L, FloatLinearCombination R, FloatMatrix M) {
+            new StrassenTask(L, R, M, depth + 1, schedule, engines).compute();
+        }
+
+        // Z += X, or Z -= X when negate, over row blocks
+        private void fold(FloatMatrix Z, FloatMatrix X, boolean negate) {
+            RowBlocks.run(Z.rows(), Z.cols(), (row, rows) -> {
+                FloatMatrix z = Z.rowBlock(row, rows);
+                if (negate) {
+                    subtract(z, X.rowBlock(row, rows), z);
+                } else {
+                    add(z, X.rowBlock(row, rows), z);
+                }
+            });
+        }
+
+        // Halves the largest dimension and runs both halves concurrently, or one after the other on a depth-first
+        // level
+        private void computeSplit() {
+            int m = A.rows(), k = A.cols(), n = B.cols();
+
+            if (m >= k && m >= n) {
+                int top = (m + 1) / 2;
+                both(new StrassenTask(A.view(0, 0, top, k), B, C.view(0, 0, top, n), depth + 1, schedule, engines),
+                        new StrassenTask(A.view(top, 0, m - top, k), B, C.view(top, 0, m - top, n), depth + 1,
+                                schedule, engines));
+            } else if (n >= k) {
+                int left = (n + 1) / 2;
+                both(new StrassenTask(A, B.view(0, 0, k, left), C.view(0, 0, m, left), depth + 1, schedule, engines),
+                        new StrassenTask(A, B.view(0, left, k, n - left), C.view(0, left, m, n - left),
+                                depth + 1, schedule, engines));
+            } else {
+                // C = A1 * B1 + A2 * B2 over the two halves of the inner dimension
+                int front = (k + 1) / 2;
+                FloatMatrix T = new FloatMatrix(m, n);
+                both(new StrassenTask(A.view(0, 0, m, front), B.view(0, 0, front, n), C, depth + 1, schedule, engines),
+                        new StrassenTask(A.view(0, front, m, k - front), B.view(front, 0, k - front, n),
+                                T, depth + 1, schedule, engines));
+                RowBlocks.run(m, n, (row, rows) -> add(C.rowBlock(row, rows), T.rowBlock(row, rows),
+                        C.rowBlock(row, rows)));
+            }
+        }
+
+        private void both(StrassenTask first, StrassenTask second) {
+            if (schedule.depthFirstAt(depth)) {
+                first.compute();
+                second.compute();
+            } else {
+                invokeAll(first, second);
+            }
+        }
+
+        private void computeWinograd() {
+            int mh = A.rows() / 2, kh = A.cols() / 2, nh = B.cols() / 2;
+            FloatMatrix A11 = A.quadrant(0, 0);
+            FloatMatrix A12 = A.quadrant(0, 1);
+            FloatMatrix A21 = A.quadrant(1, 0);
+            FloatMatrix A22 = A.quadrant(1, 1);
+            FloatMatrix B11 = B.quadrant(0, 0);
+            FloatMatrix B12 = B.quadrant(0, 1);
+            FloatMatrix B21 = B.quadrant(1, 0);
+            FloatMatrix B22 = B.quadrant(1, 1);
+
+            FloatMatrix S1 = new FloatMatrix(mh, kh), S2 = new FloatMatrix(mh, kh), S3 = new FloatMatrix(mh, kh), S4 = new FloatMatrix(mh, kh);
+            FloatMatrix T1 = new FloatMatrix(kh, nh), T2 = new FloatMatrix(kh, nh), T3 = new FloatMatrix(kh, nh), T4 = new FloatMatrix(kh, nh);
+            RowBlocks.run(mh, 4 * kh, (row, rows) -> {
+                FloatMatrix a11 = A11.rowBlock(row, rows), a12 = A12.rowBlock(row, rows);
+                FloatMatrix a21 = A21.rowBlock(row, rows), a22 = A22.rowBlock(row, rows);
+                FloatMatrix s1 = S1.rowBlock(row, rows), s2 = S2.rowBlock(row, rows);
+                add(a21, a22, s1);
+                subtract(s1, a11, s2);
+                subtract(a11, a21, S3.rowBlock(row, rows));
+                subtract(a12, s2, S4.rowBlock(row, rows));
+            });
+            RowBlocks.run(kh, 4 * nh, (row, rows) -> {
+                FloatMatrix b11 = B11.rowBlock(row, rows), b12 = B12.rowBlock(row, rows);
+                FloatMatrix b21 = B21.rowBlock(row, rows), b22 = B22.rowBlock(row, rows);
+                FloatMatrix t1 = T1.rowBlock(row, rows), t2 = T2.rowBlock(row, rows);
+                subtract(b12, b11, t1);
+                subtract(b22, t1, t2);
+                subtract(b22, b12, T3.rowBlock(row, rows));
+                subtract(t2, b21, T4.rowBlock(row, rows));
+            });
+
+            FloatMatrix m1 = new FloatMatrix(mh, nh);
+            FloatMatrix m2 = new FloatMatrix(mh, nh);
+            FloatMatrix m3 = new FloatMatrix(mh, nh);
+            FloatMatrix m4 = new FloatMatrix(mh, nh);
+            FloatMatrix m5 = new FloatMatrix(mh, nh);
+            FloatMatrix m6 = new FloatMatrix(mh, nh);
+            FloatMatrix m7 = new FloatMatrix(mh, nh);
+
+            StrassenTask M1 = new StrassenTask(A11, B11, m1, depth + 1, schedule, engines);
+            StrassenTask M2 = new StrassenTask(A12, B21, m2, depth + 1, schedule, engines);
+            StrassenTask M3 = new StrassenTask(S4, B22, m3, depth + 1, schedule, engines);
+            StrassenTask M4 = new StrassenTask(A22, T4, m4, depth + 1, schedule, engines);
+            StrassenTask M5 = new StrassenTask(S1, T1, m5, depth + 1, schedule, engines);
+            StrassenTask M6 = new StrassenTask(S2, T2, m6, depth + 1, schedule, engines);
+            StrassenTask M7 = new StrassenTask(S3, T3, m7, depth + 1, schedule, engines);
+
+            invokeAll(M1, M2, M3, M4, M5, M6, M7);
+
+            FloatMatrix C11 = C.quadrant(0, 0);
+            FloatMatrix C12 = C.quadrant(0, 1);
+            FloatMatrix C21 = C.quadrant(1, 0);
+            FloatMatrix C22 = C.quadrant(1, 1);
+
+            RowBlocks.run(mh, 4 * nh, (row, rows) -> {
+                FloatMatrix p1 = m1.rowBlock(row, rows), p2 = m2.rowBlock(row, rows), p3 = m3.rowBlock(row, rows);
+                FloatMatrix p4 = m4.rowBlock(row, rows), p5 = m5.rowBlock(row, rows), p6 = m6.rowBlock(row, rows);
+                FloatMatrix p7 = m7.rowBlock(row, rows);
+                add(p1, p2, C11.rowBlock(row, rows));
+                add(p1, p6, p6);
+                add(p6, p7, p7);
+                add(p6, p5, p6);
+                add(p6, p3, C12.rowBlock(row, rows));
+                subtract(p7, p4, C21.rowBlock(row, rows));
+                add(p7, p5, C22.rowBlock(row, rows));
+            });
+        }
+    }
+}
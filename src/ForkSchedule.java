@@ -0,0 +1,32 @@
+/**
+ * The fork schedule of one product on the parallel engines, taken from its {@link MemoryPlanner.Plan}.
+ * <p>
+ * Forking stops at maxDepth, the top depthFirst forked levels run their subproducts one after another, and the
+ * sequential engines below maxDepth run leafLean levels on the lean schedule. Below the depth-first levels a task
+ * whose multiply-adds fall short of the grain runs sequentially; the grain is set at the root of every breadth-first
+ * subtree, see {@link #at}. A schedule is immutable and travels with the tasks of its product, so products that run
+ * concurrently on one engine never see each other's schedule.
+ */
+public record ForkSchedule(int maxDepth, int depthFirst, int leafLean, long grain) {
+
+    // The schedule of a product planned as plan; its grain is set once the recursion reaches depthFirst
+    public static ForkSchedule of(MemoryPlanner.Plan plan) {
+        return new ForkSchedule(plan.depth(), plan.depthFirst(), plan.leanLevels(), 0);
+    }
+
+    // The schedule of an m x k by k x n task at depth: a breadth-first root takes its grain from config
+    public ForkSchedule at(int depth, ParallelConfig config, int m, int k, int n) {
+        if (depth != depthFirst) return this;
+        return new ForkSchedule(maxDepth, depthFirst, leafLean, config.grain(m, k, n));
+    }
+
+    // Whether a task at depth with the given multiply-adds runs on a sequential engine
+    public boolean sequential(int depth, long multiplyAdds) {
+        return depth >= maxDepth || depth >= depthFirst && multiplyAdds < grain;
+    }
+
+    // Whether a level at depth runs its subproducts one after another
+    public boolean depthFirstAt(int depth) {
+        return depth < depthFirst;
+    }
+}
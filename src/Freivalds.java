@@ -0,0 +1,185 @@
+import java.util.SplittableRandom;
+
+/**
+ * Freivalds' probabilistic check of a product C = A * B in O(mk + kn + mn) time.
+ * <p>
+ * Each round draws a random 0/1 vector r and compares A * (B * r) with C * r. A wrong C passes a round with probability
+ * at most 1/2, so it passes all rounds with probability at most 2^-rounds. Int and long products are compared exactly
+ * in wrapping arithmetic, which overflows the same way as the engines do. Float and double products are compared up to
+ * a tolerance of 32 sqrt(max(k, n)) units in the last place of the largest entry of |A| * (|B| * r), far below the
+ * error of a wrong block.
+ * <p>
+ * The benchmarks and main methods verify their results when started with {@code -Dstrassen.verify=<rounds>}, after the
+ * clock has stopped.
+ */
+public class Freivalds {
+
+    // rounds of the opt-in check of -Dstrassen.verify, 0 (the default) turns it off
+    public static final int ROUNDS = Integer.getInteger("strassen.verify", 0);
+
+    private static final double TOLERANCE = 32;
+
+    interface LongEntries {
+        long get(int i, int j);
+    }
+
+    interface DoubleEntries {
+        double get(int i, int j);
+    }
+
+    public static boolean enabled() {
+        return ROUNDS > 0;
+    }
+
+    public static boolean verify(Matrix A, Matrix B, Matrix C, int rounds) {
+        checkDimensions(A.rows(), A.cols(), B.rows(), B.cols(), C.rows(), C.cols());
+        return exact(A.rows(), A.cols(), B.cols(), A::get, B::get, C::get, 0xFFFFFFFFL, rounds);
+    }
+
+    public static boolean verify(OffHeapMatrix A, OffHeapMatrix B, OffHeapMatrix C, int rounds) {
+        checkDimensions(A.rows(), A.cols(), B.rows(), B.cols(), C.rows(), C.cols());
+        return exact(A.rows(), A.cols(), B.cols(), A::get, B::get, C::get, 0xFFFFFFFFL, rounds);
+    }
+
+    public static boolean verify(LongMatrix A, LongMatrix B, LongMatrix C, int rounds) {
+        checkDimensions(A.rows(), A.cols(), B.rows(), B.cols(), C.rows(), C.cols());
+        return exact(A.rows(), A.cols(), B.cols(), A::get, B::get, C::get, -1L, rounds);
+    }
+
+    public static boolean verify(FloatMatrix A, FloatMatrix B, FloatMatrix C, int rounds) {
+        checkDimensions(A.rows(), A.cols(), B.rows(), B.cols(), C.rows(), C.cols());
+        return approximate(A.rows(), A.cols(), B.cols(), A::get, B::get, C::get, Math.ulp(1.0f), rounds);
+    }
+
+    public static boolean verify(DoubleMatrix A, DoubleMatrix B, DoubleMatrix C, int rounds) {
+        checkDimensions(A.rows(), A.cols(), B.rows(), B.cols(), C.rows(), C.cols());
+        return approximate(A.rows(), A.cols(), B.cols(), A::get, B::get, C::get, Math.ulp(1.0), rounds);
+    }
+
+    // The opt-in check: with -Dstrassen.verify=<rounds> verifies C and prints the outcome, otherwise passes
+    public static boolean report(Matrix A, Matrix B, Matrix C) {
+        return !enabled() || print(verify(A, B, C, ROUNDS));
+    }
+
+    public static boolean report(int[][] A, int[][] B, int[][] C) {
+        return !enabled() || print(verify(Matrix.of(A), Matrix.of(B), Matrix.of(C), ROUNDS));
+    }
+
+    public static boolean report(OffHeapMatrix A, OffHeapMatrix B, OffHeapMatrix C) {
+        return !enabled() || print(verify(A, B, C, ROUNDS));
+    }
+
+    public static boolean report(LongMatrix A, LongMatrix B, LongMatrix C) {
+        return !enabled() || print(verify(A, B, C, ROUNDS));
+    }
+
+    public static boolean report(FloatMatrix A, FloatMatrix B, FloatMatrix C) {
+        return !enabled() || print(verify(A, B, C, ROUNDS));
+    }
+
+    public static boolean report(DoubleMatrix A, DoubleMatrix B, DoubleMatrix C) {
+        return !enabled() || print(verify(A, B, C, ROUNDS));
+    }
+
+    private static boolean print(boolean passed) {
+        System.out.println("Freivalds check (" + ROUNDS + " round" + (ROUNDS == 1 ? "" : "s") + "): "
+                + (passed ? "passed" : "FAILED, C != A * B"));
+        return passed;
+    }
+
+    private static void checkDimensions(int aRows, int aCols, int bRows, int bCols, int cRows, int cCols) {
+        if (aCols != bRows || cRows != aRows || cCols != bCols) {
+            throw new IllegalArgumentException("Cannot verify " + aRows + "x" + aCols + " by " + bRows + "x" + bCols
+                    + " against " + cRows + "x" + cCols);
+        }
+    }
+
+    // Compares A * (B * r) with C * r modulo 2^64, masked to the bits of the element type
+    private static boolean exact(int m, int k, int n, LongEntries A, LongEntries B, LongEntries C, long mask,
+                                 int rounds) {
+        SplittableRandom random = new SplittableRandom();
+        boolean[] r = new boolean[n];
+        long[] Br = new long[k];
+
+        for (int round = 0; round < rounds; round++) {
+            for (int j = 0; j < n; j++) {
+                r[j] = random.nextBoolean();
+            }
+
+            for (int p = 0; p < k; p++) {
+                long sum = 0;
+                for (int j = 0; j < n; j++) {
+                    if (r[j]) sum += B.get(p, j);
+                }
+                Br[p] = sum;
+            }
+
+            for (int i = 0; i < m; i++) {
+                long ABr = 0, Cr = 0;
+                for (int p = 0; p < k; p++) {
+                    ABr += A.get(i, p) * Br[p];
+                }
+                for (int j = 0; j < n; j++) {
+                    if (r[j]) Cr += C.get(i, j);
+                }
+                if ((ABr & mask) != (Cr & mask)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    // Compares A * (B * r) with C * r up to TOLERANCE sqrt(max(k, n)) ulp of the largest entry of |A| * (|B| * r)
+    private static boolean approximate(int m, int k, int n, DoubleEntries A, DoubleEntries B, DoubleEntries C,
+                                       double ulp, int rounds) {
+        SplittableRandom random = new SplittableRandom();
+        boolean[] r = new boolean[n];
+        double[] Br = new double[k], absBr = new double[k];
+        double[] ABr = new double[m], Cr = new double[m];
+
+        for (int round = 0; round < rounds; round++) {
+            for (int j = 0; j < n; j++) {
+                r[j] = random.nextBoolean();
+            }
+
+            for (int p = 0; p < k; p++) {
+                double sum = 0, abs = 0;
+                for (int j = 0; j < n; j++) {
+                    if (r[j]) {
+                        double b = B.get(p, j);
+                        sum += b;
+                        abs += Math.abs(b);
+                    }
+                }
+                Br[p] = sum;
+                absBr[p] = abs;
+            }
+
+            double scale = 0;
+            for (int i = 0; i < m; i++) {
+                double product = 0, abs = 0, c = 0;
+                for (int p = 0; p < k; p++) {
+                    double a = A.get(i, p);
+                    product += a * Br[p];
+                    abs += Math.abs(a) * absBr[p];
+                }
+                for (int j = 0; j < n; j++) {
+                    if (r[j]) c += C.get(i, j);
+                }
+                ABr[i] = product;
+                Cr[i] = c;
+                scale = Math.max(scale, abs);
+            }
+
+            double tolerance = TOLERANCE * Math.sqrt(Math.max(k, n)) * ulp * scale;
+            for (int i = 0; i < m; i++) {
+                // also rejects NaN
+                if (!(Math.abs(ABr[i] - Cr[i]) <= tolerance)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
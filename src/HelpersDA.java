@@ -1,22 +1,23 @@
 interface HelpersDA {
 
     public static int[] flatten(int[][] matrix) {
-        int n = matrix.length;
-        int[] flat = new int[n * n];
-        for (int i = 0; i < n; i++) {
-            for (int j = 0; j < n; j++) {
-                flat[i * n + j] = matrix[i][j];
-            }
+        int rows = matrix.length;
+        int cols = rows == 0 ? 0 : matrix[0].length;
+        int[] flat = new int[rows * cols];
+        for (int i = 0; i < rows; i++) {
+            System.arraycopy(matrix[i], 0, flat, i * cols, cols);
         }
         return flat;
     }
 
     public static int[][] unflatten(int[] flat, int n) {
-        int[][] matrix = new int[n][n];
-        for (int i = 0; i < n; i++) {
-            for (int j = 0; j < n; j++) {
-                matrix[i][j] = flat[i * n + j];
-            }
+        return unflatten(flat, n, n);
+    }
+
+    public static int[][] unflatten(int[] flat, int rows, int cols) {
+        int[][] matrix = new int[rows][cols];
+        for (int i = 0; i < rows; i++) {
+            System.arraycopy(flat, i * cols, matrix[i], 0, cols);
         }
         return matrix;
     }
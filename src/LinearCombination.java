@@ -0,0 +1,127 @@
+import java.util.Arrays;
+
+/**
+ * A lazy operand: a sum of equally shaped int matrices with coefficients +1 and -1, such as A11 + A22 or
+ * M1 + M4 - M5 + M7.
+ * <p>
+ * Building a combination only records its terms. {@link #evaluate(Matrix)} writes the sum row by row in a single
+ * sweep with no intermediate matrices, and the blocked kernel packs a combination directly, so a Strassen sum that
+ * feeds a leaf product is never stored at all. The first term always has coefficient +1.
+ */
+public final class LinearCombination {
+
+    private final Matrix[] terms;
+    private final boolean[] negated;
+
+    private LinearCombination(Matrix[] terms, boolean[] negated) {
+        this.terms = terms;
+        this.negated = negated;
+    }
+
+    public static LinearCombination of(Matrix A) {
+        return new LinearCombination(new Matrix[]{A}, new boolean[1]);
+    }
+
+    // this + A
+    public LinearCombination plus(Matrix A) {
+        return append(A, false);
+    }
+
+    // this - A
+    public LinearCombination minus(Matrix A) {
+        return append(A, true);
+    }
+
+    private LinearCombination append(Matrix A, boolean negate) {
+        if (A.rows != rows() || A.cols != cols()) {
+            throw new IllegalArgumentException("Cannot combine " + rows() + "x" + cols() + " with " + A.rows + "x" +
+                    A.cols);
+        }
+        int size = terms.length;
+        Matrix[] t = Arrays.copyOf(terms, size + 1);
+        boolean[] n = Arrays.copyOf(negated, size + 1);
+        t[size] = A;
+        n[size] = negate;
+        return new LinearCombination(t, n);
+    }
+
+    public int rows() {
+        return terms[0].rows;
+    }
+
+    public int cols() {
+        return terms[0].cols;
+    }
+
+    public int size() {
+        return terms.length;
+    }
+
+    // The combination of the rows [row, row + rows) of the terms
+    public LinearCombination rowBlock(int row, int rows) {
+        Matrix[] t = new Matrix[terms.length];
+        for (int i = 0; i < t.length; i++) {
+            t[i] = terms[i].rowBlock(row, rows);
+        }
+        return new LinearCombination(t, negated);
+    }
+
+    Matrix term(int t) {
+        return terms[t];
+    }
+
+    boolean negated(int t) {
+        return negated[t];
+    }
+
+    // A single matrix, which kernels can use as is
+    boolean plain() {
+        return terms.length == 1;
+    }
+
+    // The single term itself, or the sum in a new matrix
+    public Matrix evaluate() {
+        return plain() ? terms[0] : evaluate(new Matrix(rows(), cols()));
+    }
+
+    /**
+     * The single term itself, or C holding the sum. C may be the first term but no other one: every row of C is set
+     * from the first term and then the others are added in while the row is still in cache.
+     */
+    public Matrix evaluate(Matrix C) {
+        if (plain()) {
+            return terms[0];
+        }
+        if (C.rows != rows() || C.cols != cols()) {
+            throw new IllegalArgumentException("Cannot evaluate a " + rows() + "x" + cols() + " combination into " +
+                    C.rows + "x" + C.cols);
+        }
+
+        if (MatrixOperations.VECTORIZED) {
+            VectorOperations.evaluate(this, C);
+            return C;
+        }
+
+        int[] c = C.data;
+        int cols = C.cols;
+
+        for (int i = 0; i < C.rows; i++) {
+            int iC = C.offset + i * C.stride;
+            System.arraycopy(terms[0].data, terms[0].offset + i * terms[0].stride, c, iC, cols);
+            for (int t = 1; t < terms.length; t++) {
+                int[] a = terms[t].data;
+                int iA = terms[t].offset + i * terms[t].stride;
+                if (negated[t]) {
+                    for (int j = 0; j < cols; j++) {
+                        c[iC + j] -= a[iA + j];
+                    }
+                } else {
+                    for (int j = 0; j < cols; j++) {
+                        c[iC + j] += a[iA + j];
+                    }
+                }
+            }
+        }
+        return C;
+    }
+}
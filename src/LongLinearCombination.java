@@ -0,0 +1,118 @@
+import java.util.Arrays;
+
+/**
+ * {@link LinearCombination} for {@link LongMatrix}: a lazy sum of equally shaped matrices with coefficients +1 and
+ * -1, evaluated in one row-by-row sweep or packed directly by the classical kernel of {@link LongMatrixOperations}.
+ */
+public final class LongLinearCombination {
+
+    private final LongMatrix[] terms;
+    private final boolean[] negated;
+
+    private LongLinearCombination(LongMatrix[] terms, boolean[] negated) {
+        this.terms = terms;
+        this.negated = negated;
+    }
+
+    public static LongLinearCombination of(LongMatrix A) {
+        return new LongLinearCombination(new LongMatrix[]{A}, new boolean[1]);
+    }
+
+    // this + A
+    public LongLinearCombination plus(LongMatrix A) {
+        return append(A, false);
+    }
+
+    // this - A
+    public LongLinearCombination minus(LongMatrix A) {
+        return append(A, true);
+    }
+
+    private LongLinearCombination append(LongMatrix A, boolean negate) {
+        if (A.rows != rows() || A.cols != cols()) {
+            throw new IllegalArgumentException("Cannot combine " + rows() + "x" + cols() + " with " + A.rows + "x" +
+                    A.cols);
+        }
+        int size = terms.length;
+        LongMatrix[] t = Arrays.copyOf(terms, size + 1);
+        boolean[] n = Arrays.copyOf(negated, size + 1);
+        t[size] = A;
+        n[size] = negate;
+        return new LongLinearCombination(t, n);
+    }
+
+    public int rows() {
+        return terms[0].rows;
+    }
+
+    public int cols() {
+        return terms[0].cols;
+    }
+
+    public int size() {
+        return terms.length;
+    }
+
+    // The combination of the rows [row, row + rows) of the terms
+    public LongLinearCombination rowBlock(int row, int rows) {
+        LongMatrix[] t = new LongMatrix[terms.length];
+        for (int i = 0; i < t.length; i++) {
+            t[i] = terms[i].rowBlock(row, rows);
+        }
+        return new LongLinearCombination(t, negated);
+    }
+
+    LongMatrix term(int t) {
+        return terms[t];
+    }
+
+    boolean negated(int t) {
+        return negated[t];
+    }
+
+    // A single matrix, which kernels can use as is
+    boolean plain() {
+        return terms.length == 1;
+    }
+
+    // The single term itself, or the sum in a new matrix
+    public LongMatrix evaluate() {
+        return plain() ? terms[0] : evaluate(new LongMatrix(rows(), cols()));
+    }
+
+    /**
+     * The single term itself, or C holding the sum. C may be the first term but no other one: every row of C is set
+     * from the first term and then the others are added in while the row is still in cache.
+     */
+    public LongMatrix evaluate(LongMatrix C) {
+        if (plain()) {
+            return terms[0];
+        }
+        if (C.rows != rows() || C.cols != cols()) {
+            throw new IllegalArgumentException("Cannot evaluate a " + rows() + "x" + cols() + " combination into " +
+                    C.rows + "x" + C.cols);
+        }
+
+        long[] c = C.data;
+        int cols = C.cols;
+
+        for (int i = 0; i < C.rows; i++) {
+            int iC = C.offset + i * C.stride;
+            System.arraycopy(terms[0].data, terms[0].offset + i * terms[0].stride, c, iC, cols);
+            for (int t = 1; t < terms.length; t++) {
+                long[] a = terms[t].data;
+                int iA = terms[t].offset + i * terms[t].stride;
+                if (negated[t]) {
+                    for (int j = 0; j < cols; j++) {
+                        c[iC + j] -= a[iA + j];
+                    }
+                } else {
+                    for (int j = 0; j < cols; j++) {
+                        c[iC + j] += a[iA + j];
+                    }
+                }
+            }
+        }
+        return C;
+    }
+}
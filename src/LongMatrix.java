@@ -0,0 +1,123 @@
+import java.util.Arrays;
+
+/**
+ * Row-major long matrix backed by a single flat array, the long counterpart of {@link Matrix}.
+ * <p>
+ * Sub-blocks are views that share storage with their parent, exactly as for int matrices.
+ */
+public class LongMatrix {
+
+    final long[] data;
+    final int offset;
+    final int stride;
+    final int rows;
+    final int cols;
+
+    public LongMatrix(int rows, int cols) {
+        this(new long[Math.multiplyExact(rows, cols)], 0, cols, rows, cols);
+    }
+
+    public LongMatrix(int n) {
+        this(n, n);
+    }
+
+    LongMatrix(long[] data, int offset, int stride, int rows, int cols) {
+        this.data = data;
+        this.offset = offset;
+        this.stride = stride;
+        this.rows = rows;
+        this.cols = cols;
+    }
+
+    public static LongMatrix of(long[][] A) {
+        int rows = A.length;
+        int cols = rows == 0 ? 0 : A[0].length;
+        LongMatrix M = new LongMatrix(rows, cols);
+
+        for (int i = 0; i < rows; i++) {
+            System.arraycopy(A[i], 0, M.data, i * cols, cols);
+        }
+
+        return M;
+    }
+
+    // Widens an int matrix, e.g. to run the same benchmark input through every element type
+    public static LongMatrix of(Matrix A) {
+        LongMatrix M = new LongMatrix(A.rows, A.cols);
+
+        for (int i = 0; i < A.rows; i++) {
+            int iA = A.offset + i * A.stride;
+            int iM = i * M.cols;
+            for (int j = 0; j < A.cols; j++) {
+                M.data[iM + j] = A.data[iA + j];
+            }
+        }
+
+        return M;
+    }
+
+    public long[][] toArray() {
+        long[][] A = new long[rows][cols];
+
+        for (int i = 0; i < rows; i++) {
+            System.arraycopy(data, offset + i * stride, A[i], 0, cols);
+        }
+
+        return A;
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public int cols() {
+        return cols;
+    }
+
+    public long get(int i, int j) {
+        return data[offset + i * stride + j];
+    }
+
+    public void set(int i, int j, long value) {
+        data[offset + i * stride + j] = value;
+    }
+
+    /**
+     * Returns a view of the {@code rows x cols} block starting at ({@code row}, {@code col}).
+     * Writes through the view are visible in this matrix.
+     */
+    public LongMatrix view(int row, int col, int rows, int cols) {
+        if (row < 0 || col < 0 || rows < 0 || cols < 0 || row + rows > this.rows || col + cols > this.cols) {
+            throw new IndexOutOfBoundsException("View " + rows + "x" + cols + " at (" + row + ", " + col +
+                    ") outside " + this.rows + "x" + this.cols + " matrix");
+        }
+        return new LongMatrix(data, offset + row * stride + col, stride, rows, cols);
+    }
+
+    /**
+     * Returns quadrant ({@code qi}, {@code qj}) of a matrix with even dimensions, e.g. (0, 1) is X12.
+     */
+    public LongMatrix quadrant(int qi, int qj) {
+        int h = rows / 2;
+        int w = cols / 2;
+        return view(qi * h, qj * w, h, w);
+    }
+
+    // Returns a view of the rows [row, row + rows) of this matrix
+    public LongMatrix rowBlock(int row, int rows) {
+        return view(row, 0, rows, cols);
+    }
+
+    public void fill(long value) {
+        for (int i = 0; i < rows; i++) {
+            int row = offset + i * stride;
+            Arrays.fill(data, row, row + cols, value);
+        }
+    }
+
+    public void copyFrom(LongMatrix A) {
+        for (int i = 0; i < rows; i++) {
+            System.arraycopy(A.data, A.offset + i * A.stride, data, offset + i * stride, cols);
+        }
+    }
+}
@@ -0,0 +1,381 @@
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * {@link MatrixOperations} for {@link LongMatrix}. The element-wise passes and the classical kernel are written out for
+ * long, so nothing is boxed; the kernel uses the blocking and 4 x 4 register tile of {@link BlockedMultiply}.
+ */
+public class LongMatrixOperations {
+
+    private static final int MR = BlockedMultiply.MR;
+    private static final int NR = BlockedMultiply.NR;
+    private static final int MC = BlockedMultiply.MC;
+    private static final int KC = BlockedMultiply.KC;
+    private static final int NC = BlockedMultiply.NC;
+
+    private static final ThreadLocal<long[]> packedA = ThreadLocal.withInitial(() -> new long[MC * KC]);
+    private static final ThreadLocal<long[]> packedB = ThreadLocal.withInitial(() -> new long[KC * NC]);
+
+    public static LongMatrix create(int n) {
+        return create(n, n);
+    }
+
+    public static LongMatrix create(int rows, int cols) {
+        return create(rows, cols, ThreadLocalRandom.current().nextLong());
+    }
+
+    // Entries from 1 to 10, filled in parallel; the same seed gives the same entries as MatrixOperations.create
+    public static LongMatrix create(int rows, int cols, long seed) {
+
+        LongMatrix R = new LongMatrix(rows, cols);
+
+        MatrixGenerator.fillRows(rows, seed, (i, random) -> {
+            for (int j = 0; j < cols; j++) {
+                R.data[i * cols + j] = random.nextInt(1, 11);
+            }
+        });
+
+        return R;
+    }
+
+    public LongMatrix add(LongMatrix A, LongMatrix B) {
+        LongMatrix C = new LongMatrix(A.rows, A.cols);
+        add(A, B, C);
+        return C;
+    }
+
+    // C = A + B, C may alias A or B
+    public void add(LongMatrix A, LongMatrix B, LongMatrix C) {
+        long[] a = A.data, b = B.data, c = C.data;
+
+        for (int i = 0; i < C.rows; i++) {
+            int iA = A.offset + i * A.stride;
+            int iB = B.offset + i * B.stride;
+            int iC = C.offset + i * C.stride;
+            for (int j = 0; j < C.cols; j++) {
+                c[iC + j] = a[iA + j] + b[iB + j];
+            }
+        }
+    }
+
+    public LongMatrix subtract(LongMatrix A, LongMatrix B) {
+        LongMatrix C = new LongMatrix(A.rows, A.cols);
+        subtract(A, B, C);
+        return C;
+    }
+
+    // C = A - B, C may alias A or B
+    public void subtract(LongMatrix A, LongMatrix B, LongMatrix C) {
+        long[] a = A.data, b = B.data, c = C.data;
+
+        for (int i = 0; i < C.rows; i++) {
+            int iA = A.offset + i * A.stride;
+            int iB = B.offset + i * B.stride;
+            int iC = C.offset + i * C.stride;
+            for (int j = 0; j < C.cols; j++) {
+                c[iC + j] = a[iA + j] - b[iB + j];
+            }
+        }
+    }
+
+    // C = W + X - Y + Z in one pass (C11 = M1 + M4 - M5 + M7), C may alias any operand
+    public void addSubtractAdd(LongMatrix W, LongMatrix X, LongMatrix Y, LongMatrix Z, LongMatrix C) {
+        long[] w = W.data, x = X.data, y = Y.data, z = Z.data, c = C.data;
+
+        for (int i = 0; i < C.rows; i++) {
+            int iW = W.offset + i * W.stride;
+            int iX = X.offset + i * X.stride;
+            int iY = Y.offset + i * Y.stride;
+            int iZ = Z.offset + i * Z.stride;
+            int iC = C.offset + i * C.stride;
+            for (int j = 0; j < C.cols; j++) {
+                c[iC + j] = w[iW + j] + x[iX + j] - y[iY + j] + z[iZ + j];
+            }
+        }
+    }
+
+    // C = W - X + Y + Z in one pass (C22 = M1 - M2 + M3 + M6), C may alias any operand
+    public void subtractAddAdd(LongMatrix W, LongMatrix X, LongMatrix Y, LongMatrix Z, LongMatrix C) {
+        long[] w = W.data, x = X.data, y = Y.data, z = Z.data, c = C.data;
+
+        for (int i = 0; i < C.rows; i++) {
+            int iW = W.offset + i * W.stride;
+            int iX = X.offset + i * X.stride;
+            int iY = Y.offset + i * Y.stride;
+            int iZ = Z.offset + i * Z.stride;
+            int iC = C.offset + i * C.stride;
+            for (int j = 0; j < C.cols; j++) {
+                c[iC + j] = w[iW + j] - x[iX + j] + y[iY + j] + z[iZ + j];
+            }
+        }
+    }
+
+    // Rejects operands whose shapes do not form the product C = A * B
+    public static void checkDimensions(LongMatrix A, LongMatrix B, LongMatrix C) {
+        if (A.cols != B.rows || C.rows != A.rows || C.cols != B.cols) {
+            throw new IllegalArgumentException("Cannot multiply " + A.rows + "x" + A.cols + " by " + B.rows + "x" +
+                    B.cols + " into " + C.rows + "x" + C.cols);
+        }
+    }
+
+    public static LongMatrix multiply(LongMatrix A, LongMatrix B) {
+        LongMatrix C = new LongMatrix(A.rows, B.cols);
+        multiply(A, B, C);
+        return C;
+    }
+
+    // C = A * B, C must not alias A or B
+    public static void multiply(LongMatrix A, LongMatrix B, LongMatrix C) {
+        C.fill(0);
+        multiplyAdd(A, B, C);
+    }
+
+    // C += A * B, C must not alias A or B
+    public static void multiplyAdd(LongMatrix A, LongMatrix B, LongMatrix C) {
+        multiplyAdd(LongLinearCombination.of(A), LongLinearCombination.of(B), C);
+    }
+
+    // C = A * B for lazy operands, e.g. (A11 + A22) * (B11 + B22) without storing either sum
+    public static void multiply(LongLinearCombination A, LongLinearCombination B, LongMatrix C) {
+        C.fill(0);
+        multiplyAdd(A, B, C);
+    }
+
+    // C += A * B with the operand sums formed while packing, C must not alias a term of A or B
+    public static void multiplyAdd(LongLinearCombination A, LongLinearCombination B, LongMatrix C) {
+        int m = A.rows(), k = A.cols(), n = B.cols();
+        if (m == 0 || n == 0 || k == 0) return;
+
+        // peeled rows and columns are too thin to fill a micro-tile
+        if ((long) m * n * k <= BlockedMultiply.SMALL_PRODUCT || m < MR || n < NR) {
+            if (A.plain() && B.plain()) {
+                multiplyAddSmall(A.term(0), B.term(0), C);
+            } else {
+                multiplyAddSmall(A, B, C);
+            }
+            return;
+        }
+
+        long[] Ap = packedA.get();
+        long[] Bp = packedB.get();
+
+        for (int jc = 0; jc < n; jc += NC) {
+            int nc = Math.min(NC, n - jc);
+            for (int pc = 0; pc < k; pc += KC) {
+                int kc = Math.min(KC, k - pc);
+                packB(B, pc, jc, kc, nc, Bp);
+                for (int ic = 0; ic < m; ic += MC) {
+                    int mc = Math.min(MC, m - ic);
+                    packA(A, ic, pc, mc, kc, Ap);
+                    for (int jr = 0; jr < nc; jr += NR) {
+                        int cols = Math.min(NR, nc - jr);
+                        int offB = (jr / NR) * kc * NR;
+                        for (int ir = 0; ir < mc; ir += MR) {
+                            int rows = Math.min(MR, mc - ir);
+                            int offA = (ir / MR) * kc * MR;
+                            microKernel(Ap, offA, Bp, offB, kc, C, ic + ir, jc + jr, rows, cols);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // i-k-j loop for blocks too small to amortize packing
+    private static void multiplyAddSmall(LongMatrix A, LongMatrix B, LongMatrix C) {
+        long[] a = A.data, b = B.data, c = C.data;
+        int k = A.cols, n = B.cols;
+
+        for (int i = 0; i < A.rows; i++) {
+            int iA = A.offset + i * A.stride;
+            int iC = C.offset + i * C.stride;
+            for (int p = 0; p < k; p++) {
+                long aip = a[iA + p];
+                int iB = B.offset + p * B.stride;
+                for (int j = 0; j < n; j++) {
+                    c[iC + j] += aip * b[iB + j];
+                }
+            }
+        }
+    }
+
+    // i-k-j loop over lazy operands: every a(i, p) is summed once and every B term streamed with its sign
+    private static void multiplyAddSmall(LongLinearCombination A, LongLinearCombination B, LongMatrix C) {
+        long[] c = C.data;
+        int k = A.cols(), n = B.cols();
+
+        for (int i = 0; i < A.rows(); i++) {
+            int iC = C.offset + i * C.stride;
+            for (int p = 0; p < k; p++) {
+                long aip = 0;
+                for (int t = 0; t < A.size(); t++) {
+                    LongMatrix T = A.term(t);
+                    long value = T.data[T.offset + i * T.stride + p];
+                    aip += A.negated(t) ? -value : value;
+                }
+                for (int t = 0; t < B.size(); t++) {
+                    LongMatrix T = B.term(t);
+                    long[] b = T.data;
+                    int iB = T.offset + p * T.stride;
+                    long scaled = B.negated(t) ? -aip : aip;
+                    for (int j = 0; j < n; j++) {
+                        c[iC + j] += scaled * b[iB + j];
+                    }
+                }
+            }
+        }
+    }
+
+    // Packs the sum of A's terms: the first term is packed as usual and the others are added into the slivers
+    private static void packA(LongLinearCombination A, int ic, int pc, int mc, int kc, long[] Ap) {
+        packA(A.term(0), ic, pc, mc, kc, Ap);
+
+        for (int t = 1; t < A.size(); t++) {
+            LongMatrix T = A.term(t);
+            long[] a = T.data;
+            boolean negated = A.negated(t);
+            int idx = 0;
+
+            for (int ir = 0; ir < mc; ir += MR) {
+                int rows = Math.min(MR, mc - ir);
+                int base = T.offset + (ic + ir) * T.stride + pc;
+                for (int p = 0; p < kc; p++) {
+                    for (int r = 0; r < rows; r++) {
+                        long value = a[base + r * T.stride + p];
+                        Ap[idx + r] += negated ? -value : value;
+                    }
+                    idx += MR;
+                }
+            }
+        }
+    }
+
+    // Packs the sum of B's terms, as packA does for A
+    private static void packB(LongLinearCombination B, int pc, int jc, int kc, int nc, long[] Bp) {
+        packB(B.term(0), pc, jc, kc, nc, Bp);
+
+        for (int t = 1; t < B.size(); t++) {
+            LongMatrix T = B.term(t);
+            long[] b = T.data;
+            boolean negated = B.negated(t);
+            int idx = 0;
+
+            for (int jr = 0; jr < nc; jr += NR) {
+                int cols = Math.min(NR, nc - jr);
+                int base = T.offset + pc * T.stride + jc + jr;
+                for (int p = 0; p < kc; p++) {
+                    int row = base + p * T.stride;
+                    for (int c = 0; c < cols; c++) {
+                        long value = b[row + c];
+                        Bp[idx + c] += negated ? -value : value;
+                    }
+                    idx += NR;
+                }
+            }
+        }
+    }
+
+    // Packs A[ic:ic+mc, pc:pc+kc] into MR-row slivers, each stored column by column and zero padded to MR rows
+    private static void packA(LongMatrix A, int ic, int pc, int mc, int kc, long[] Ap) {
+        long[] a = A.data;
+        int idx = 0;
+
+        for (int ir = 0; ir < mc; ir += MR) {
+            int rows = Math.min(MR, mc - ir);
+            int base = A.offset + (ic + ir) * A.stride + pc;
+            for (int p = 0; p < kc; p++) {
+                int r = 0;
+                for (; r < rows; r++) {
+                    Ap[idx++] = a[base + r * A.stride + p];
+                }
+                for (; r < MR; r++) {
+                    Ap[idx++] = 0;
+                }
+            }
+        }
+    }
+
+    // Packs B[pc:pc+kc, jc:jc+nc] into NR-column slivers, each stored row by row and zero padded to NR columns
+    private static void packB(LongMatrix B, int pc, int jc, int kc, int nc, long[] Bp) {
+        long[] b = B.data;
+        int idx = 0;
+
+        for (int jr = 0; jr < nc; jr += NR) {
+            int cols = Math.min(NR, nc - jr);
+            int base = B.offset + pc * B.stride + jc + jr;
+            for (int p = 0; p < kc; p++) {
+                int row = base + p * B.stride;
+                int c = 0;
+                for (; c < cols; c++) {
+                    Bp[idx++] = b[row + c];
+                }
+                for (; c < NR; c++) {
+                    Bp[idx++] = 0;
+                }
+            }
+        }
+    }
+
+    // C[i:i+rows, j:j+cols] += packed A sliver * packed B sliver, accumulated in a 4 x 4 register tile
+    private static void microKernel(long[] Ap, int offA, long[] Bp, int offB, int kc,
+                                    LongMatrix C, int i, int j, int rows, int cols) {
+        long c00 = 0, c01 = 0, c02 = 0, c03 = 0;
+        long c10 = 0, c11 = 0, c12 = 0, c13 = 0;
+        long c20 = 0, c21 = 0, c22 = 0, c23 = 0;
+        long c30 = 0, c31 = 0, c32 = 0, c33 = 0;
+
+        for (int p = 0; p < kc; p++) {
+            long a0 = Ap[offA], a1 = Ap[offA + 1], a2 = Ap[offA + 2], a3 = Ap[offA + 3];
+            long b0 = Bp[offB], b1 = Bp[offB + 1], b2 = Bp[offB + 2], b3 = Bp[offB + 3];
+            offA += MR;
+            offB += NR;
+
+            c00 += a0 * b0; c01 += a0 * b1; c02 += a0 * b2; c03 += a0 * b3;
+            c10 += a1 * b0; c11 += a1 * b1; c12 += a1 * b2; c13 += a1 * b3;
+            c20 += a2 * b0; c21 += a2 * b1; c22 += a2 * b2; c23 += a2 * b3;
+            c30 += a3 * b0; c31 += a3 * b1; c32 += a3 * b2; c33 += a3 * b3;
+        }
+
+        long[] c = C.data;
+        int row = C.offset + i * C.stride + j;
+
+        if (rows == MR && cols == NR) {
+            c[row] += c00; c[row + 1] += c01; c[row + 2] += c02; c[row + 3] += c03;
+            row += C.stride;
+            c[row] += c10; c[row + 1] += c11; c[row + 2] += c12; c[row + 3] += c13;
+            row += C.stride;
+            c[row] += c20; c[row + 1] += c21; c[row + 2] += c22; c[row + 3] += c23;
+            row += C.stride;
+            c[row] += c30; c[row + 1] += c31; c[row + 2] += c32; c[row + 3] += c33;
+            return;
+        }
+
+        // edge tile: only the valid part of the register tile is written back
+        long[] tile = {
+                c00, c01, c02, c03,
+                c10, c11, c12, c13,
+                c20, c21, c22, c23,
+                c30, c31, c32, c33
+        };
+        for (int r = 0; r < rows; r++) {
+            for (int col = 0; col < cols; col++) {
+                c[row + r * C.stride + col] += tile[r * NR + col];
+            }
+        }
+    }
+
+    /**
+     * Completes C = A * B after the even core C[0:m, 0:n] was set to A[0:m, 0:k] * B[0:k, 0:n], see
+     * {@link MatrixOperations#completePeeled}.
+     */
+    public static void completePeeled(LongMatrix A, LongMatrix B, LongMatrix C, int m, int k, int n) {
+        if (k < A.cols) {
+            multiplyAdd(A.view(0, k, m, A.cols - k), B.view(k, 0, B.rows - k, n), C.view(0, 0, m, n));
+        }
+        if (n < B.cols) {
+            multiply(A.view(0, 0, m, A.cols), B.view(0, n, B.rows, B.cols - n), C.view(0, n, m, B.cols - n));
+        }
+        if (m < A.rows) {
+            multiply(A.view(m, 0, A.rows - m, A.cols), B, C.view(m, 0, A.rows - m, B.cols));
+        }
+    }
+}
@@ -0,0 +1,109 @@
+import java.util.Arrays;
+
+/**
+ * Row-major int matrix backed by a single flat array.
+ * <p>
+ * A matrix is described by an offset into the backing array and a row stride, so sub-blocks
+ * such as Strassen quadrants are views that share storage with their parent instead of copies.
+ */
+public class Matrix {
+
+    final int[] data;
+    final int offset;
+    final int stride;
+    final int rows;
+    final int cols;
+
+    public Matrix(int rows, int cols) {
+        this(new int[Math.multiplyExact(rows, cols)], 0, cols, rows, cols);
+    }
+
+    public Matrix(int n) {
+        this(n, n);
+    }
+
+    Matrix(int[] data, int offset, int stride, int rows, int cols) {
+        this.data = data;
+        this.offset = offset;
+        this.stride = stride;
+        this.rows = rows;
+        this.cols = cols;
+    }
+
+    public static Matrix of(int[][] A) {
+        int rows = A.length;
+        int cols = rows == 0 ? 0 : A[0].length;
+        Matrix M = new Matrix(rows, cols);
+
+        for (int i = 0; i < rows; i++) {
+            System.arraycopy(A[i], 0, M.data, i * cols, cols);
+        }
+
+        return M;
+    }
+
+    public int[][] toArray() {
+        int[][] A = new int[rows][cols];
+
+        for (int i = 0; i < rows; i++) {
+            System.arraycopy(data, offset + i * stride, A[i], 0, cols);
+        }
+
+        return A;
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public int cols() {
+        return cols;
+    }
+
+    public int get(int i, int j) {
+        return data[offset + i * stride + j];
+    }
+
+    public void set(int i, int j, int value) {
+        data[offset + i * stride + j] = value;
+    }
+
+    /**
+     * Returns a view of the {@code rows x cols} block starting at ({@code row}, {@code col}).
+     * Writes through the view are visible in this matrix.
+     */
+    public Matrix view(int row, int col, int rows, int cols) {
+        if (row < 0 || col < 0 || rows < 0 || cols < 0 || row + rows > this.rows || col + cols > this.cols) {
+            throw new IndexOutOfBoundsException("View " + rows + "x" + cols + " at (" + row + ", " + col +
+                    ") outside " + this.rows + "x" + this.cols + " matrix");
+        }
+        return new Matrix(data, offset + row * stride + col, stride, rows, cols);
+    }
+
+    /**
+     * Returns quadrant ({@code qi}, {@code qj}) of a matrix with even dimensions, e.g. (0, 1) is X12.
+     */
+    public Matrix quadrant(int qi, int qj) {
+        int h = rows / 2;
+        int w = cols / 2;
+        return view(qi * h, qj * w, h, w);
+    }
+
+    // Returns a view of the rows [row, row + rows) of this matrix
+    public Matrix rowBlock(int row, int rows) {
+        return view(row, 0, rows, cols);
+    }
+
+    public void fill(int value) {
+        for (int i = 0; i < rows; i++) {
+            int row = offset + i * stride;
+            Arrays.fill(data, row, row + cols, value);
+        }
+    }
+
+    public void copyFrom(Matrix A) {
+        for (int i = 0; i < rows; i++) {
+            System.arraycopy(A.data, A.offset + i * A.stride, data, offset + i * stride, cols);
+        }
+    }
+}
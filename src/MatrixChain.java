@@ -0,0 +1,119 @@
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Cost-based ordering of matrix chains for the Strassen engines.
+ * <p>
+ * The classic dynamic program picks the parenthesization of A1 * A2 * ... * An with the lowest total cost, but its
+ * cost for an m x k by k x n product is the engine's, not m * k * n: the model walks the same recursion as the engines
+ * (crossover, splits of lopsided shapes, peeling of odd sizes) and charges seven half-size products plus the block
+ * additions of the variant per Strassen level, and m * k * n multiply-adds below the crossover. Additions and
+ * multiply-adds count the same, both being one pass of loads and stores.
+ */
+public class MatrixChain {
+
+    /**
+     * An order for a chain of n factors: split(i, j) is the s at which factors i..j are multiplied as (i..s) * (s+1..j)
+     * and cost is the modelled cost of the whole chain.
+     */
+    public record Order(int[][] splits, long cost) {
+
+        public int size() {
+            return splits.length;
+        }
+
+        public int split(int i, int j) {
+            return splits[i][j];
+        }
+
+        // Rounds of the product of factors i..j when independent subproducts run concurrently, 0 for one factor
+        public int rounds(int i, int j) {
+            if (i == j) return 0;
+            return 1 + Math.max(rounds(i, split(i, j)), rounds(split(i, j) + 1, j));
+        }
+
+        @Override
+        public String toString() {
+            return "chain order: " + parenthesize(0, size() - 1) + ", cost " + cost;
+        }
+
+        private String parenthesize(int i, int j) {
+            if (i == j) return "M" + i;
+            return "(" + parenthesize(i, split(i, j)) + " " + parenthesize(split(i, j) + 1, j) + ")";
+        }
+    }
+
+    /**
+     * Dimensions of a chain of count factors whose shapes rows and cols give: factor i is dims[i] x dims[i + 1]. Throws
+     * if the chain is empty or adjacent factors do not match.
+     */
+    public static int[] dimensions(int count, IntUnaryOperator rows, IntUnaryOperator cols) {
+        if (count == 0) {
+            throw new IllegalArgumentException("Cannot multiply an empty chain");
+        }
+
+        int[] dims = new int[count + 1];
+        dims[0] = rows.applyAsInt(0);
+        for (int i = 0; i < count; i++) {
+            if (rows.applyAsInt(i) != dims[i]) {
+                throw new IllegalArgumentException("Factor " + i + " has " + rows.applyAsInt(i) + " rows, the " +
+                        "previous one " + dims[i] + " columns");
+            }
+            dims[i + 1] = cols.applyAsInt(i);
+        }
+        return dims;
+    }
+
+    // The cheapest order of the chain with factor i of shape dims[i] x dims[i + 1]
+    public static Order order(int[] dims, int crossover, StrassenVariant variant) {
+        int count = dims.length - 1;
+        long[][] cost = new long[count][count];
+        int[][] splits = new int[count][count];
+
+        for (int length = 2; length <= count; length++) {
+            for (int i = 0; i + length - 1 < count; i++) {
+                int j = i + length - 1;
+                cost[i][j] = Long.MAX_VALUE;
+                for (int s = i; s < j; s++) {
+                    long c = cost[i][s] + cost[s + 1][j] + cost(dims[i], dims[s + 1], dims[j + 1], crossover, variant);
+                    if (c < cost[i][j]) {
+                        cost[i][j] = c;
+                        splits[i][j] = s;
+                    }
+                }
+            }
+        }
+        return new Order(splits, cost[0][count - 1]);
+    }
+
+    // Modelled cost of an m x k by k x n product on an engine with this crossover and variant
+    public static long cost(int m, int k, int n, int crossover, StrassenVariant variant) {
+        int smallest = Math.min(m, Math.min(k, n));
+        int largest = Math.max(m, Math.max(k, n));
+
+        if (smallest <= crossover) return (long) m * k * n;
+
+        if (largest >= 2 * smallest) {
+            if (m >= k && m >= n) {
+                return cost((m + 1) / 2, k, n, crossover, variant) + cost(m / 2, k, n, crossover, variant);
+            } else if (n >= k) {
+                return cost(m, k, (n + 1) / 2, crossover, variant) + cost(m, k, n / 2, crossover, variant);
+            }
+            // the two halves of the inner dimension are added up
+            return cost(m, (k + 1) / 2, n, crossover, variant) + cost(m, k / 2, n, crossover, variant)
+                    + (long) m * n;
+        }
+
+        if (m % 2 != 0 || k % 2 != 0 || n % 2 != 0) {
+            // the peeled row, column and inner slice are multiplied classically
+            int me = m & ~1, ke = k & ~1, ne = n & ~1;
+            return cost(me, ke, ne, crossover, variant) + ((long) m * k * n - (long) me * ke * ne);
+        }
+
+        long mh = m / 2, kh = k / 2, nh = n / 2;
+        // classic: five sums per side and eight C additions, winograd: four per side and seven
+        long additions = variant == StrassenVariant.WINOGRAD
+                ? 4 * (mh * kh + kh * nh) + 7 * mh * nh
+                : 5 * (mh * kh + kh * nh) + 8 * mh * nh;
+        return 7 * cost(m / 2, k / 2, n / 2, crossover, variant) + additions;
+    }
+}
@@ -0,0 +1,334 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.SplittableRandom;
+
+/**
+ * Compact binary matrix files.
+ * <p>
+ * A file is a 32 byte header followed by the elements, everything little-endian:
+ * <pre>
+ *  0  magic "SMAT"
+ *  4  int version (1)
+ *  8  int element type (ElementType ordinal)
+ * 12  int layout (0 = row-major, 1 = column-major)
+ * 16  int rows
+ * 20  int cols
+ * 24  8 reserved bytes
+ * 32  rows * cols elements in the given layout
+ * </pre>
+ * Readers and writers stream the elements through one direct buffer of {@link #CHUNK_BYTES}, so no file is ever held
+ * in memory twice. Files are always written row-major; column-major files can be read. Row-major int files can also be
+ * mapped as an {@link OffHeapMatrix} for the off-heap and out-of-core engines.
+ */
+public class MatrixFile {
+
+    public static final int MAGIC = 'S' | 'M' << 8 | 'A' << 16 | 'T' << 24;
+    public static final int VERSION = 1;
+    public static final int HEADER_BYTES = 32;
+    public static final int ROW_MAJOR = 0;
+    public static final int COLUMN_MAJOR = 1;
+
+    static final int CHUNK_BYTES = 1 << 20;
+
+    public record Header(ElementType type, int layout, int rows, int cols) {
+
+        long dataBytes() {
+            return (long) rows * cols * type.bytes();
+        }
+    }
+
+    // Moves count elements between the buffer, starting at its position, and the matrix starting at (row, col): along
+    // the row if alongRow and down the column otherwise. The buffer position is advanced by the caller.
+    private interface Transfer {
+        void apply(ByteBuffer buffer, int row, int col, int count, boolean alongRow);
+    }
+
+    public static Header readHeader(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return readHeader(channel, file);
+        }
+    }
+
+    private static Header readHeader(FileChannel channel, Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, buffer.position()) < 0) {
+                throw new EOFException(file + " is too short for a matrix header");
+            }
+        }
+        buffer.flip();
+
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException(file + " is not a matrix file");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException(file + " has unsupported version " + version);
+        }
+        int type = buffer.getInt();
+        int layout = buffer.getInt();
+        int rows = buffer.getInt();
+        int cols = buffer.getInt();
+        if (type < 0 || type >= ElementType.values().length || (layout != ROW_MAJOR && layout != COLUMN_MAJOR)
+                || rows < 0 || cols < 0) {
+            throw new IOException(file + " has a corrupt header");
+        }
+
+        Header header = new Header(ElementType.values()[type], layout, rows, cols);
+        if (channel.size() < HEADER_BYTES + header.dataBytes()) {
+            throw new EOFException(file + " is truncated: " + rows + "x" + cols + " " + header.type() + " matrix");
+        }
+        return header;
+    }
+
+    private static void writeHeader(FileChannel channel, Header header) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC)
+                .putInt(VERSION)
+                .putInt(header.type().ordinal())
+                .putInt(header.layout())
+                .putInt(header.rows())
+                .putInt(header.cols())
+                .putLong(0);
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, buffer.position());
+        }
+    }
+
+    public static Matrix readMatrix(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Header header = expect(readHeader(channel, file), ElementType.INT, file);
+            Matrix M = new Matrix(header.rows(), header.cols());
+            readData(channel, header, (buffer, row, col, count, alongRow) -> {
+                int index = M.offset + row * M.stride + col;
+                if (alongRow) {
+                    buffer.asIntBuffer().get(M.data, index, count);
+                } else {
+                    for (int t = 0; t < count; t++) {
+                        M.data[index + t * M.stride] = buffer.getInt(buffer.position() + t * Integer.BYTES);
+                    }
+                }
+            });
+            return M;
+        }
+    }
+
+    public static LongMatrix readLongMatrix(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Header header = expect(readHeader(channel, file), ElementType.LONG, file);
+            LongMatrix M = new LongMatrix(header.rows(), header.cols());
+            readData(channel, header, (buffer, row, col, count, alongRow) -> {
+                int index = M.offset + row * M.stride + col;
+                if (alongRow) {
+                    buffer.asLongBuffer().get(M.data, index, count);
+                } else {
+                    for (int t = 0; t < count; t++) {
+                        M.data[index + t * M.stride] = buffer.getLong(buffer.position() + t * Long.BYTES);
+                    }
+                }
+            });
+            return M;
+        }
+    }
+
+    public static FloatMatrix readFloatMatrix(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Header header = expect(readHeader(channel, file), ElementType.FLOAT, file);
+            FloatMatrix M = new FloatMatrix(header.rows(), header.cols());
+            readData(channel, header, (buffer, row, col, count, alongRow) -> {
+                int index = M.offset + row * M.stride + col;
+                if (alongRow) {
+                    buffer.asFloatBuffer().get(M.data, index, count);
+                } else {
+                    for (int t = 0; t < count; t++) {
+                        M.data[index + t * M.stride] = buffer.getFloat(buffer.position() + t * Float.BYTES);
+                    }
+                }
+            });
+            return M;
+        }
+    }
+
+    public static DoubleMatrix readDoubleMatrix(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Header header = expect(readHeader(channel, file), ElementType.DOUBLE, file);
+            DoubleMatrix M = new DoubleMatrix(header.rows(), header.cols());
+            readData(channel, header, (buffer, row, col, count, alongRow) -> {
+                int index = M.offset + row * M.stride + col;
+                if (alongRow) {
+                    buffer.asDoubleBuffer().get(M.data, index, count);
+                } else {
+                    for (int t = 0; t < count; t++) {
+                        M.data[index + t * M.stride] = buffer.getDouble(buffer.position() + t * Double.BYTES);
+                    }
+                }
+            });
+            return M;
+        }
+    }
+
+    public static void write(Path file, Matrix M) throws IOException {
+        writeData(file, new Header(ElementType.INT, ROW_MAJOR, M.rows, M.cols), (buffer, row, col, count, alongRow) ->
+                buffer.asIntBuffer().put(M.data, M.offset + row * M.stride + col, count));
+    }
+
+    public static void write(Path file, LongMatrix M) throws IOException {
+        writeData(file, new Header(ElementType.LONG, ROW_MAJOR, M.rows, M.cols), (buffer, row, col, count, alongRow) ->
+                buffer.asLongBuffer().put(M.data, M.offset + row * M.stride + col, count));
+    }
+
+    public static void write(Path file, FloatMatrix M) throws IOException {
+        writeData(file, new Header(ElementType.FLOAT, ROW_MAJOR, M.rows, M.cols), (buffer, row, col, count, alongRow) ->
+                buffer.asFloatBuffer().put(M.data, M.offset + row * M.stride + col, count));
+    }
+
+    public static void write(Path file, DoubleMatrix M) throws IOException {
+        writeData(file, new Header(ElementType.DOUBLE, ROW_MAJOR, M.rows, M.cols), (buffer, row, col, count, alongRow) ->
+                buffer.asDoubleBuffer().put(M.data, M.offset + row * M.stride + col, count));
+    }
+
+    // Maps the elements of a row-major int file read-only, e.g. an operand; the mapping lives until arena is closed
+    public static OffHeapMatrix map(Arena arena, Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Header header = expect(readHeader(channel, file), ElementType.INT, file);
+            if (header.layout() != ROW_MAJOR) {
+                throw new IOException(file + " is column-major and cannot be mapped");
+            }
+            return mapData(arena, channel, header, FileChannel.MapMode.READ_ONLY);
+        }
+    }
+
+    // Writes the header of a row-major int file and maps its (zeroed) elements, e.g. for the result of a product
+    public static OffHeapMatrix create(Arena arena, Path file, int rows, int cols) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            Header header = new Header(ElementType.INT, ROW_MAJOR, rows, cols);
+            writeHeader(channel, header);
+            return mapData(arena, channel, header, FileChannel.MapMode.READ_WRITE);
+        }
+    }
+
+    private static OffHeapMatrix mapData(Arena arena, FileChannel channel, Header header, FileChannel.MapMode mode)
+            throws IOException {
+        // mapped elements are accessed in native order
+        if (ByteOrder.nativeOrder() != ByteOrder.LITTLE_ENDIAN) {
+            throw new UnsupportedOperationException("Matrix files can only be mapped on little-endian platforms");
+        }
+        MemorySegment segment = channel.map(mode, HEADER_BYTES, header.dataBytes(), arena);
+        return new OffHeapMatrix(segment, 0, header.cols(), header.rows(), header.cols());
+    }
+
+    private static Header expect(Header header, ElementType type, Path file) throws IOException {
+        if (header.type() != type) {
+            throw new IOException(file + " holds " + header.type() + " elements, expected " + type);
+        }
+        return header;
+    }
+
+    private static void readData(FileChannel channel, Header header, Transfer transfer) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        int bytes = header.type().bytes();
+        boolean rowMajor = header.layout() == ROW_MAJOR;
+        int lines = rowMajor ? header.rows() : header.cols();
+        int length = rowMajor ? header.cols() : header.rows();
+
+        channel.position(HEADER_BYTES);
+        buffer.flip();
+
+        for (int line = 0; line < lines; line++) {
+            int done = 0;
+            while (done < length) {
+                if (buffer.remaining() < bytes) {
+                    buffer.compact();
+                    while (buffer.position() < bytes || (buffer.hasRemaining() && channel.position() < channel.size())) {
+                        if (channel.read(buffer) < 0) {
+                            throw new EOFException("Matrix file ended early");
+                        }
+                    }
+                    buffer.flip();
+                }
+
+                int count = Math.min(length - done, buffer.remaining() / bytes);
+                transfer.apply(buffer, rowMajor ? line : done, rowMajor ? done : line, count, rowMajor);
+                buffer.position(buffer.position() + count * bytes);
+                done += count;
+            }
+        }
+    }
+
+    private static void writeData(Path file, Header header, Transfer transfer) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            writeHeader(channel, header);
+            channel.position(HEADER_BYTES);
+
+            ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            int bytes = header.type().bytes();
+
+            for (int row = 0; row < header.rows(); row++) {
+                int done = 0;
+                while (done < header.cols()) {
+                    if (buffer.remaining() < bytes) {
+                        flush(channel, buffer);
+                    }
+                    int count = Math.min(header.cols() - done, buffer.remaining() / bytes);
+                    transfer.apply(buffer, row, done, count, true);
+                    buffer.position(buffer.position() + count * bytes);
+                    done += count;
+                }
+            }
+            flush(channel, buffer);
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    // The entries of MatrixGenerator.random(rows, cols, seed), streamed straight to the file in row order
+    private static void writeRandom(Path file, ElementType type, int rows, int cols, long seed) throws IOException {
+        SplittableRandom[] generators = MatrixGenerator.generators(rows, seed);
+        Transfer transfer = (buffer, row, col, count, alongRow) -> {
+            SplittableRandom random = generators[row / MatrixGenerator.ROW_BLOCK];
+            int position = buffer.position();
+            for (int t = 0; t < count; t++) {
+                int value = random.nextInt(1, 11);
+                switch (type) {
+                    case INT -> buffer.putInt(position + t * Integer.BYTES, value);
+                    case LONG -> buffer.putLong(position + t * Long.BYTES, value);
+                    case FLOAT -> buffer.putFloat(position + t * Float.BYTES, value);
+                    case DOUBLE -> buffer.putDouble(position + t * Double.BYTES, value);
+                }
+            }
+        };
+        writeData(file, new Header(type, ROW_MAJOR, rows, cols), transfer);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 2 && args[0].equals("info")) {
+            Header header = readHeader(Path.of(args[1]));
+            System.out.printf("%s: %dx%d %s matrix, %s%n", args[1], header.rows(), header.cols(),
+                    header.type().name().toLowerCase(), header.layout() == ROW_MAJOR ? "row-major" : "column-major");
+        } else if ((args.length == 5 || args.length == 6) && args[0].equals("random")) {
+            int rows = Integer.parseInt(args[1]), cols = Integer.parseInt(args[2]);
+            long seed = args.length == 6 ? Long.parseLong(args[5]) : MatrixGenerator.SEED;
+            writeRandom(Path.of(args[4]), ElementType.parse(args[3]), rows, cols, seed);
+        } else {
+            System.out.println("Usage: java -cp out MatrixFile random <rows> <cols> <int|long|float|double> <file> "
+                    + "[seed]");
+            System.out.println("       java -cp out MatrixFile info <file>");
+        }
+    }
+}
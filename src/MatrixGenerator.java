@@ -0,0 +1,105 @@
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Reproducible test matrices.
+ * <p>
+ * Rows are filled in parallel in blocks of {@link #ROW_BLOCK}. Every block draws from its own {@link SplittableRandom},
+ * split from the seed in block order before the fill starts, so a matrix depends only on its seed and shape and not on
+ * the number of threads. The same seed gives the same entries for every element type.
+ */
+public class MatrixGenerator {
+
+    // seed of the benchmark inputs (B uses SEED + 1), -Dstrassen.seed overrides it
+    public static final long SEED = Long.getLong("strassen.seed", 42);
+
+    static final int ROW_BLOCK = 64;
+
+    // Fills row i with draws from its block's generator
+    interface RowFiller {
+        void fill(int i, SplittableRandom random);
+    }
+
+    // The generator of every block of ROW_BLOCK rows, in block order; row i draws from generators[i / ROW_BLOCK]
+    static SplittableRandom[] generators(int rows, long seed) {
+        int blocks = (rows + ROW_BLOCK - 1) / ROW_BLOCK;
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom[] generators = new SplittableRandom[blocks];
+        for (int b = 0; b < blocks; b++) {
+            generators[b] = root.split();
+        }
+        return generators;
+    }
+
+    static void fillRows(int rows, long seed, RowFiller filler) {
+        int blocks = (rows + ROW_BLOCK - 1) / ROW_BLOCK;
+        SplittableRandom[] generators = generators(rows, seed);
+
+        IntStream.range(0, blocks).parallel().forEach(b -> {
+            int end = Math.min(rows, (b + 1) * ROW_BLOCK);
+            for (int i = b * ROW_BLOCK; i < end; i++) {
+                filler.fill(i, generators[b]);
+            }
+        });
+    }
+
+    // Entries from 1 to 10, as MatrixOperations.create
+    public static Matrix random(int rows, int cols, long seed) {
+        Matrix R = new Matrix(rows, cols);
+        fillRows(rows, seed, (i, random) -> {
+            for (int j = 0; j < cols; j++) {
+                R.data[i * cols + j] = random.nextInt(1, 11);
+            }
+        });
+        return R;
+    }
+
+    public static Matrix identity(int n) {
+        Matrix I = new Matrix(n);
+        for (int i = 0; i < n; i++) {
+            I.data[i * n + i] = 1;
+        }
+        return I;
+    }
+
+    // Entries from 1 to 10 where |i - j| <= bandwidth, zero elsewhere
+    public static Matrix banded(int n, int bandwidth, long seed) {
+        Matrix R = new Matrix(n);
+        fillRows(n, seed, (i, random) -> {
+            int end = Math.min(n - 1, i + bandwidth);
+            for (int j = Math.max(0, i - bandwidth); j <= end; j++) {
+                R.data[i * n + j] = random.nextInt(1, 11);
+            }
+        });
+        return R;
+    }
+
+    /**
+     * A grid of block x block tiles of which about {@code density} are filled with entries from 1 to 10 and the rest
+     * are zero. The diagonal tiles are always filled, so the matrix has no empty rows or columns.
+     */
+    public static Matrix blockSparse(int n, int block, double density, long seed) {
+        int tiles = (n + block - 1) / block;
+        boolean[][] filled = new boolean[tiles][tiles];
+        SplittableRandom layout = new SplittableRandom(seed);
+        for (int s = 0; s < tiles; s++) {
+            for (int t = 0; t < tiles; t++) {
+                filled[s][t] = s == t || layout.nextDouble() < density;
+            }
+        }
+
+        Matrix R = new Matrix(n);
+        fillRows(n, layout.nextLong(), (i, random) -> {
+            boolean[] tileRow = filled[i / block];
+            for (int t = 0; t < tiles; t++) {
+                if (tileRow[t]) {
+                    int end = Math.min(n, (t + 1) * block);
+                    for (int j = t * block; j < end; j++) {
+                        R.data[i * n + j] = random.nextInt(1, 11);
+                    }
+                }
+            }
+        });
+        return R;
+    }
+}
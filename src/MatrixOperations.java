@@ -1,17 +1,32 @@
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class MatrixOperations {
 
+    /**
+     * Whether the element-wise passes and the leaf kernel use the Vector API. On by default when the JVM was started
+     * with {@code --add-modules jdk.incubator.vector}; {@code -Dstrassen.vector=false} forces the scalar code.
+     */
+    public static final boolean VECTORIZED = Boolean.parseBoolean(System.getProperty("strassen.vector", "true"))
+            && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
     public static int[][] create(int n) {
+        return create(n, n);
+    }
 
-        Random random = new Random();
-        int[][] R = new int[n][n];
+    public static int[][] create(int rows, int cols) {
+        return create(rows, cols, ThreadLocalRandom.current().nextLong());
+    }
 
-        for (int i = 0; i < n; i++) {
-            for (int j = 0; j < n; j++) {
-                R[i][j] = random.nextInt(10) + 1;
+    // Entries from 1 to 10, filled in parallel; the same seed always gives the same matrix, see MatrixGenerator
+    public static int[][] create(int rows, int cols, long seed) {
+
+        int[][] R = new int[rows][cols];
+
+        MatrixGenerator.fillRows(rows, seed, (i, random) -> {
+            for (int j = 0; j < cols; j++) {
+                R[i][j] = random.nextInt(1, 11);
             }
-        }
+        });
 
         return R;
     }
@@ -28,10 +43,9 @@ public class MatrixOperations {
     }
 
     public static void printMatrix(int[][] P) {
-        int n = P.length;
-        for (int i = 0; i < n; i++) {
+        for (int i = 0; i < P.length; i++) {
 
-            for (int j = 0; j < n; j++) {
+            for (int j = 0; j < P[i].length; j++) {
                 System.out.print(P[i][j] + " ");
             }
 
@@ -40,11 +54,12 @@ public class MatrixOperations {
     }
 
     public int[][] add(int[][] A, int[][] B) {
-        int n = A.length;
-        int[][] C = new int[n][n];
+        int rows = A.length;
+        int cols = A[0].length;
+        int[][] C = new int[rows][cols];
 
-        for (int i = 0; i < n; i++) {
-            for (int j = 0; j < n; j++) {
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
                 C[i][j] = A[i][j] + B[i][j];
             }
         }
@@ -53,11 +68,12 @@ public class MatrixOperations {
     }
 
     public int[][] subtract(int[][] A, int[][] B) {
-        int n = A.length;
-        int[][] C = new int[n][n];
+        int rows = A.length;
+        int cols = A[0].length;
+        int[][] C = new int[rows][cols];
 
-        for (int i = 0; i < n; i++) {
-            for (int j = 0; j < n; j++) {
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
                 C[i][j] = A[i][j] - B[i][j];
             }
         }
@@ -66,24 +82,167 @@ public class MatrixOperations {
     }
 
     public static int[][] multiply(int[][] A, int[][] B) {
-        int n = A.length;
-        int[][] C = new int[n][n];
+        return multiply(Matrix.of(A), Matrix.of(B)).toArray();
+    }
 
-        for (int i = 0; i < n; i++) {
-            for (int j = 0; j < n; j++) {
-                for (int k = 0; k < n; k++) {
-                    C[i][j] += A[i][k] * B[k][j];
-                }
+    public Matrix add(Matrix A, Matrix B) {
+        Matrix C = new Matrix(A.rows, A.cols);
+        add(A, B, C);
+        return C;
+    }
+
+    // C = A + B, C may alias A or B
+    public void add(Matrix A, Matrix B, Matrix C) {
+        if (VECTORIZED) {
+            VectorOperations.add(A, B, C);
+            return;
+        }
+
+        int[] a = A.data, b = B.data, c = C.data;
+
+        for (int i = 0; i < C.rows; i++) {
+            int iA = A.offset + i * A.stride;
+            int iB = B.offset + i * B.stride;
+            int iC = C.offset + i * C.stride;
+            for (int j = 0; j < C.cols; j++) {
+                c[iC + j] = a[iA + j] + b[iB + j];
             }
         }
+    }
 
+    public Matrix subtract(Matrix A, Matrix B) {
+        Matrix C = new Matrix(A.rows, A.cols);
+        subtract(A, B, C);
         return C;
     }
 
+    // C = A - B, C may alias A or B
+    public void subtract(Matrix A, Matrix B, Matrix C) {
+        if (VECTORIZED) {
+            VectorOperations.subtract(A, B, C);
+            return;
+        }
+
+        int[] a = A.data, b = B.data, c = C.data;
+
+        for (int i = 0; i < C.rows; i++) {
+            int iA = A.offset + i * A.stride;
+            int iB = B.offset + i * B.stride;
+            int iC = C.offset + i * C.stride;
+            for (int j = 0; j < C.cols; j++) {
+                c[iC + j] = a[iA + j] - b[iB + j];
+            }
+        }
+    }
+
+    // C = W + X - Y + Z in one pass (C11 = M1 + M4 - M5 + M7), C may alias any operand
+    public void addSubtractAdd(Matrix W, Matrix X, Matrix Y, Matrix Z, Matrix C) {
+        if (VECTORIZED) {
+            VectorOperations.addSubtractAdd(W, X, Y, Z, C);
+            return;
+        }
+
+        int[] w = W.data, x = X.data, y = Y.data, z = Z.data, c = C.data;
+
+        for (int i = 0; i < C.rows; i++) {
+            int iW = W.offset + i * W.stride;
+            int iX = X.offset + i * X.stride;
+            int iY = Y.offset + i * Y.stride;
+            int iZ = Z.offset + i * Z.stride;
+            int iC = C.offset + i * C.stride;
+            for (int j = 0; j < C.cols; j++) {
+                c[iC + j] = w[iW + j] + x[iX + j] - y[iY + j] + z[iZ + j];
+            }
+        }
+    }
+
+    // C = W - X + Y + Z in one pass (C22 = M1 - M2 + M3 + M6), C may alias any operand
+    public void subtractAddAdd(Matrix W, Matrix X, Matrix Y, Matrix Z, Matrix C) {
+        if (VECTORIZED) {
+            VectorOperations.subtractAddAdd(W, X, Y, Z, C);
+            return;
+        }
+
+        int[] w = W.data, x = X.data, y = Y.data, z = Z.data, c = C.data;
+
+        for (int i = 0; i < C.rows; i++) {
+            int iW = W.offset + i * W.stride;
+            int iX = X.offset + i * X.stride;
+            int iY = Y.offset + i * Y.stride;
+            int iZ = Z.offset + i * Z.stride;
+            int iC = C.offset + i * C.stride;
+            for (int j = 0; j < C.cols; j++) {
+                c[iC + j] = w[iW + j] - x[iX + j] + y[iY + j] + z[iZ + j];
+            }
+        }
+    }
+
+    // Rejects operands whose shapes do not form the product C = A * B
+    public static void checkDimensions(Matrix A, Matrix B, Matrix C) {
+        if (A.cols != B.rows || C.rows != A.rows || C.cols != B.cols) {
+            throw new IllegalArgumentException("Cannot multiply " + A.rows + "x" + A.cols + " by " + B.rows + "x" +
+                    B.cols + " into " + C.rows + "x" + C.cols);
+        }
+    }
+
+    public static Matrix multiply(Matrix A, Matrix B) {
+        Matrix C = new Matrix(A.rows, B.cols);
+        multiply(A, B, C);
+        return C;
+    }
+
+    // C = A * B, C must not alias A or B
+    public static void multiply(Matrix A, Matrix B, Matrix C) {
+        BlockedMultiply.multiply(A, B, C);
+    }
+
+    // C = A * B packed into the given buffers, or the thread's own if null
+    static void multiply(Matrix A, Matrix B, Matrix C, BlockedMultiply.Packing buffers) {
+        BlockedMultiply.multiply(A, B, C, buffers);
+    }
+
+    // C += A * B, C must not alias A or B
+    public static void multiplyAdd(Matrix A, Matrix B, Matrix C) {
+        BlockedMultiply.multiplyAdd(A, B, C);
+    }
+
+    // C = A * B for lazy operands, e.g. (A11 + A22) * (B11 + B22) without storing either sum
+    public static void multiply(LinearCombination A, LinearCombination B, Matrix C) {
+        BlockedMultiply.multiply(A, B, C);
+    }
+
+    // C = A * B for lazy operands packed into the given buffers, or the thread's own if null
+    static void multiply(LinearCombination A, LinearCombination B, Matrix C, BlockedMultiply.Packing buffers) {
+        BlockedMultiply.multiply(A, B, C, buffers);
+    }
+
+    /**
+     * Completes C = A * B after the even core C[0:m, 0:n] was set to A[0:m, 0:k] * B[0:k, 0:n], where m, k and n are
+     * the rows of A, the inner dimension and the columns of B rounded down to even. This is the fix-up of dynamic
+     * peeling: the peeled row, column and inner slice cost O(n^2), so odd sizes keep the full Strassen depth.
+     */
+    public static void completePeeled(Matrix A, Matrix B, Matrix C, int m, int k, int n) {
+        completePeeled(A, B, C, m, k, n, null);
+    }
+
+    // completePeeled packing into the given buffers, or the thread's own if null
+    static void completePeeled(Matrix A, Matrix B, Matrix C, int m, int k, int n, BlockedMultiply.Packing buffers) {
+        if (k < A.cols) {
+            BlockedMultiply.multiplyAdd(A.view(0, k, m, A.cols - k), B.view(k, 0, B.rows - k, n), C.view(0, 0, m, n),
+                    buffers);
+        }
+        if (n < B.cols) {
+            multiply(A.view(0, 0, m, A.cols), B.view(0, n, B.rows, B.cols - n), C.view(0, n, m, B.cols - n), buffers);
+        }
+        if (m < A.rows) {
+            multiply(A.view(m, 0, A.rows - m, A.cols), B, C.view(m, 0, A.rows - m, B.cols), buffers);
+        }
+    }
+
     public void extract(int[][] A, int[][] C, int i, int j) {
 
         for (int iC = 0; iC < C.length; iC++) {
-            for (int jC = 0; jC < C.length; jC++) {
+            for (int jC = 0; jC < C[iC].length; jC++) {
                 C[iC][jC] = A[i + iC][j + jC];
             }
         }
@@ -92,7 +251,7 @@ public class MatrixOperations {
     public void join(int[][] C, int[][] A, int i, int j) {
 
         for (int iC = 0; iC < C.length; iC++) {
-            for (int jC = 0; jC < C.length; jC++) {
+            for (int jC = 0; jC < C[iC].length; jC++) {
                 A[i + iC][j + jC] = C[iC][jC];
             }
         }
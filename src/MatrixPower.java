@@ -0,0 +1,71 @@
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * A^e by binary exponentiation for the Strassen engines, over any matrix type.
+ * <p>
+ * The squares A, A^2, A^4, ... are formed one by one and the ones picked by the bits of e are multiplied into the
+ * result. Every product is out of place, so a buffer is recycled as soon as neither the current square nor the result
+ * refers to it: at most three n x n buffers exist besides A, whatever the exponent. A sequential engine's workspace is
+ * sized by the first product and reused by all the others; the parallel engines reuse their leaves' workspaces the
+ * same way, but allocate the temporaries of their forked levels in every product.
+ */
+public class MatrixPower {
+
+    // C = A * B into a preallocated C
+    public interface Multiplier<M> {
+        void multiply(M A, M B, M C);
+    }
+
+    // Throws unless an n x n matrix can be raised to the exponent
+    public static void check(int rows, int cols, long exponent) {
+        if (rows != cols) {
+            throw new IllegalArgumentException("Cannot raise a " + rows + "x" + cols + " matrix to a power");
+        }
+        if (exponent < 0) {
+            throw new IllegalArgumentException("Negative exponent " + exponent);
+        }
+    }
+
+    /**
+     * A^exponent for an exponent of at least 1; allocate returns a new n x n matrix and copy a copy of A, which is
+     * only needed when the exponent is 1. A itself is never written.
+     */
+    public static <M> M power(M A, long exponent, Supplier<M> allocate, Multiplier<M> multiplier,
+                              UnaryOperator<M> copy) {
+        Deque<M> free = new ArrayDeque<>();
+        // A^(2^i) for the current bit i, and the product of the squares of the bits below it that are set
+        M square = A;
+        M result = null;
+
+        for (long e = exponent; e != 0; e >>>= 1) {
+            if ((e & 1) != 0) {
+                if (result == null) {
+                    result = square;
+                } else {
+                    M product = free.isEmpty() ? allocate.get() : free.pop();
+                    multiplier.multiply(result, square, product);
+                    recycle(result, A, square, free);
+                    result = product;
+                }
+            }
+            if (e > 1) {
+                M next = free.isEmpty() ? allocate.get() : free.pop();
+                multiplier.multiply(square, square, next);
+                M previous = square;
+                square = next;
+                recycle(previous, A, result, free);
+            }
+        }
+        return result == A ? copy.apply(A) : result;
+    }
+
+    // Returns buffer to the free ones unless it is A or still referenced as live
+    private static <M> void recycle(M buffer, M A, M live, Deque<M> free) {
+        if (buffer != A && buffer != live) {
+            free.push(buffer);
+        }
+    }
+}
@@ -0,0 +1,310 @@
+/**
+ * Analytic memory plans for the Strassen engines.
+ * <p>
+ * Instead of polling {@link Runtime} while recursing, an engine asks for a plan before it starts. The planner walks
+ * the same recursion as the engine (crossover, splits, peeling, variant and, for the parallel engine, fork depth and
+ * depth-first levels) and adds up the exact number of elements it allocates at its peak, then picks the deepest plan
+ * whose operands and temporaries fit the budget. Before giving up Strassen levels a plan moves top levels to the lean
+ * schedule, which keeps three temporaries per level instead of the sums and seven products. The budget depends only
+ * on the JVM configuration, so the same product always gets the same plan, whatever the garbage collector happens to
+ * have reclaimed.
+ */
+public class MemoryPlanner {
+
+    private static final double MEMORY_THRESHOLD = 0.9;
+
+    // depth of a plan that multiplies classically
+    public static final int CLASSICAL = -1;
+
+    /**
+     * A plan for one product: the number of Strassen levels (sequential), the fork depth (parallel) or
+     * {@link #CLASSICAL}, how many of the forked levels at the top run depth-first, how many levels of each
+     * sequential engine run on the lean schedule, and the bytes taken by the operands and the engine's temporaries at
+     * their peak.
+     */
+    public record Plan(String engine, int crossover, int depth, int depthFirst, int leanLevels, int parallelism,
+                       long operandBytes, long temporaryBytes, long budget) {
+
+        // A plan whose levels all run breadth-first
+        public Plan(String engine, int crossover, int depth, int leanLevels, int parallelism, long operandBytes,
+                    long temporaryBytes, long budget) {
+            this(engine, crossover, depth, 0, leanLevels, parallelism, operandBytes, temporaryBytes, budget);
+        }
+
+        public boolean fits() {
+            return operandBytes + temporaryBytes <= budget;
+        }
+
+        public boolean strassen() {
+            return depth != CLASSICAL;
+        }
+
+        @Override
+        public String toString() {
+            String shape = depth == CLASSICAL ? "classical"
+                    : engine.startsWith("parallel") ? "fork depth " + depth
+                            + (depthFirst > 0 ? " (top " + depthFirst + " depth-first)" : "")
+                    : depth + " Strassen level" + (depth == 1 ? "" : "s");
+            if (leanLevels > 0) {
+                shape += ", " + leanLevels + " lean level" + (leanLevels == 1 ? "" : "s");
+            }
+            return String.format("%s plan: %s, crossover %d, %d thread%s, %.1f MB operands + %.1f MB temporaries "
+                            + "of %.1f MB budget%s", engine, shape, crossover, parallelism, parallelism == 1 ? "" : "s",
+                    megabytes(operandBytes), megabytes(temporaryBytes), megabytes(budget), fits() ? "" : " (exceeded)");
+        }
+    }
+
+    /**
+     * Bytes the engines may plan with: {@code -Dstrassen.memoryBudgetMB} if set, otherwise MEMORY_THRESHOLD of the
+     * maximum heap.
+     */
+    public static long budget() {
+        Long configured = Long.getLong("strassen.memoryBudgetMB");
+        if (configured != null) {
+            return configured * 1024 * 1024;
+        }
+        return (long) (Runtime.getRuntime().maxMemory() * MEMORY_THRESHOLD);
+    }
+
+    // Elements of the blocked kernel's packing buffers, allocated once per thread that multiplies classically
+    static long packingElements() {
+        return (long) BlockedMultiply.MC * BlockedMultiply.KC + (long) BlockedMultiply.KC * BlockedMultiply.NC;
+    }
+
+    private static long operands(int m, int k, int n) {
+        return (long) m * k + (long) k * n + (long) m * n;
+    }
+
+    /**
+     * Plan of a sequential engine for C = A * B: the full recursion with the fewest lean levels whose workspace fits,
+     * otherwise the classical kernel.
+     */
+    public static Plan sequential(int m, int k, int n, int crossover, StrassenVariant variant, ElementType type,
+                                  long budget) {
+        String engine = type.crossoverKey("sequential");
+        long operandBytes = operands(m, k, n) * type.bytes();
+        long packing = packingElements() * type.bytes();
+        int levels = levels(m, k, n, crossover);
+
+        for (int lean = 0; lean <= levels; lean++) {
+            long scratch = StrassenWorkspace.scratchSize(m, k, n, crossover, variant, lean);
+            // the typed engines keep their workspace in a single array
+            if (scratch <= Integer.MAX_VALUE - 8) {
+                Plan plan = new Plan(engine, crossover, levels, lean, 1, operandBytes, scratch * type.bytes() + packing,
+                        budget);
+                if (plan.fits()) {
+                    return plan;
+                }
+            }
+        }
+        return new Plan(engine, crossover, CLASSICAL, 0, 1, operandBytes, packing, budget);
+    }
+
+    /**
+     * Plan of a ForkJoin engine for C = A * B, a hybrid of breadth-first and depth-first levels as in
+     * communication-avoiding parallel Strassen. A breadth-first level runs its seven subproducts at once, which takes
+     * memory for all of them; a depth-first level runs them one after another, each on the whole pool, and folds every
+     * product into C as the lean schedule does, so it holds a single product and one pair of operand sums. The
+     * planner keeps the config's breadth-first depth, which gives every thread tasksPerThread tasks, as long as it can
+     * fit: first with more lean levels in the leaves, then with one more depth-first level above it, and only when
+     * even that fails with fewer breadth-first levels. Below the fork depth or the grain of the breadth-first subtree
+     * every thread that runs a leaf (the pool's and the caller) keeps a sequential engine whose workspace is sized
+     * for the largest leaf.
+     */
+    public static Plan parallel(int m, int k, int n, int crossover, StrassenVariant variant, ElementType type,
+                                ParallelConfig config, long budget) {
+        String engine = type.crossoverKey("parallel");
+        long operandBytes = operands(m, k, n) * type.bytes();
+        int parallelism = config.parallelism();
+        long threads = parallelism + 1L;
+
+        // no leaf has more levels than the whole product
+        int levels = levels(m, k, n, crossover);
+
+        for (int breadthFirst = config.maxDepth(); breadthFirst >= 0; breadthFirst--) {
+            for (int depthFirst = 0; depthFirst + breadthFirst <= Math.max(levels, breadthFirst); depthFirst++) {
+                int depth = depthFirst + breadthFirst;
+                for (int lean = 0; lean <= levels; lean++) {
+                    long[] leaves = new long[2];
+                    long forked = forkedPeak(m, k, n, crossover, variant, lean, depth, depthFirst, config, 0, 0,
+                            leaves);
+                    long temporaries = forked + Math.min(threads, leaves[1]) * leaves[0]
+                            + threads * packingElements();
+                    Plan plan = new Plan(engine, crossover, depth, depthFirst, lean, parallelism, operandBytes,
+                            temporaries * type.bytes(), budget);
+                    if (plan.fits() && leaves[0] <= Integer.MAX_VALUE - 8) {
+                        return plan;
+                    }
+                    // no leaf recursion to make lean
+                    if (leaves[1] == 0) {
+                        break;
+                    }
+                }
+            }
+        }
+        return new Plan(engine, crossover, CLASSICAL, 0, parallelism, operandBytes,
+                threads * packingElements() * type.bytes(), budget);
+    }
+
+    /**
+     * Plan of a batch whose products run one per thread on sequential engines, for the m x k by k x n envelope of
+     * those products. Every thread that runs a product (the pool's and the caller) may hold a workspace for the
+     * envelope at the same time, next to the operands and results of the whole batch, which are all live until the
+     * batch returns. As for a single sequential engine, lean levels are tried before the classical kernel.
+     */
+    public static Plan batch(int m, int k, int n, long operandElements, int crossover, StrassenVariant variant,
+                             ElementType type, int parallelism, long budget) {
+        String engine = type.crossoverKey("batch");
+        long operandBytes = operandElements * type.bytes();
+        long threads = parallelism + 1L;
+        int levels = levels(m, k, n, crossover);
+
+        for (int lean = 0; lean <= levels; lean++) {
+            long scratch = StrassenWorkspace.scratchSize(m, k, n, crossover, variant, lean);
+            if (scratch <= Integer.MAX_VALUE - 8) {
+                Plan plan = new Plan(engine, crossover, levels, lean, parallelism, operandBytes,
+                        threads * (scratch + packingElements()) * type.bytes(), budget);
+                if (plan.fits()) {
+                    return plan;
+                }
+            }
+        }
+        return new Plan(engine, crossover, CLASSICAL, 0, parallelism, operandBytes,
+                threads * packingElements() * type.bytes(), budget);
+    }
+
+    /**
+     * Plan of a distributed worker that runs {@code tasks} of the mh x kh by kh x nh products. Per task it holds the
+     * received and unpacked operand blocks (two per side for classic int tasks, one otherwise), their sums, the
+     * copies and product of the sequential engine and the packed result; results already sent stay pinned until the
+     * end.
+     */
+    public static Plan distributedWorker(int mh, int kh, int nh, int crossover, StrassenVariant variant,
+                                         ElementType type, int tasks, long budget) {
+        long a = (long) mh * kh, b = (long) kh * nh, c = (long) mh * nh;
+        Plan sequential = sequential(mh, kh, nh, crossover, variant, type, Long.MAX_VALUE);
+
+        long perTask;
+        if (type != ElementType.INT) {
+            // one flat block per side, product
+            perTask = a + b + c;
+        } else if (variant == StrassenVariant.WINOGRAD) {
+            // 2 flat blocks, 2 unpacked, 2 flat copies, product, unpacked product, packed product
+            perTask = 3 * a + 3 * b + 3 * c;
+        } else {
+            // 4 flat blocks, 4 unpacked, 2 sums, 2 flat copies, product, unpacked product, packed product
+            perTask = 4 * a + 4 * b + 2 * a + 2 * b + 3 * c;
+        }
+        long temporaries = (perTask + (long) Math.max(0, tasks - 1) * c) * type.bytes() + sequential.temporaryBytes();
+        return new Plan(type.crossoverKey("distributed"), crossover, sequential.depth(), sequential.leanLevels(), 1, 0,
+                temporaries, budget);
+    }
+
+    /**
+     * Plan of the distributed root for an M x K by K x N product: A, B and C plus the quadrant copies, the operand
+     * blocks queued for the workers, the seven collected products and their combinations.
+     */
+    public static Plan distributedRoot(int M, int K, int N, int crossover, StrassenVariant variant, ElementType type,
+                                       long budget) {
+        long a = (long) (M / 2) * (K / 2), b = (long) (K / 2) * (N / 2), c = (long) (M / 2) * (N / 2);
+        long temporaries;
+        if (type == ElementType.INT) {
+            // 8 quadrants, Winograd's 8 sums, the queued blocks (28, or 14 for Winograd), 7 products plus their flat
+            // copies, 4 C quadrants and the partial sums of one, peeling copies of A, B and C
+            boolean winograd = variant == StrassenVariant.WINOGRAD;
+            temporaries = 4 * a + 4 * b + (winograd ? 4 * a + 4 * b : 0) + (winograd ? 7 : 14) * (a + b)
+                    + 14 * c + 6 * c;
+            if (M % 2 != 0 || K % 2 != 0 || N % 2 != 0) {
+                temporaries += operands(M, K, N) + (long) M * N;
+            }
+        } else {
+            // 14 compact operands and 7 products
+            temporaries = 7 * a + 7 * b + 7 * c;
+        }
+        return new Plan(type.crossoverKey("distributed"), crossover, 1, 0, 1, operands(M, K, N) * type.bytes(),
+                temporaries * type.bytes(), budget);
+    }
+
+    // Strassen levels on the deepest path of the sequential recursion
+    static int levels(int m, int k, int n, int crossover) {
+        int smallest = Math.min(m, Math.min(k, n));
+        int largest = Math.max(m, Math.max(k, n));
+
+        if (smallest <= crossover) return 0;
+
+        if (largest >= 2 * smallest) {
+            if (m >= k && m >= n) return levels((m + 1) / 2, k, n, crossover);
+            if (n >= k) return levels(m, k, (n + 1) / 2, crossover);
+            return levels(m, (k + 1) / 2, n, crossover);
+        }
+
+        return 1 + levels(m / 2, k / 2, n / 2, crossover);
+    }
+
+    // Elements live at the peak of StrassenAlgorithmPA's forked levels, the top depthFirst of them depth-first; grain
+    // is that of the breadth-first subtree, set at its root. leaves[0] collects the largest workspace a sequential
+    // engine below the fork depth or the grain needs, with leanLevels lean levels, and leaves[1] counts those runs
+    private static long forkedPeak(int m, int k, int n, int crossover, StrassenVariant variant, int leanLevels,
+                                   int maxDepth, int depthFirst, ParallelConfig config, long grain, int depth,
+                                   long[] leaves) {
+        int smallest = Math.min(m, Math.min(k, n));
+        int largest = Math.max(m, Math.max(k, n));
+
+        if (smallest <= crossover) return 0;
+
+        if (depth == depthFirst) {
+            grain = config.grain(m, k, n);
+        }
+        if (depth >= maxDepth || depth >= depthFirst && (long) m * k * n < grain) {
+            leaves[0] = Math.max(leaves[0], StrassenWorkspace.scratchSize(m, k, n, crossover, variant,
+                    leanLevels));
+            leaves[1]++;
+            return 0;
+        }
+        boolean breadthFirst = depth >= depthFirst;
+
+        if (largest >= 2 * smallest) {
+            long first, second;
+            if (m >= k && m >= n) {
+                first = forkedPeak((m + 1) / 2, k, n, crossover, variant, leanLevels, maxDepth, depthFirst, config,
+                        grain, depth + 1, leaves);
+                second = forkedPeak(m / 2, k, n, crossover, variant, leanLevels, maxDepth, depthFirst, config,
+                        grain, depth + 1, leaves);
+            } else if (n >= k) {
+                first = forkedPeak(m, k, (n + 1) / 2, crossover, variant, leanLevels, maxDepth, depthFirst, config,
+                        grain, depth + 1, leaves);
+                second = forkedPeak(m, k, n / 2, crossover, variant, leanLevels, maxDepth, depthFirst, config,
+                        grain, depth + 1, leaves);
+            } else {
+                first = (long) m * n + forkedPeak(m, (k + 1) / 2, n, crossover, variant, leanLevels, maxDepth,
+                        depthFirst, config, grain, depth + 1, leaves);
+                second = forkedPeak(m, k / 2, n, crossover, variant, leanLevels, maxDepth, depthFirst, config,
+                        grain, depth + 1, leaves);
+                // the partial sum of the inner dimension is live while either half runs
+                return breadthFirst ? first + second : Math.max(first, (long) m * n + second);
+            }
+            // both halves run concurrently, or one after the other
+            return breadthFirst ? first + second : Math.max(first, second);
+        }
+
+        if (m % 2 != 0 || k % 2 != 0 || n % 2 != 0) {
+            return forkedPeak(m & ~1, k & ~1, n & ~1, crossover, variant, leanLevels, maxDepth, depthFirst, config,
+                    grain, depth, leaves);
+        }
+
+        long mh = m / 2, kh = k / 2, nh = n / 2;
+        long child = forkedPeak(m / 2, k / 2, n / 2, crossover, variant, leanLevels, maxDepth, depthFirst, config,
+                grain, depth + 1, leaves);
+        if (!breadthFirst) {
+            // one product, the sums of the subproduct that runs and its peak
+            return mh * nh + mh * kh + kh * nh + child;
+        }
+        // classic: five sums per side, winograd: S1..S4 and T1..T4; seven products either way
+        int sums = variant == StrassenVariant.WINOGRAD ? 4 : 5;
+        return sums * (mh * kh + kh * nh) + 7 * mh * nh + 7 * child;
+    }
+
+    private static double megabytes(long bytes) {
+        return bytes / (1024.0 * 1024.0);
+    }
+}
@@ -0,0 +1,126 @@
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+
+/**
+ * Row-major int matrix stored off-heap in a {@link MemorySegment}.
+ * <p>
+ * The storage is allocated from an {@link Arena} chosen by the caller, so its lifetime is explicit: closing the arena
+ * frees the matrix and all of its views at once, and the garbage collector never scans or moves it. Offsets and
+ * strides are longs, so a matrix may hold more than 2^31 elements. Matrices handed to the parallel engine must come
+ * from an arena that other threads may access, e.g. {@link Arena#ofShared()}.
+ */
+public class OffHeapMatrix {
+
+    static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT;
+
+    final MemorySegment segment;
+    // in elements, not bytes
+    final long offset;
+    final long stride;
+    final int rows;
+    final int cols;
+
+    public OffHeapMatrix(Arena arena, int rows, int cols) {
+        this(arena.allocate((long) rows * cols * Integer.BYTES, Integer.BYTES), 0, cols, rows, cols);
+    }
+
+    public OffHeapMatrix(Arena arena, int n) {
+        this(arena, n, n);
+    }
+
+    OffHeapMatrix(MemorySegment segment, long offset, long stride, int rows, int cols) {
+        this.segment = segment;
+        this.offset = offset;
+        this.stride = stride;
+        this.rows = rows;
+        this.cols = cols;
+    }
+
+    public static OffHeapMatrix of(Arena arena, Matrix A) {
+        OffHeapMatrix M = new OffHeapMatrix(arena, A.rows, A.cols);
+        M.copyFrom(A);
+        return M;
+    }
+
+    // Copies the matrix back to the heap; only possible while it fits in an array
+    public Matrix toMatrix() {
+        Matrix M = new Matrix(rows, cols);
+        copyTo(M);
+        return M;
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public int cols() {
+        return cols;
+    }
+
+    public int get(int i, int j) {
+        return segment.getAtIndex(INT, offset + i * stride + j);
+    }
+
+    public void set(int i, int j, int value) {
+        segment.setAtIndex(INT, offset + i * stride + j, value);
+    }
+
+    /**
+     * Returns a view of the {@code rows x cols} block starting at ({@code row}, {@code col}).
+     * Writes through the view are visible in this matrix.
+     */
+    public OffHeapMatrix view(int row, int col, int rows, int cols) {
+        if (row < 0 || col < 0 || rows < 0 || cols < 0 || row + rows > this.rows || col + cols > this.cols) {
+            throw new IndexOutOfBoundsException("View " + rows + "x" + cols + " at (" + row + ", " + col +
+                    ") outside " + this.rows + "x" + this.cols + " matrix");
+        }
+        return new OffHeapMatrix(segment, offset + row * stride + col, stride, rows, cols);
+    }
+
+    /**
+     * Returns quadrant ({@code qi}, {@code qj}) of a matrix with even dimensions, e.g. (0, 1) is X12.
+     */
+    public OffHeapMatrix quadrant(int qi, int qj) {
+        int h = rows / 2;
+        int w = cols / 2;
+        return view(qi * h, qj * w, h, w);
+    }
+
+    // Returns a view of the rows [row, row + rows) of this matrix
+    public OffHeapMatrix rowBlock(int row, int rows) {
+        return view(row, 0, rows, cols);
+    }
+
+    public void fill(int value) {
+        for (int i = 0; i < rows; i++) {
+            long row = offset + i * stride;
+            if (value == 0) {
+                segment.asSlice(row * Integer.BYTES, (long) cols * Integer.BYTES).fill((byte) 0);
+            } else {
+                for (int j = 0; j < cols; j++) {
+                    segment.setAtIndex(INT, row + j, value);
+                }
+            }
+        }
+    }
+
+    public void copyFrom(OffHeapMatrix A) {
+        for (int i = 0; i < rows; i++) {
+            MemorySegment.copy(A.segment, INT, (A.offset + i * A.stride) * Integer.BYTES,
+                    segment, INT, (offset + i * stride) * Integer.BYTES, cols);
+        }
+    }
+
+    public void copyFrom(Matrix A) {
+        for (int i = 0; i < rows; i++) {
+            MemorySegment.copy(A.data, A.offset + i * A.stride, segment, INT, (offset + i * stride) * Integer.BYTES, cols);
+        }
+    }
+
+    public void copyTo(Matrix A) {
+        for (int i = 0; i < rows; i++) {
+            MemorySegment.copy(segment, INT, (offset + i * stride) * Integer.BYTES, A.data, A.offset + i * A.stride, cols);
+        }
+    }
+}
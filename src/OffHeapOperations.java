@@ -0,0 +1,167 @@
+import java.lang.foreign.MemorySegment;
+
+/**
+ * {@link MatrixOperations} for {@link OffHeapMatrix}.
+ * <p>
+ * The element-wise passes run directly on the segments, with vector loads and stores when
+ * {@link MatrixOperations#VECTORIZED} is set. The classical kernel stages TILE x TILE blocks of A, B and C through
+ * per-thread heap tiles and multiplies them with {@link BlockedMultiply}, so off-heap products use the same packed
+ * (and, if enabled, vectorized) kernel as heap matrices; the staging copies cost about 2 / TILE of the multiply-adds.
+ */
+public class OffHeapOperations {
+
+    private static final int TILE = 256;
+
+    // A, B and C tiles of the calling thread
+    private static final ThreadLocal<Matrix[]> tiles =
+            ThreadLocal.withInitial(() -> new Matrix[] {new Matrix(TILE), new Matrix(TILE), new Matrix(TILE)});
+
+    // C = A + B, C may alias A or B
+    public void add(OffHeapMatrix A, OffHeapMatrix B, OffHeapMatrix C) {
+        if (MatrixOperations.VECTORIZED) {
+            VectorOperations.add(A, B, C);
+            return;
+        }
+
+        MemorySegment a = A.segment, b = B.segment, c = C.segment;
+
+        for (int i = 0; i < C.rows; i++) {
+            long iA = A.offset + i * A.stride;
+            long iB = B.offset + i * B.stride;
+            long iC = C.offset + i * C.stride;
+            for (int j = 0; j < C.cols; j++) {
+                c.setAtIndex(OffHeapMatrix.INT, iC + j,
+                        a.getAtIndex(OffHeapMatrix.INT, iA + j) + b.getAtIndex(OffHeapMatrix.INT, iB + j));
+            }
+        }
+    }
+
+    // C = A - B, C may alias A or B
+    public void subtract(OffHeapMatrix A, OffHeapMatrix B, OffHeapMatrix C) {
+        if (MatrixOperations.VECTORIZED) {
+            VectorOperations.subtract(A, B, C);
+            return;
+        }
+
+        MemorySegment a = A.segment, b = B.segment, c = C.segment;
+
+        for (int i = 0; i < C.rows; i++) {
+            long iA = A.offset + i * A.stride;
+            long iB = B.offset + i * B.stride;
+            long iC = C.offset + i * C.stride;
+            for (int j = 0; j < C.cols; j++) {
+                c.setAtIndex(OffHeapMatrix.INT, iC + j,
+                        a.getAtIndex(OffHeapMatrix.INT, iA + j) - b.getAtIndex(OffHeapMatrix.INT, iB + j));
+            }
+        }
+    }
+
+    // C = W + X - Y + Z in one pass (C11 = M1 + M4 - M5 + M7), C may alias any operand
+    public void addSubtractAdd(OffHeapMatrix W, OffHeapMatrix X, OffHeapMatrix Y, OffHeapMatrix Z, OffHeapMatrix C) {
+        if (MatrixOperations.VECTORIZED) {
+            VectorOperations.addSubtractAdd(W, X, Y, Z, C);
+            return;
+        }
+
+        MemorySegment w = W.segment, x = X.segment, y = Y.segment, z = Z.segment, c = C.segment;
+
+        for (int i = 0; i < C.rows; i++) {
+            long iW = W.offset + i * W.stride;
+            long iX = X.offset + i * X.stride;
+            long iY = Y.offset + i * Y.stride;
+            long iZ = Z.offset + i * Z.stride;
+            long iC = C.offset + i * C.stride;
+            for (int j = 0; j < C.cols; j++) {
+                c.setAtIndex(OffHeapMatrix.INT, iC + j,
+                        w.getAtIndex(OffHeapMatrix.INT, iW + j) + x.getAtIndex(OffHeapMatrix.INT, iX + j)
+                                - y.getAtIndex(OffHeapMatrix.INT, iY + j) + z.getAtIndex(OffHeapMatrix.INT, iZ + j));
+            }
+        }
+    }
+
+    // C = W - X + Y + Z in one pass (C22 = M1 - M2 + M3 + M6), C may alias any operand
+    public void subtractAddAdd(OffHeapMatrix W, OffHeapMatrix X, OffHeapMatrix Y, OffHeapMatrix Z, OffHeapMatrix C) {
+        if (MatrixOperations.VECTORIZED) {
+            VectorOperations.subtractAddAdd(W, X, Y, Z, C);
+            return;
+        }
+
+        MemorySegment w = W.segment, x = X.segment, y = Y.segment, z = Z.segment, c = C.segment;
+
+        for (int i = 0; i < C.rows; i++) {
+            long iW = W.offset + i * W.stride;
+            long iX = X.offset + i * X.stride;
+            long iY = Y.offset + i * Y.stride;
+            long iZ = Z.offset + i * Z.stride;
+            long iC = C.offset + i * C.stride;
+            for (int j = 0; j < C.cols; j++) {
+                c.setAtIndex(OffHeapMatrix.INT, iC + j,
+                        w.getAtIndex(OffHeapMatrix.INT, iW + j) - x.getAtIndex(OffHeapMatrix.INT, iX + j)
+                                + y.getAtIndex(OffHeapMatrix.INT, iY + j) + z.getAtIndex(OffHeapMatrix.INT, iZ + j));
+            }
+        }
+    }
+
+    // Rejects operands whose shapes do not form the product C = A * B
+    public static void checkDimensions(OffHeapMatrix A, OffHeapMatrix B, OffHeapMatrix C) {
+        if (A.cols != B.rows || C.rows != A.rows || C.cols != B.cols) {
+            throw new IllegalArgumentException("Cannot multiply " + A.rows + "x" + A.cols + " by " + B.rows + "x" +
+                    B.cols + " into " + C.rows + "x" + C.cols);
+        }
+    }
+
+    // C = A * B, C must not alias A or B
+    public static void multiply(OffHeapMatrix A, OffHeapMatrix B, OffHeapMatrix C) {
+        multiplyTiled(A, B, C, false);
+    }
+
+    // C += A * B, C must not alias A or B
+    public static void multiplyAdd(OffHeapMatrix A, OffHeapMatrix B, OffHeapMatrix C) {
+        multiplyTiled(A, B, C, true);
+    }
+
+    private static void multiplyTiled(OffHeapMatrix A, OffHeapMatrix B, OffHeapMatrix C, boolean accumulate) {
+        int m = A.rows, k = A.cols, n = B.cols;
+        Matrix[] t = tiles.get();
+
+        for (int i = 0; i < m; i += TILE) {
+            int mt = Math.min(TILE, m - i);
+            for (int j = 0; j < n; j += TILE) {
+                int nt = Math.min(TILE, n - j);
+                Matrix Ct = t[2].view(0, 0, mt, nt);
+                if (accumulate) {
+                    C.view(i, j, mt, nt).copyTo(Ct);
+                } else {
+                    Ct.fill(0);
+                }
+
+                for (int p = 0; p < k; p += TILE) {
+                    int kt = Math.min(TILE, k - p);
+                    Matrix At = t[0].view(0, 0, mt, kt);
+                    Matrix Bt = t[1].view(0, 0, kt, nt);
+                    A.view(i, p, mt, kt).copyTo(At);
+                    B.view(p, j, kt, nt).copyTo(Bt);
+                    BlockedMultiply.multiplyAdd(At, Bt, Ct);
+                }
+
+                C.view(i, j, mt, nt).copyFrom(Ct);
+            }
+        }
+    }
+
+    /**
+     * Completes C = A * B after the even core C[0:m, 0:n] was set to A[0:m, 0:k] * B[0:k, 0:n], see
+     * {@link MatrixOperations#completePeeled}.
+     */
+    public static void completePeeled(OffHeapMatrix A, OffHeapMatrix B, OffHeapMatrix C, int m, int k, int n) {
+        if (k < A.cols) {
+            multiplyAdd(A.view(0, k, m, A.cols - k), B.view(k, 0, B.rows - k, n), C.view(0, 0, m, n));
+        }
+        if (n < B.cols) {
+            multiply(A.view(0, 0, m, A.cols), B.view(0, n, B.rows, B.cols - n), C.view(0, n, m, B.cols - n));
+        }
+        if (m < A.rows) {
+            multiply(A.view(m, 0, A.rows - m, A.cols), B, C.view(m, 0, A.rows - m, B.cols));
+        }
+    }
+}
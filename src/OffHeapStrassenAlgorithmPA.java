@@ -0,0 +1,261 @@
+import java.lang.foreign.Arena;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * ForkJoin Strassen engine for {@link OffHeapMatrix}, mirroring {@link StrassenAlgorithmPA}.
+ * <p>
+ * The temporaries of a forked level live in a shared arena that is closed as soon as the level has combined its
+ * products. Below the fork depth the leaves run on {@link OffHeapStrassenAlgorithmSA}s with off-heap workspaces, at
+ * most one per thread, which are closed as soon as the product is done. A, B and C must be accessible from the pool's
+ * threads.
+ */
+public class OffHeapStrassenAlgorithmPA extends OffHeapOperations {
+
+    // pool and granularity, see ParallelConfig
+    private final ParallelConfig config;
+    private final ForkJoinPool forkJoinPool;
+    private final int crossover;
+    private final StrassenVariant variant;
+
+    public OffHeapStrassenAlgorithmPA() {
+        this(StrassenCrossover.load("parallel"));
+    }
+
+    public OffHeapStrassenAlgorithmPA(int crossover) {
+        this(crossover, StrassenVariant.CLASSIC);
+    }
+
+    public OffHeapStrassenAlgorithmPA(int crossover, StrassenVariant variant) {
+        this(crossover, variant, ParallelConfig.defaults());
+    }
+
+    public OffHeapStrassenAlgorithmPA(int crossover, StrassenVariant variant, ParallelConfig config) {
+        this.crossover = Math.max(1, crossover);
+        this.variant = variant;
+        this.config = config;
+        this.forkJoinPool = config.pool();
+    }
+
+    // C = A * B for an m x k matrix A and a k x n matrix B
+    public void multiplyParallel(OffHeapMatrix A, OffHeapMatrix B, OffHeapMatrix C) {
+        checkDimensions(A, B, C);
+        // off-heap temporaries do not pressure the heap, so forking stops once there are a few tasks per thread
+        ForkSchedule schedule = new ForkSchedule(config.maxDepth(), 0, 0, config.grain(A.rows(), A.cols(), B.cols()));
+        SequentialEngines<OffHeapStrassenAlgorithmSA> engines =
+                new SequentialEngines<>(() -> new OffHeapStrassenAlgorithmSA(crossover, variant));
+        try {
+            forkJoinPool.invoke(new StrassenTask(A, B, C, 0, schedule, engines));
+        } finally {
+            engines.forEach(OffHeapStrassenAlgorithmSA::close);
+        }
+    }
+
+    // Computes C = A * B in place; quadrants of A, B and C are views into their parents
+    private class StrassenTask extends RecursiveAction {
+        private final OffHeapMatrix A, B, C;
+        private final int depth;
+        private final ForkSchedule schedule;
+        private final SequentialEngines<OffHeapStrassenAlgorithmSA> engines;
+
+        public StrassenTask(OffHeapMatrix A, OffHeapMatrix B, OffHeapMatrix C, int depth, ForkSchedule schedule,
+                            SequentialEngines<OffHeapStrassenAlgorithmSA> engines) {
+            this.A = A;
+            this.B = B;
+            this.C = C;
+            this.depth = depth;
+            this.schedule = schedule;
+            this.engines = engines;
+        }
+
+        @Override
+        protected void compute() {
+            int m = A.rows(), k = A.cols(), n = B.cols();
+            int smallest = Math.min(m, Math.min(k, n));
+            int largest = Math.max(m, Math.max(k, n));
+
+            if (smallest <= crossover) {
+                multiply(A, B, C);
+                return;
+            }
+
+            if (schedule.sequential(depth, (long) m * k * n)) {
+                engines.run(engine -> engine.multiplySA(A, B, C));
+                return;
+            }
+
+            if (largest >= 2 * smallest) {
+                computeSplit();
+                return;
+            }
+
+            if (m % 2 != 0 || k % 2 != 0 || n % 2 != 0) {
+                // dynamic peeling: Strassen on the even core, then the odd row, column and inner slice classically
+                int me = m & ~1, ke = k & ~1, ne = n & ~1;
+                new StrassenTask(A.view(0, 0, me, ke), B.view(0, 0, ke, ne), C.view(0, 0, me, ne), depth,
+                        schedule, engines).compute();
+                completePeeled(A, B, C, me, ke, ne);
+                return;
+            }
+
+            try (Arena arena = Arena.ofShared()) {
+                if (variant == StrassenVariant.WINOGRAD) {
+                    computeWinograd(arena);
+                } else {
+                    computeClassic(arena);
+                }
+            }
+        }
+
+        private void computeClassic(Arena arena) {
+            int mh = A.rows() / 2, kh = A.cols() / 2, nh = B.cols() / 2;
+            OffHeapMatrix A11 = A.quadrant(0, 0);
+            OffHeapMatrix A12 = A.quadrant(0, 1);
+            OffHeapMatrix A21 = A.quadrant(1, 0);
+            OffHeapMatrix A22 = A.quadrant(1, 1);
+            OffHeapMatrix B11 = B.quadrant(0, 0);
+            OffHeapMatrix B12 = B.quadrant(0, 1);
+            OffHeapMatrix B21 = B.quadrant(1, 0);
+            OffHeapMatrix B22 = B.quadrant(1, 1);
+
+            OffHeapMatrix m1 = new OffHeapMatrix(arena, mh, nh);
+            OffHeapMatrix m2 = new OffHeapMatrix(arena, mh, nh);
+            OffHeapMatrix m3 = new OffHeapMatrix(arena, mh, nh);
+            OffHeapMatrix m4 = new OffHeapMatrix(arena, mh, nh);
+            OffHeapMatrix m5 = new OffHeapMatrix(arena, mh, nh);
+            OffHeapMatrix m6 = new OffHeapMatrix(arena, mh, nh);
+            OffHeapMatrix m7 = new OffHeapMatrix(arena, mh, nh);
+
+            StrassenTask M1 = new StrassenTask(sum(arena, A11, A22, mh, kh), sum(arena, B11, B22, kh, nh), m1,
+                    depth + 1, schedule, engines);
+            StrassenTask M2 = new StrassenTask(sum(arena, A21, A22, mh, kh), B11, m2, depth + 1, schedule, engines);
+            StrassenTask M3 = new StrassenTask(A11, difference(arena, B12, B22, kh, nh), m3,
+                    depth + 1, schedule, engines);
+            StrassenTask M4 = new StrassenTask(A22, difference(arena, B21, B11, kh, nh), m4,
+                    depth + 1, schedule, engines);
+            StrassenTask M5 = new StrassenTask(sum(arena, A11, A12, mh, kh), B22, m5, depth + 1, schedule, engines);
+            StrassenTask M6 = new StrassenTask(difference(arena, A21, A11, mh, kh), sum(arena, B11, B12, kh, nh), m6,
+                    depth + 1, schedule, engines);
+            StrassenTask M7 = new StrassenTask(difference(arena, A12, A22, mh, kh), sum(arena, B21, B22, kh, nh), m7,
+                    depth + 1, schedule, engines);
+
+            invokeAll(M1, M2, M3, M4, M5, M6, M7);
+
+            OffHeapMatrix C11 = C.quadrant(0, 0);
+            OffHeapMatrix C12 = C.quadrant(0, 1);
+            OffHeapMatrix C21 = C.quadrant(1, 0);
+            OffHeapMatrix C22 = C.quadrant(1, 1);
+
+            RowBlocks.run(mh, 4 * nh, (row, rows) -> {
+                OffHeapMatrix p1 = m1.rowBlock(row, rows), p2 = m2.rowBlock(row, rows), p3 = m3.rowBlock(row, rows);
+                OffHeapMatrix p4 = m4.rowBlock(row, rows), p5 = m5.rowBlock(row, rows), p6 = m6.rowBlock(row, rows);
+                OffHeapMatrix p7 = m7.rowBlock(row, rows);
+                addSubtractAdd(p1, p4, p5, p7, C11.rowBlock(row, rows));
+                add(p3, p5, C12.rowBlock(row, rows));
+                add(p2, p4, C21.rowBlock(row, rows));
+                subtractAddAdd(p1, p2, p3, p6, C22.rowBlock(row, rows));
+            });
+        }
+
+        // Halves the largest dimension and runs both halves concurrently
+        private void computeSplit() {
+            int m = A.rows(), k = A.cols(), n = B.cols();
+
+            if (m >= k && m >= n) {
+                int top = (m + 1) / 2;
+                invokeAll(new StrassenTask(A.view(0, 0, top, k), B, C.view(0, 0, top, n), depth + 1, schedule, engines),
+                        new StrassenTask(A.view(top, 0, m - top, k), B, C.view(top, 0, m - top, n),
+                                depth + 1, schedule, engines));
+            } else if (n >= k) {
+                int left = (n + 1) / 2;
+                invokeAll(new StrassenTask(A, B.view(0, 0, k, left), C.view(0, 0, m, left),
+                                depth + 1, schedule, engines),
+                        new StrassenTask(A, B.view(0, left, k, n - left), C.view(0, left, m, n - left),
+                                depth + 1, schedule, engines));
+            } else {
+                // C = A1 * B1 + A2 * B2 over the two halves of the inner dimension
+                int front = (k + 1) / 2;
+                try (Arena arena = Arena.ofShared()) {
+                    OffHeapMatrix T = new OffHeapMatrix(arena, m, n);
+                    invokeAll(new StrassenTask(A.view(0, 0, m, front), B.view(0, 0, front, n), C,
+                                    depth + 1, schedule, engines),
+                            new StrassenTask(A.view(0, front, m, k - front), B.view(front, 0, k - front, n), T,
+                                    depth + 1, schedule, engines));
+                    RowBlocks.run(m, n, (row, rows) -> add(C.rowBlock(row, rows), T.rowBlock(row, rows),
+                            C.rowBlock(row, rows)));
+                }
+            }
+        }
+
+        private void computeWinograd(Arena arena) {
+            int mh = A.rows() / 2, kh = A.cols() / 2, nh = B.cols() / 2;
+            OffHeapMatrix A11 = A.quadrant(0, 0);
+            OffHeapMatrix A12 = A.quadrant(0, 1);
+            OffHeapMatrix A21 = A.quadrant(1, 0);
+            OffHeapMatrix A22 = A.quadrant(1, 1);
+            OffHeapMatrix B11 = B.quadrant(0, 0);
+            OffHeapMatrix B12 = B.quadrant(0, 1);
+            OffHeapMatrix B21 = B.quadrant(1, 0);
+            OffHeapMatrix B22 = B.quadrant(1, 1);
+
+            OffHeapMatrix S1 = sum(arena, A21, A22, mh, kh);
+            OffHeapMatrix S2 = difference(arena, S1, A11, mh, kh);
+            OffHeapMatrix S3 = difference(arena, A11, A21, mh, kh);
+            OffHeapMatrix S4 = difference(arena, A12, S2, mh, kh);
+            OffHeapMatrix T1 = difference(arena, B12, B11, kh, nh);
+            OffHeapMatrix T2 = difference(arena, B22, T1, kh, nh);
+            OffHeapMatrix T3 = difference(arena, B22, B12, kh, nh);
+            OffHeapMatrix T4 = difference(arena, T2, B21, kh, nh);
+
+            OffHeapMatrix m1 = new OffHeapMatrix(arena, mh, nh);
+            OffHeapMatrix m2 = new OffHeapMatrix(arena, mh, nh);
+            OffHeapMatrix m3 = new OffHeapMatrix(arena, mh, nh);
+            OffHeapMatrix m4 = new OffHeapMatrix(arena, mh, nh);
+            OffHeapMatrix m5 = new OffHeapMatrix(arena, mh, nh);
+            OffHeapMatrix m6 = new OffHeapMatrix(arena, mh, nh);
+            OffHeapMatrix m7 = new OffHeapMatrix(arena, mh, nh);
+
+            invokeAll(new StrassenTask(A11, B11, m1, depth + 1, schedule, engines),
+                    new StrassenTask(A12, B21, m2, depth + 1, schedule, engines),
+                    new StrassenTask(S4, B22, m3, depth + 1, schedule, engines),
+                    new StrassenTask(A22, T4, m4, depth + 1, schedule, engines),
+                    new StrassenTask(S1, T1, m5, depth + 1, schedule, engines),
+                    new StrassenTask(S2, T2, m6, depth + 1, schedule, engines),
+                    new StrassenTask(S3, T3, m7, depth + 1, schedule, engines));
+
+            OffHeapMatrix C11 = C.quadrant(0, 0);
+            OffHeapMatrix C12 = C.quadrant(0, 1);
+            OffHeapMatrix C21 = C.quadrant(1, 0);
+            OffHeapMatrix C22 = C.quadrant(1, 1);
+
+            RowBlocks.run(mh, 4 * nh, (row, rows) -> {
+                OffHeapMatrix p1 = m1.rowBlock(row, rows), p2 = m2.rowBlock(row, rows), p3 = m3.rowBlock(row, rows);
+                OffHeapMatrix p4 = m4.rowBlock(row, rows), p5 = m5.rowBlock(row, rows), p6 = m6.rowBlock(row, rows);
+                OffHeapMatrix p7 = m7.rowBlock(row, rows);
+                add(p1, p2, C11.rowBlock(row, rows));
+                add(p1, p6, p6);
+                add(p6, p7, p7);
+                add(p6, p5, p6);
+                add(p6, p3, C12.rowBlock(row, rows));
+                subtract(p7, p4, C21.rowBlock(row, rows));
+                add(p7, p5, C22.rowBlock(row, rows));
+            });
+        }
+    }
+
+    // X + Y in a new matrix of the arena, over row blocks at the top levels
+    private OffHeapMatrix sum(Arena arena, OffHeapMatrix X, OffHeapMatrix Y, int rows, int cols) {
+        OffHeapMatrix S = new OffHeapMatrix(arena, rows, cols);
+        RowBlocks.run(rows, cols, (row, count) -> add(X.rowBlock(row, count), Y.rowBlock(row, count),
+                S.rowBlock(row, count)));
+        return S;
+    }
+
+    // X - Y in a new matrix of the arena, over row blocks at the top levels
+    private OffHeapMatrix difference(Arena arena, OffHeapMatrix X, OffHeapMatrix Y, int rows, int cols) {
+        OffHeapMatrix D = new OffHeapMatrix(arena, rows, cols);
+        RowBlocks.run(rows, cols, (row, count) -> subtract(X.rowBlock(row, count), Y.rowBlock(row, count),
+                D.rowBlock(row, count)));
+        return D;
+    }
+}
@@ -0,0 +1,258 @@
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+
+/**
+ * Sequential Strassen engine for {@link OffHeapMatrix}: the recursion of {@link StrassenAlgorithmSA} with the scratch
+ * arena kept off-heap as well, so a product touches no heap beyond the staging tiles of the leaf kernel. It shares the
+ * int crossover of the sequential engine. Closing the engine frees its workspace.
+ */
+public class OffHeapStrassenAlgorithmSA extends OffHeapOperations implements AutoCloseable {
+
+    // blocks of this size or smaller are multiplied classically
+    private final int crossover;
+    private final StrassenVariant variant;
+    // scratch arena (see StrassenWorkspace), grown on demand and reused across products; shared so that the parallel
+    // engine can close the workspaces of its worker threads
+    private Arena arena;
+    private MemorySegment workspace;
+    private long capacity;
+    private long top;
+
+    public OffHeapStrassenAlgorithmSA() {
+        this(StrassenCrossover.load("sequential"));
+    }
+
+    public OffHeapStrassenAlgorithmSA(int crossover) {
+        this(crossover, StrassenVariant.CLASSIC);
+    }
+
+    public OffHeapStrassenAlgorithmSA(int crossover, StrassenVariant variant) {
+        this.crossover = Math.max(1, crossover);
+        this.variant = variant;
+    }
+
+    public int getCrossover() {
+        return crossover;
+    }
+
+    public StrassenVariant getVariant() {
+        return variant;
+    }
+
+    // C = A * B for an m x k matrix A and a k x n matrix B. Not thread-safe.
+    public void multiplySA(OffHeapMatrix A, OffHeapMatrix B, OffHeapMatrix C) {
+
+        checkDimensions(A, B, C);
+
+        int m = A.rows(), k = A.cols(), n = B.cols();
+        long scratch = StrassenWorkspace.scratchSize(m, k, n, crossover, variant);
+
+        if (capacity < scratch) {
+            close();
+            arena = Arena.ofShared();
+            workspace = arena.allocate(scratch * Integer.BYTES, Integer.BYTES);
+            capacity = scratch;
+        }
+
+        top = 0;
+        strassen(A, B, C);
+    }
+
+    private OffHeapMatrix allocate(int rows, int cols) {
+        OffHeapMatrix M = new OffHeapMatrix(workspace, top, cols, rows, cols);
+        top += (long) rows * cols;
+        return M;
+    }
+
+    @Override
+    public void close() {
+        if (arena != null) {
+            arena.close();
+            arena = null;
+            workspace = null;
+            capacity = 0;
+        }
+    }
+
+    private void strassen(OffHeapMatrix A, OffHeapMatrix B, OffHeapMatrix C) {
+
+        int m = A.rows(), k = A.cols(), n = B.cols();
+        int smallest = Math.min(m, Math.min(k, n));
+        int largest = Math.max(m, Math.max(k, n));
+
+        if (smallest <= crossover) {
+            multiply(A, B, C);
+            return;
+        }
+
+        if (largest >= 2 * smallest) {
+            splitLargest(A, B, C);
+            return;
+        }
+
+        if (m % 2 != 0 || k % 2 != 0 || n % 2 != 0) {
+            // dynamic peeling: Strassen on the even core, then the odd row, column and inner slice classically
+            int me = m & ~1, ke = k & ~1, ne = n & ~1;
+            strassen(A.view(0, 0, me, ke), B.view(0, 0, ke, ne), C.view(0, 0, me, ne));
+            completePeeled(A, B, C, me, ke, ne);
+            return;
+        }
+
+        if (variant == StrassenVariant.WINOGRAD) {
+            winograd(A, B, C);
+            return;
+        }
+
+        int mh = m / 2, kh = k / 2, nh = n / 2;
+        long mark = top;
+
+        OffHeapMatrix A11 = A.quadrant(0, 0);
+        OffHeapMatrix A12 = A.quadrant(0, 1);
+        OffHeapMatrix A21 = A.quadrant(1, 0);
+        OffHeapMatrix A22 = A.quadrant(1, 1);
+        OffHeapMatrix B11 = B.quadrant(0, 0);
+        OffHeapMatrix B12 = B.quadrant(0, 1);
+        OffHeapMatrix B21 = B.quadrant(1, 0);
+        OffHeapMatrix B22 = B.quadrant(1, 1);
+
+        OffHeapMatrix M1 = allocate(mh, nh);
+        OffHeapMatrix M2 = allocate(mh, nh);
+        OffHeapMatrix M3 = allocate(mh, nh);
+        OffHeapMatrix M4 = allocate(mh, nh);
+        OffHeapMatrix M5 = allocate(mh, nh);
+        OffHeapMatrix M6 = allocate(mh, nh);
+        OffHeapMatrix M7 = allocate(mh, nh);
+        // operand sums, overwritten for every product
+        OffHeapMatrix S = allocate(mh, kh);
+        OffHeapMatrix T = allocate(kh, nh);
+
+        // M1 = (A11 + A22) * (B11 + B22)
+        add(A11, A22, S);
+        add(B11, B22, T);
+        strassen(S, T, M1);
+        // M2 = (A21 + A22) * B11
+        add(A21, A22, S);
+        strassen(S, B11, M2);
+        // M3 = A11 * (B12 - B22)
+        subtract(B12, B22, T);
+        strassen(A11, T, M3);
+        // M4 = A22 * (B21 − B11)
+        subtract(B21, B11, T);
+        strassen(A22, T, M4);
+        // M5 = (A11 + A12) * B22
+        add(A11, A12, S);
+        strassen(S, B22, M5);
+        // M6 = (A21 - A11) * (B11 + B12)
+        subtract(A21, A11, S);
+        add(B11, B12, T);
+        strassen(S, T, M6);
+        // M7 = (A12 - A22) * (B21 + B22)
+        subtract(A12, A22, S);
+        add(B21, B22, T);
+        strassen(S, T, M7);
+
+        combineClassic(new OffHeapMatrix[] {M1, M2, M3, M4, M5, M6, M7}, C);
+
+        top = mark;
+    }
+
+    // Halves the largest of m, k and n; a product this skewed gains nothing from a Strassen step
+    private void splitLargest(OffHeapMatrix A, OffHeapMatrix B, OffHeapMatrix C) {
+
+        int m = A.rows(), k = A.cols(), n = B.cols();
+
+        if (m >= k && m >= n) {
+            int half = (m + 1) / 2;
+            strassen(A.view(0, 0, half, k), B, C.view(0, 0, half, n));
+            strassen(A.view(half, 0, m - half, k), B, C.view(half, 0, m - half, n));
+        } else if (n >= k) {
+            int left = (n + 1) / 2;
+            strassen(A, B.view(0, 0, k, left), C.view(0, 0, m, left));
+            strassen(A, B.view(0, left, k, n - left), C.view(0, left, m, n - left));
+        } else {
+            // C = A1 * B1 + A2 * B2 over the two halves of the inner dimension
+            int front = (k + 1) / 2;
+            long mark = top;
+            OffHeapMatrix T = allocate(m, n);
+            strassen(A.view(0, 0, m, front), B.view(0, 0, front, n), C);
+            strassen(A.view(0, front, m, k - front), B.view(front, 0, k - front, n), T);
+            add(C, T, C);
+            top = mark;
+        }
+    }
+
+    // One Strassen-Winograd level: 8 operand additions, 7 products and 7 result additions
+    private void winograd(OffHeapMatrix A, OffHeapMatrix B, OffHeapMatrix C) {
+
+        int mh = A.rows() / 2, kh = A.cols() / 2, nh = B.cols() / 2;
+        long mark = top;
+
+        OffHeapMatrix A11 = A.quadrant(0, 0);
+        OffHeapMatrix A12 = A.quadrant(0, 1);
+        OffHeapMatrix A21 = A.quadrant(1, 0);
+        OffHeapMatrix A22 = A.quadrant(1, 1);
+        OffHeapMatrix B11 = B.quadrant(0, 0);
+        OffHeapMatrix B12 = B.quadrant(0, 1);
+        OffHeapMatrix B21 = B.quadrant(1, 0);
+        OffHeapMatrix B22 = B.quadrant(1, 1);
+
+        OffHeapMatrix S1 = allocate(mh, kh);
+        OffHeapMatrix S2 = allocate(mh, kh);
+        OffHeapMatrix S3 = allocate(mh, kh);
+        OffHeapMatrix S4 = allocate(mh, kh);
+        OffHeapMatrix T1 = allocate(kh, nh);
+        OffHeapMatrix T2 = allocate(kh, nh);
+        OffHeapMatrix T3 = allocate(kh, nh);
+        OffHeapMatrix T4 = allocate(kh, nh);
+
+        // S1 = A21 + A22, S2 = S1 − A11, S3 = A11 − A21, S4 = A12 − S2
+        add(A21, A22, S1);
+        subtract(S1, A11, S2);
+        subtract(A11, A21, S3);
+        subtract(A12, S2, S4);
+        // T1 = B12 − B11, T2 = B22 − T1, T3 = B22 − B12, T4 = T2 − B21
+        subtract(B12, B11, T1);
+        subtract(B22, T1, T2);
+        subtract(B22, B12, T3);
+        subtract(T2, B21, T4);
+
+        OffHeapMatrix M1 = allocate(mh, nh);
+        OffHeapMatrix M2 = allocate(mh, nh);
+        OffHeapMatrix M3 = allocate(mh, nh);
+        OffHeapMatrix M4 = allocate(mh, nh);
+        OffHeapMatrix M5 = allocate(mh, nh);
+        OffHeapMatrix M6 = allocate(mh, nh);
+        OffHeapMatrix M7 = allocate(mh, nh);
+
+        strassen(A11, B11, M1);
+        strassen(A12, B21, M2);
+        strassen(S4, B22, M3);
+        strassen(A22, T4, M4);
+        strassen(S1, T1, M5);
+        strassen(S2, T2, M6);
+        strassen(S3, T3, M7);
+
+        combineWinograd(new OffHeapMatrix[] {M1, M2, M3, M4, M5, M6, M7}, C);
+
+        top = mark;
+    }
+
+    // C11 = M1 + M4 − M5 + M7, C12 = M3 + M5, C21 = M2 + M4, C22 = M1 − M2 + M3 + M6
+    private void combineClassic(OffHeapMatrix[] M, OffHeapMatrix C) {
+        addSubtractAdd(M[0], M[3], M[4], M[6], C.quadrant(0, 0));
+        add(M[2], M[4], C.quadrant(0, 1));
+        add(M[1], M[3], C.quadrant(1, 0));
+        subtractAddAdd(M[0], M[1], M[2], M[5], C.quadrant(1, 1));
+    }
+
+    // U2 = M1 + M6, U3 = U2 + M7, U4 = U2 + M5 (kept in M6, M7 and M6), then C12 = U4 + M3, C21 = U3 − M4, C22 = U3 + M5
+    private void combineWinograd(OffHeapMatrix[] M, OffHeapMatrix C) {
+        add(M[0], M[1], C.quadrant(0, 0));
+        add(M[0], M[5], M[5]);
+        add(M[5], M[6], M[6]);
+        add(M[5], M[4], M[5]);
+        add(M[5], M[2], C.quadrant(0, 1));
+        subtract(M[6], M[3], C.quadrant(1, 0));
+        add(M[6], M[4], C.quadrant(1, 1));
+    }
+}
@@ -0,0 +1,299 @@
+import com.sun.management.HotSpotDiagnosticMXBean;
+import com.sun.management.OperatingSystemMXBean;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.management.ManagementFactory;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Strassen for products whose operands, result and temporaries do not fit in memory.
+ * <p>
+ * A, B and C are matrices mapped from files with {@link #map}, and the temporaries of the out-of-core levels live in
+ * a mapped scratch file, so the operating system pages everything in and out as needed. The block order is chosen to
+ * keep re-reads down:
+ * <ul>
+ *     <li>the recursion runs depth first and leaves the files as soon as a subproblem's operands, result and
+ *     workspace fit in the memory budget; that subproblem is read into memory once, multiplied there by
+ *     {@link OffHeapStrassenAlgorithmSA} and its result written back once.</li>
+ *     <li>an out-of-core level folds every product into the C quadrants right after computing it, while the product
+ *     is still in the page cache, so a level keeps one product block on disk instead of seven and never reads the
+ *     products back for a separate combination pass.</li>
+ * </ul>
+ * Out-of-core levels always use the classic scheme; the in-memory subproblems use the configured variant.
+ */
+public class OutOfCoreStrassenAlgorithmSA extends OffHeapOperations implements AutoCloseable {
+
+    private final int crossover;
+    private final StrassenVariant variant;
+    // bytes of memory an in-core subproblem may use for its operands, result and workspace
+    private final long memoryBudget;
+    private final Path scratchDirectory;
+    private final OffHeapStrassenAlgorithmSA inCore;
+
+    // per multiply: staging buffer for in-core subproblems and the bump allocator over the mapped scratch file
+    private Arena arena;
+    private MemorySegment staging;
+    private long stagingCapacity;
+    private MemorySegment scratch;
+    private long top;
+
+    public OutOfCoreStrassenAlgorithmSA(Path scratchDirectory) {
+        this(StrassenCrossover.load("sequential"), StrassenVariant.CLASSIC, scratchDirectory, defaultMemoryBudget());
+    }
+
+    public OutOfCoreStrassenAlgorithmSA(int crossover, StrassenVariant variant, Path scratchDirectory, long memoryBudget) {
+        this.crossover = Math.max(1, crossover);
+        this.variant = variant;
+        this.scratchDirectory = scratchDirectory;
+        this.memoryBudget = memoryBudget;
+        this.inCore = new OffHeapStrassenAlgorithmSA(this.crossover, variant);
+    }
+
+    /**
+     * Half of the physical memory, leaving the rest to the page cache that backs the mapped files, but no more than
+     * three quarters of the direct memory limit ({@code -XX:MaxDirectMemorySize}, by default the heap size) that
+     * arena allocations count against.
+     */
+    public static long defaultMemoryBudget() {
+        long physical = Runtime.getRuntime().maxMemory();
+        if (ManagementFactory.getOperatingSystemMXBean() instanceof OperatingSystemMXBean os) {
+            physical = os.getTotalMemorySize();
+        }
+
+        long direct = Runtime.getRuntime().maxMemory();
+        HotSpotDiagnosticMXBean hotSpot = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+        if (hotSpot != null) {
+            long configured = Long.parseLong(hotSpot.getVMOption("MaxDirectMemorySize").getValue());
+            if (configured > 0) {
+                direct = configured;
+            }
+        }
+
+        return Math.min(physical / 2, direct / 4 * 3);
+    }
+
+    /**
+     * Maps {@code rows x cols} ints of {@code file}, creating or extending it as needed, in native byte order. Writes
+     * go to the file; the mapping lives until {@code arena} is closed.
+     */
+    public static OffHeapMatrix map(Arena arena, Path file, int rows, int cols) throws IOException {
+        MemorySegment segment = mapFile(arena, file, (long) rows * cols * Integer.BYTES);
+        return new OffHeapMatrix(segment, 0, cols, rows, cols);
+    }
+
+    private static MemorySegment mapFile(Arena arena, Path file, long bytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes, arena);
+        }
+    }
+
+    // C = A * B for an m x k matrix A and a k x n matrix B. Not thread-safe.
+    public void multiplyOutOfCore(OffHeapMatrix A, OffHeapMatrix B, OffHeapMatrix C) throws IOException {
+
+        checkDimensions(A, B, C);
+
+        long scratchElements = scratchSize(A.rows(), A.cols(), B.cols());
+        Path scratchFile = null;
+
+        try (Arena arena = Arena.ofConfined()) {
+            this.arena = arena;
+            if (scratchElements > 0) {
+                scratchFile = Files.createTempFile(scratchDirectory, "strassen-", ".scratch");
+                scratch = mapFile(arena, scratchFile, scratchElements * Integer.BYTES);
+            }
+            top = 0;
+            outOfCore(A, B, C);
+        } finally {
+            this.arena = null;
+            staging = null;
+            stagingCapacity = 0;
+            scratch = null;
+            // unmapped by now, so the file can go
+            if (scratchFile != null) {
+                Files.deleteIfExists(scratchFile);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        inCore.close();
+    }
+
+    private boolean fitsInMemory(int m, int k, int n) {
+        long elements = (long) m * k + (long) k * n + (long) m * n
+                + StrassenWorkspace.scratchSize(m, k, n, crossover, variant);
+        return elements * Integer.BYTES <= memoryBudget;
+    }
+
+    // Elements of the mapped scratch file; mirrors outOfCore the way StrassenWorkspace.scratchSize mirrors the SA
+    private long scratchSize(int m, int k, int n) {
+        int smallest = Math.min(m, Math.min(k, n));
+        int largest = Math.max(m, Math.max(k, n));
+
+        if (fitsInMemory(m, k, n) || smallest <= crossover) return 0;
+
+        if (largest >= 2 * smallest) {
+            if (m >= k && m >= n) {
+                return Math.max(scratchSize((m + 1) / 2, k, n), scratchSize(m / 2, k, n));
+            } else if (n >= k) {
+                return Math.max(scratchSize(m, k, (n + 1) / 2), scratchSize(m, k, n / 2));
+            }
+            return (long) m * n + Math.max(scratchSize(m, (k + 1) / 2, n), scratchSize(m, k / 2, n));
+        }
+
+        if (m % 2 != 0 || k % 2 != 0 || n % 2 != 0) {
+            return scratchSize(m & ~1, k & ~1, n & ~1);
+        }
+
+        // one operand sum per side and one product
+        long mh = m / 2, kh = k / 2, nh = n / 2;
+        return mh * kh + kh * nh + mh * nh + scratchSize(m / 2, k / 2, n / 2);
+    }
+
+    private OffHeapMatrix allocate(int rows, int cols) {
+        OffHeapMatrix M = new OffHeapMatrix(scratch, top, cols, rows, cols);
+        top += (long) rows * cols;
+        return M;
+    }
+
+    private void outOfCore(OffHeapMatrix A, OffHeapMatrix B, OffHeapMatrix C) {
+
+        int m = A.rows(), k = A.cols(), n = B.cols();
+        int smallest = Math.min(m, Math.min(k, n));
+        int largest = Math.max(m, Math.max(k, n));
+
+        if (fitsInMemory(m, k, n)) {
+            inCore(A, B, C);
+            return;
+        }
+
+        if (smallest <= crossover) {
+            multiply(A, B, C);
+            return;
+        }
+
+        if (largest >= 2 * smallest) {
+            splitLargest(A, B, C);
+            return;
+        }
+
+        if (m % 2 != 0 || k % 2 != 0 || n % 2 != 0) {
+            int me = m & ~1, ke = k & ~1, ne = n & ~1;
+            outOfCore(A.view(0, 0, me, ke), B.view(0, 0, ke, ne), C.view(0, 0, me, ne));
+            completePeeled(A, B, C, me, ke, ne);
+            return;
+        }
+
+        int mh = m / 2, kh = k / 2, nh = n / 2;
+        long mark = top;
+
+        OffHeapMatrix A11 = A.quadrant(0, 0);
+        OffHeapMatrix A12 = A.quadrant(0, 1);
+        OffHeapMatrix A21 = A.quadrant(1, 0);
+        OffHeapMatrix A22 = A.quadrant(1, 1);
+        OffHeapMatrix B11 = B.quadrant(0, 0);
+        OffHeapMatrix B12 = B.quadrant(0, 1);
+        OffHeapMatrix B21 = B.quadrant(1, 0);
+        OffHeapMatrix B22 = B.quadrant(1, 1);
+        OffHeapMatrix C11 = C.quadrant(0, 0);
+        OffHeapMatrix C12 = C.quadrant(0, 1);
+        OffHeapMatrix C21 = C.quadrant(1, 0);
+        OffHeapMatrix C22 = C.quadrant(1, 1);
+
+        OffHeapMatrix S = allocate(mh, kh);
+        OffHeapMatrix T = allocate(kh, nh);
+        OffHeapMatrix M = allocate(mh, nh);
+
+        // M1 = (A11 + A22) * (B11 + B22): C11 = M1, C22 = M1
+        add(A11, A22, S);
+        add(B11, B22, T);
+        outOfCore(S, T, M);
+        C11.copyFrom(M);
+        C22.copyFrom(M);
+        // M2 = (A21 + A22) * B11: C21 = M2, C22 -= M2
+        add(A21, A22, S);
+        outOfCore(S, B11, M);
+        C21.copyFrom(M);
+        subtract(C22, M, C22);
+        // M3 = A11 * (B12 - B22): C12 = M3, C22 += M3
+        subtract(B12, B22, T);
+        outOfCore(A11, T, M);
+        C12.copyFrom(M);
+        add(C22, M, C22);
+        // M4 = A22 * (B21 - B11): C11 += M4, C21 += M4
+        subtract(B21, B11, T);
+        outOfCore(A22, T, M);
+        add(C11, M, C11);
+        add(C21, M, C21);
+        // M5 = (A11 + A12) * B22: C11 -= M5, C12 += M5
+        add(A11, A12, S);
+        outOfCore(S, B22, M);
+        subtract(C11, M, C11);
+        add(C12, M, C12);
+        // M6 = (A21 - A11) * (B11 + B12): C22 += M6
+        subtract(A21, A11, S);
+        add(B11, B12, T);
+        outOfCore(S, T, M);
+        add(C22, M, C22);
+        // M7 = (A12 - A22) * (B21 + B22): C11 += M7
+        subtract(A12, A22, S);
+        add(B21, B22, T);
+        outOfCore(S, T, M);
+        add(C11, M, C11);
+
+        top = mark;
+    }
+
+    // Halves the largest of m, k and n, as StrassenAlgorithmSA does
+    private void splitLargest(OffHeapMatrix A, OffHeapMatrix B, OffHeapMatrix C) {
+
+        int m = A.rows(), k = A.cols(), n = B.cols();
+
+        if (m >= k && m >= n) {
+            int half = (m + 1) / 2;
+            outOfCore(A.view(0, 0, half, k), B, C.view(0, 0, half, n));
+            outOfCore(A.view(half, 0, m - half, k), B, C.view(half, 0, m - half, n));
+        } else if (n >= k) {
+            int left = (n + 1) / 2;
+            outOfCore(A, B.view(0, 0, k, left), C.view(0, 0, m, left));
+            outOfCore(A, B.view(0, left, k, n - left), C.view(0, left, m, n - left));
+        } else {
+            int front = (k + 1) / 2;
+            long mark = top;
+            OffHeapMatrix T = allocate(m, n);
+            outOfCore(A.view(0, 0, m, front), B.view(0, 0, front, n), C);
+            outOfCore(A.view(0, front, m, k - front), B.view(front, 0, k - front, n), T);
+            add(C, T, C);
+            top = mark;
+        }
+    }
+
+    // Reads the subproblem into memory once, multiplies it there and writes C back once
+    private void inCore(OffHeapMatrix A, OffHeapMatrix B, OffHeapMatrix C) {
+
+        int m = A.rows(), k = A.cols(), n = B.cols();
+        long sizeA = (long) m * k, sizeB = (long) k * n;
+        long needed = sizeA + sizeB + (long) m * n;
+
+        if (stagingCapacity < needed) {
+            staging = arena.allocate(needed * Integer.BYTES, Integer.BYTES);
+            stagingCapacity = needed;
+        }
+
+        OffHeapMatrix a = new OffHeapMatrix(staging, 0, k, m, k);
+        OffHeapMatrix b = new OffHeapMatrix(staging, sizeA, n, k, n);
+        OffHeapMatrix c = new OffHeapMatrix(staging, sizeA + sizeB, n, m, n);
+
+        a.copyFrom(A);
+        b.copyFrom(B);
+        inCore.multiplySA(a, b, c);
+        C.copyFrom(c);
+    }
+}
@@ -0,0 +1,58 @@
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Scheduling of the ForkJoin engines: the pool they run on and how finely they split a product.
+ * <p>
+ * A subproblem is forked only while its multiply-adds reach the grain of the product, which is the product's share of
+ * tasksPerThread tasks on every thread of the pool but never less than minGrain, below which a task costs more to
+ * schedule than to run. Smaller subproblems go to a tuned sequential engine of the product, see
+ * {@link SequentialEngines}. The memory plan's fork depth still bounds the recursion.
+ * <p>
+ * The default configuration runs on a pool of its own, shared by every engine that uses it, so products neither
+ * compete with other users of the common pool nor start threads per engine. {@code -Dstrassen.parallelism} sets its
+ * size, by default the number of available processors.
+ */
+public record ParallelConfig(ForkJoinPool pool, int tasksPerThread, long minGrain) {
+
+    public static final int DEFAULT_TASKS_PER_THREAD = 4;
+    // 128^3 multiply-adds, around a millisecond on the blocked kernel
+    public static final long DEFAULT_MIN_GRAIN = 128L * 128 * 128;
+
+    private static ParallelConfig defaults;
+
+    public ParallelConfig {
+        if (tasksPerThread < 1 || minGrain < 1) {
+            throw new IllegalArgumentException("Invalid granularity: " + tasksPerThread + " tasks per thread, grain "
+                    + minGrain);
+        }
+    }
+
+    // The shared dedicated pool with the default granularity
+    public static synchronized ParallelConfig defaults() {
+        if (defaults == null) {
+            int parallelism = Integer.getInteger("strassen.parallelism", Runtime.getRuntime().availableProcessors());
+            defaults = new ParallelConfig(new ForkJoinPool(Math.max(1, parallelism)), DEFAULT_TASKS_PER_THREAD,
+                    DEFAULT_MIN_GRAIN);
+        }
+        return defaults;
+    }
+
+    // A new pool of the given parallelism with the default granularity; the caller shuts the pool down
+    public static ParallelConfig withParallelism(int parallelism) {
+        return new ParallelConfig(new ForkJoinPool(parallelism), DEFAULT_TASKS_PER_THREAD, DEFAULT_MIN_GRAIN);
+    }
+
+    public int parallelism() {
+        return pool.getParallelism();
+    }
+
+    // Multiply-adds below which a subproblem of an m x k by k x n product runs sequentially
+    public long grain(int m, int k, int n) {
+        return Math.max(minGrain, (long) m * k * n / ((long) tasksPerThread * parallelism()));
+    }
+
+    // Fork depth at which every thread has about tasksPerThread tasks, for engines without a memory plan
+    public int maxDepth() {
+        return (int) Math.ceil(Math.log((double) tasksPerThread * parallelism()) / Math.log(7));
+    }
+}
@@ -0,0 +1,58 @@
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Row-block parallelism for the O(n^2) phases of the ForkJoin engines: the operand sums and product combinations of a
+ * forked level, the sum of a split inner dimension and the classical completion of a peeled product.
+ * <p>
+ * A phase is a body over a range of rows (or columns) of a common width. Called from a pool thread with at least
+ * {@code -Dstrassen.parallelAddElements} elements in total (default 2^20, a 1024 x 1024 block), the range is halved
+ * into tasks of about BLOCK_ELEMENTS elements that run on the same pool; smaller phases, and phases called outside a
+ * pool, run on the calling thread. The top levels of a large product thus use every thread for their additions too,
+ * while deep levels, where the seven products already keep the pool busy, do not pay for the extra tasks.
+ */
+public class RowBlocks {
+
+    // phases with fewer elements run on the calling thread
+    public static final long PARALLEL_ELEMENTS = Long.getLong("strassen.parallelAddElements", 1L << 20);
+
+    // elements of a task, a few hundred KB, large enough to stream at full memory bandwidth
+    private static final long BLOCK_ELEMENTS = 1L << 16;
+
+    // A phase over the rows [row, row + rows)
+    public interface Body {
+        void run(int row, int rows);
+    }
+
+    // Runs body over the rows [0, rows) of a phase whose rows hold width elements each
+    public static void run(int rows, int width, Body body) {
+        if (rows <= 1 || (long) rows * width < PARALLEL_ELEMENTS || !ForkJoinTask.inForkJoinPool()) {
+            body.run(0, rows);
+            return;
+        }
+        new Block(body, width, 0, rows).invoke();
+    }
+
+    private static class Block extends RecursiveAction {
+        private final Body body;
+        private final int width;
+        private final int row, rows;
+
+        Block(Body body, int width, int row, int rows) {
+            this.body = body;
+            this.width = width;
+            this.row = row;
+            this.rows = rows;
+        }
+
+        @Override
+        protected void compute() {
+            if (rows <= 1 || (long) rows * width <= BLOCK_ELEMENTS) {
+                body.run(row, rows);
+                return;
+            }
+            int half = rows / 2;
+            invokeAll(new Block(body, width, row, half), new Block(body, width, row + half, rows - half));
+        }
+    }
+}
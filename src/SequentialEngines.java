@@ -0,0 +1,40 @@
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * The sequential engines of one product on a parallel engine, where the leaves below the fork depth run.
+ * <p>
+ * A leaf borrows an idle engine, or a new one when none is idle, and hands it back once it is done, so there are never
+ * more engines, and workspaces, than leaves that ran at the same time: at most one per thread, as
+ * {@link MemoryPlanner} counts them. The engines live exactly as long as their product (or batch, or power), so no
+ * workspace outlives it in the threads of a long-lived pool.
+ */
+public final class SequentialEngines<E> {
+
+    private final Queue<E> idle = new ConcurrentLinkedQueue<>();
+    private final Supplier<? extends E> factory;
+
+    public SequentialEngines(Supplier<? extends E> factory) {
+        this.factory = factory;
+    }
+
+    // Runs leaf on an engine no other leaf uses meanwhile
+    public void run(Consumer<? super E> leaf) {
+        E engine = idle.poll();
+        if (engine == null) {
+            engine = factory.get();
+        }
+        try {
+            leaf.accept(engine);
+        } finally {
+            idle.add(engine);
+        }
+    }
+
+    // Applies action to every engine, once no leaf runs any more
+    public void forEach(Consumer<? super E> action) {
+        idle.forEach(action);
+    }
+}
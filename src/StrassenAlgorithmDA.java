@@ -1,55 +1,22 @@
 
 import mpi.*;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
 
 public class StrassenAlgorithmDA extends MatrixOperations implements HelpersDA {
 
-    private static final double MEMORY_SAFETY_THRESHOLD = 0.9;
-    private static final long MIN_FREE_MEMORY_MB = 50;
-    private static final StrassenAlgorithmSA sequentialStrassen = new StrassenAlgorithmSA();
+    private StrassenAlgorithmSA sequentialStrassen;
+    private StrassenVariant variant = StrassenVariant.CLASSIC;
+    private ElementType type = ElementType.INT;
+    // MatrixFile operands and result of the root, null for random matrices
+    private Path inputA, inputB, output;
+    // The long, float or double operands of the typed root
+    private Object typedA, typedB;
 
-    private boolean checkProcessMemory(int matrixSize) {
-        Runtime runtime = Runtime.getRuntime();
-        long maxMemory = runtime.maxMemory();
-        long totalMemory = runtime.totalMemory();
-        long freeMemory = runtime.freeMemory();
-        long usedMemory = totalMemory - freeMemory;
-        long availableMemory = maxMemory - usedMemory;
-
-        // Estimate memory needed for matrix operations
-        // Each matrix element is 4 bytes (int), need space for multiple matrices
-        long estimatedMemoryNeeded = estimateMemoryForMatrixOps(matrixSize);
-
-        long requiredMemory = (long) (estimatedMemoryNeeded / MEMORY_SAFETY_THRESHOLD);
-        long minFreeMemoryBytes = MIN_FREE_MEMORY_MB * 1024 * 1024;
-
-        boolean hasEnoughMemory = availableMemory >= requiredMemory
-                && availableMemory >= minFreeMemoryBytes;
-
-        if (!hasEnoughMemory) {
-            System.err.printf("Process memory check failed:%n");
-            System.err.printf("Available memory: %.2f MB%n", availableMemory / (1024.0 * 1024.0));
-            System.err.printf("Required memory: %.2f MB%n", requiredMemory / (1024.0 * 1024.0));
-            System.err.printf("Estimated operation memory: %.2f MB%n", estimatedMemoryNeeded / (1024.0 * 1024.0));
-            System.err.printf("Memory threshold: %.0f%% (matching parallel version)%n", MEMORY_SAFETY_THRESHOLD * 100);
-        } else {
-           // System.out.printf("Process memory check passed: %.2f MB available, %.2f MB required (%.0f%% threshold)%n",
-            //        availableMemory / (1024.0 * 1024.0), requiredMemory / (1024.0 * 1024.0),
-             //       MEMORY_SAFETY_THRESHOLD * 100);
-        }
-
-        return hasEnoughMemory;
-    }
-
-    private long estimateMemoryForMatrixOps(int n) {
-
-        // 3 matrices A, B, C (n x n each), 8 submatrices (n/2 x n/2 each) + 7 M matrices (n/2 x n/2 each)
-        // Total: 3 (n x n) and 15 (n/2 x n/2) = 6.75 (n x n)
-        long matrixSize = (long) n * n * 4;
-
-        return (long)6.75 * matrixSize;
-    }
+    // Broadcast as M when the root could not set up the product, so that every rank finalizes without working
+    private static final int FAILED = -1;
 
     private void reportMemoryStatus(String context) {
         Runtime runtime = Runtime.getRuntime();
@@ -76,96 +43,226 @@ public class StrassenAlgorithmDA extends MatrixOperations implements HelpersDA {
         int size = MPI.COMM_WORLD.Size();
         final int ROOT = 0;
 
-        int N = 0;
+        // A is M x K, B is K x N
+        int M = 0, K = 0, N = 0;
         int[][] A = null, B = null;
 
         if (rank == ROOT) {
             System.out.println("Strassen's Algorithm Distributed Implementation (per-process memory adaptive)");
             System.out.println("______________________________________________________________");
 
-            if (args.length > 0) {
-                N = Integer.parseInt(args[args.length - 1]);
-                if (N % 2 != 0) {
-                    A = create(N);
-                    B = create(N);
-                    System.out.println("Matrix size is not divisible by 2. Cannot do strassen algorithm!");
-                    return;
+            try {
+                if (args.length == 0) {
+                    throw new IllegalArgumentException("Cannot get matrix size!");
                 }
-            } else {
-                System.out.println("ERROR: Cannot get matrix size!");
-                return;
+                if (Arrays.asList(args).contains("winograd")) {
+                    variant = StrassenVariant.WINOGRAD;
+                }
+                for (String arg : args) {
+                    if (arg.equals("long") || arg.equals("float") || arg.equals("double")) {
+                        type = ElementType.parse(arg);
+                    }
+                }
+                // either N for square matrices, MxKxN for an M x K by K x N product or the files A, B and C
+                String[] dims = args[args.length - 1].toLowerCase().split("x");
+                if (!args[args.length - 1].matches("\\d+(?:[xX]\\d+[xX]\\d+)?") && args.length >= 3) {
+                    inputA = Path.of(args[args.length - 3]);
+                    inputB = Path.of(args[args.length - 2]);
+                    output = Path.of(args[args.length - 1]);
+                    MatrixFile.Header headerA = MatrixFile.readHeader(inputA);
+                    MatrixFile.Header headerB = MatrixFile.readHeader(inputB);
+                    if (headerA.type() != headerB.type() || headerA.cols() != headerB.rows()) {
+                        throw new IllegalArgumentException(inputA + " and " + inputB + " cannot be multiplied!");
+                    }
+                    type = headerA.type();
+                    M = headerA.rows();
+                    K = headerA.cols();
+                    N = headerB.cols();
+                } else if (dims.length == 3) {
+                    M = Integer.parseInt(dims[0]);
+                    K = Integer.parseInt(dims[1]);
+                    N = Integer.parseInt(dims[2]);
+                } else {
+                    N = Integer.parseInt(dims[0]);
+                    M = K = N;
+                }
+                // Every operand is in memory before the broadcast, so a file that fails to read stops all ranks
+                switch (type) {
+                    case INT -> {
+                        A = inputA != null ? MatrixFile.readMatrix(inputA).toArray()
+                                : create(M, K, MatrixGenerator.SEED);
+                        B = inputB != null ? MatrixFile.readMatrix(inputB).toArray()
+                                : create(K, N, MatrixGenerator.SEED + 1);
+                    }
+                    case LONG -> {
+                        typedA = inputA != null ? MatrixFile.readLongMatrix(inputA)
+                                : LongMatrixOperations.create(M, K, MatrixGenerator.SEED);
+                        typedB = inputB != null ? MatrixFile.readLongMatrix(inputB)
+                                : LongMatrixOperations.create(K, N, MatrixGenerator.SEED + 1);
+                    }
+                    case FLOAT -> {
+                        typedA = inputA != null ? MatrixFile.readFloatMatrix(inputA)
+                                : FloatMatrixOperations.create(M, K, MatrixGenerator.SEED);
+                        typedB = inputB != null ? MatrixFile.readFloatMatrix(inputB)
+                                : FloatMatrixOperations.create(K, N, MatrixGenerator.SEED + 1);
+                    }
+                    case DOUBLE -> {
+                        typedA = inputA != null ? MatrixFile.readDoubleMatrix(inputA)
+                                : DoubleMatrixOperations.create(M, K, MatrixGenerator.SEED);
+                        typedB = inputB != null ? MatrixFile.readDoubleMatrix(inputB)
+                                : DoubleMatrixOperations.create(K, N, MatrixGenerator.SEED + 1);
+                    }
+                }
+            } catch (IOException e) {
+                // the workers wait for the broadcast, so the root sends them the error marker instead of returning
+                System.out.println("ERROR: Cannot read the matrix files: " + e);
+                M = FAILED;
+            } catch (RuntimeException e) {
+                System.out.println("ERROR: " + e.getMessage());
+                M = FAILED;
             }
-            A = create(N);
-            B = create(N);
 
-            reportMemoryStatus("Root-Initial");
+            if (M != FAILED) {
+                reportMemoryStatus("Root-Initial");
+            }
         }
 
-        int[] nBuffer = new int[1];
+        // The dimensions, the crossover, the variant and the element type, so every worker recurses the same way as
+        // the root
+        int[] nBuffer = new int[6];
 
         if (rank == ROOT) {
-            nBuffer[0] = N;
+            nBuffer[0] = M;
+            nBuffer[1] = K;
+            nBuffer[2] = N;
+            nBuffer[3] = StrassenCrossover.load(type.crossoverKey("distributed"));
+            nBuffer[4] = variant.ordinal();
+            nBuffer[5] = type.ordinal();
         }
 
-        MPI.COMM_WORLD.Bcast(nBuffer, 0, 1, MPI.INT, ROOT);
-        N = nBuffer[0];
+        MPI.COMM_WORLD.Bcast(nBuffer, 0, 6, MPI.INT, ROOT);
+        M = nBuffer[0];
+        if (M == FAILED) {
+            MPI.Finalize();
+            return;
+        }
+        K = nBuffer[1];
+        N = nBuffer[2];
+        variant = StrassenVariant.values()[nBuffer[4]];
+        type = ElementType.values()[nBuffer[5]];
+        sequentialStrassen = new StrassenAlgorithmSA(nBuffer[3], variant);
 
         reportMemoryStatus("Process-" + rank + "-PreExecution");
 
-        runAdaptiveDistribution(rank, size, N, A, B, ROOT);
+        if (type == ElementType.INT) {
+            runAdaptiveDistribution(rank, size, M, K, N, A, B, ROOT);
+        } else {
+            runTypedDistribution(rank, size, M, K, N, nBuffer[3], ROOT);
+        }
 
         MPI.Finalize();
     }
 
-    private void runAdaptiveDistribution(int rank, int size, int N, int[][] A, int[][] B, int ROOT)
+    private void runAdaptiveDistribution(int rank, int size, int M, int K, int N, int[][] A, int[][] B, int ROOT)
             throws Exception {
 
         int workers = size - 1;
 
         if (rank == ROOT) {
-            System.out.println("Using distributed computation with " + workers + " workers");
+            System.out.println("Using distributed computation with " + workers + " workers (" + variant + ")");
 
-            if (!checkProcessMemory(N)) {
+            MemoryPlanner.Plan plan = MemoryPlanner.distributedRoot(M, K, N, sequentialStrassen.getCrossover(), variant,
+                    type, MemoryPlanner.budget());
+            System.out.println(plan);
+            if (!plan.fits()) {
                 System.err.println("Root process may have insufficient memory for large matrices");
                 System.err.println("Consider using smaller matrix sizes or more processes");
             }
 
             long startTime = System.nanoTime();
 
-            int newSize = N / 2;
-            int[][] A11 = new int[newSize][newSize];
-            int[][] A12 = new int[newSize][newSize];
-            int[][] A21 = new int[newSize][newSize];
-            int[][] A22 = new int[newSize][newSize];
-            int[][] B11 = new int[newSize][newSize];
-            int[][] B12 = new int[newSize][newSize];
-            int[][] B21 = new int[newSize][newSize];
-            int[][] B22 = new int[newSize][newSize];
+            // A quadrants are mh x kh, B quadrants kh x nh and the products mh x nh
+            int mh = M / 2, kh = K / 2, nh = N / 2;
+            int[][] A11 = new int[mh][kh];
+            int[][] A12 = new int[mh][kh];
+            int[][] A21 = new int[mh][kh];
+            int[][] A22 = new int[mh][kh];
+            int[][] B11 = new int[kh][nh];
+            int[][] B12 = new int[kh][nh];
+            int[][] B21 = new int[kh][nh];
+            int[][] B22 = new int[kh][nh];
 
             extract(A, A11, 0, 0);
-            extract(A, A12, 0, newSize);
-            extract(A, A21, newSize, 0);
-            extract(A, A22, newSize, newSize);
+            extract(A, A12, 0, kh);
+            extract(A, A21, mh, 0);
+            extract(A, A22, mh, kh);
             extract(B, B11, 0, 0);
-            extract(B, B12, 0, newSize);
-            extract(B, B21, newSize, 0);
-            extract(B, B22, newSize, newSize);
+            extract(B, B12, 0, nh);
+            extract(B, B21, kh, 0);
+            extract(B, B22, kh, nh);
 
             int[] taskToWorker = createTaskAssignment(workers);
-            distributeTasks(workers, N, A11, A12, A21, A22, B11, B12, B21, B22, taskToWorker);
+            int[][] C11, C12, C21, C22;
+
+            if (variant == StrassenVariant.WINOGRAD) {
+                // The root forms the Winograd operand sums once, so each task ships exactly one A and one B block
+                int[][] S1 = add(A21, A22);
+                int[][] S2 = subtract(S1, A11);
+                int[][] S3 = subtract(A11, A21);
+                int[][] S4 = subtract(A12, S2);
+                int[][] T1 = subtract(B12, B11);
+                int[][] T2 = subtract(B22, T1);
+                int[][] T3 = subtract(B22, B12);
+                int[][] T4 = subtract(T2, B21);
+
+                int[][][][] operands = {
+                        null,
+                        {A11, null, B11, null},
+                        {A12, null, B21, null},
+                        {S4, null, B22, null},
+                        {A22, null, T4, null},
+                        {S1, null, T1, null},
+                        {S2, null, T2, null},
+                        {S3, null, T3, null}
+                };
+                distributeTasks(workers, mh, kh, nh, operands, taskToWorker);
+
+                int[][][] P = collectResults(mh, nh, taskToWorker);
+
+                int[][] U2 = add(P[0], P[5]);
+                int[][] U3 = add(U2, P[6]);
+                int[][] U4 = add(U2, P[4]);
+                C11 = add(P[0], P[1]);
+                C12 = add(U4, P[2]);
+                C21 = subtract(U3, P[3]);
+                C22 = add(U3, P[4]);
+            } else {
+                int[][][][] operands = new int[8][][][];
+                for (int task = 1; task <= 7; task++) {
+                    operands[task] = getMatrixPartsForTask(task, A11, A12, A21, A22, B11, B12, B21, B22);
+                }
+                distributeTasks(workers, mh, kh, nh, operands, taskToWorker);
 
-            int[][][] M = collectResults(N, taskToWorker);
+                int[][][] P = collectResults(mh, nh, taskToWorker);
 
-            int[][] C11 = add(subtract(add(M[0], M[3]), M[4]), M[6]);
-            int[][] C12 = add(M[2], M[4]);
-            int[][] C21 = add(M[1], M[3]);
-            int[][] C22 = add(subtract(add(M[0], M[2]), M[1]), M[5]);
+                C11 = add(subtract(add(P[0], P[3]), P[4]), P[6]);
+                C12 = add(P[2], P[4]);
+                C21 = add(P[1], P[3]);
+                C22 = add(subtract(add(P[0], P[2]), P[1]), P[5]);
+            }
 
-            int[][] C = new int[N][N];
+            int[][] C = new int[M][N];
             join(C11, C, 0, 0);
-            join(C12, C, 0, newSize);
-            join(C21, C, newSize, 0);
-            join(C22, C, newSize, newSize);
+            join(C12, C, 0, nh);
+            join(C21, C, mh, 0);
+            join(C22, C, mh, nh);
+
+            if (M % 2 != 0 || K % 2 != 0 || N % 2 != 0) {
+                // Odd dimensions: the workers multiplied the even core, the root adds the peeled rows and columns
+                Matrix peeled = Matrix.of(C);
+                completePeeled(Matrix.of(A), Matrix.of(B), peeled, 2 * mh, 2 * kh, 2 * nh);
+                C = peeled.toArray();
+            }
 
             long endTime = System.nanoTime();
 
@@ -173,13 +270,19 @@ public class StrassenAlgorithmDA extends MatrixOperations implements HelpersDA {
 //            printMatrix(B);
 //            printMatrix(C);
 
+            if (output != null) {
+                MatrixFile.write(output, Matrix.of(C));
+            }
+            // catches wrong products from the workers in O(n^2), outside the timed region
+            Freivalds.report(A, B, C);
+
             long duration = endTime - startTime;
             System.out.println("\nExecution time: " + duration + " nanoseconds");
             System.out.println("______________________________________________________________");
 
         } else {
             // Worker process - handle assigned tasks
-            handleWorkerTasksAdaptively(rank, N, ROOT);
+            handleWorkerTasksAdaptively(rank, M, K, N, ROOT);
         }
     }
 
@@ -209,8 +312,10 @@ public class StrassenAlgorithmDA extends MatrixOperations implements HelpersDA {
         return taskToWorker;
     }
 
-    private void distributeTasks(int workers, int N, int[][] A11, int[][] A12, int[][] A21, int[][] A22,
-                                 int[][] B11, int[][] B12, int[][] B21, int[][] B22, int[] taskToWorker) throws Exception {
+    // operands[task] holds the two mh x kh and two kh x nh blocks of that task; parts the variant does not ship are
+    // skipped, and other null parts are sent as zeros
+    private void distributeTasks(int workers, int mh, int kh, int nh, int[][][][] operands, int[] taskToWorker)
+            throws Exception {
 
         List<Request> requests = new ArrayList<>();
 
@@ -237,11 +342,13 @@ public class StrassenAlgorithmDA extends MatrixOperations implements HelpersDA {
                     requests.add(taskReq);
 
                     // Send required matrix parts
-                    int[][][] selectedParts = getMatrixPartsForTask(task, A11, A12, A21, A22, B11, B12, B21, B22);
+                    int[][][] selectedParts = operands[task];
                     for (int j = 0; j < 4; j++) {
-                        int[] flat = selectedParts[j] != null ? HelpersDA.flatten(selectedParts[j]) : new int[N / 2 * N / 2];
+                        if (!shipped(j)) continue;
+                        int count = j < 2 ? mh * kh : kh * nh;
+                        int[] flat = selectedParts[j] != null ? HelpersDA.flatten(selectedParts[j]) : new int[count];
                         int matrixTag = 1000 + worker * 100 + taskIndex * 10 + j;
-                        Request matrixReq = MPI.COMM_WORLD.Isend(flat, 0, N / 2 * N / 2, MPI.INT, worker, matrixTag);
+                        Request matrixReq = MPI.COMM_WORLD.Isend(flat, 0, count, MPI.INT, worker, matrixTag);
                         requests.add(matrixReq);
                     }
 
@@ -256,6 +363,11 @@ public class StrassenAlgorithmDA extends MatrixOperations implements HelpersDA {
     }
 
 
+    // Whether tasks ship operand part j: Winograd tasks only ship the root's sums, the A block 0 and the B block 2
+    private boolean shipped(int j) {
+        return variant != StrassenVariant.WINOGRAD || j % 2 == 0;
+    }
+
     private int[][][] getMatrixPartsForTask(int task, int[][] A11, int[][] A12, int[][] A21, int[][] A22,
                                             int[][] B11, int[][] B12, int[][] B21, int[][] B22) {
         switch (task) {
@@ -278,32 +390,30 @@ public class StrassenAlgorithmDA extends MatrixOperations implements HelpersDA {
         }
     }
 
-    private int[][][] collectResults(int N, int[] taskToWorker) throws Exception {
-        int[][][] M = new int[7][N / 2][N / 2];
+    private int[][][] collectResults(int mh, int nh, int[] taskToWorker) throws Exception {
+        int[][][] M = new int[7][][];
 
         for (int task = 1; task <= 7; task++) {
             int worker = taskToWorker[task];
-            int[] resultFlat = new int[N / 2 * N / 2];
+            int[] resultFlat = new int[mh * nh];
             int expectedTag = 3000 + task;  // Simple: tag = 3000 + task number
-            MPI.COMM_WORLD.Recv(resultFlat, 0, N / 2 * N / 2, MPI.INT, worker, expectedTag);
-            M[task - 1] = HelpersDA.unflatten(resultFlat, N / 2);
+            MPI.COMM_WORLD.Recv(resultFlat, 0, mh * nh, MPI.INT, worker, expectedTag);
+            M[task - 1] = HelpersDA.unflatten(resultFlat, mh, nh);
             //System.out.printf("Collected result for task %d from worker %d\n", task, taskToWorker[task]);
         }
 
         return M;
     }
 
-    private void handleWorkerTasksAdaptively(int rank, int N, int ROOT) throws Exception {
-        int submatrixSize = N / 2;
-
-        if (!checkProcessMemory(submatrixSize)) {
-            System.err.printf("Worker %d: Memory warning for submatrix size %dx%d%n", rank, submatrixSize, submatrixSize);
-        }
+    private void handleWorkerTasksAdaptively(int rank, int M, int K, int N, int ROOT) throws Exception {
+        int mh = M / 2, kh = K / 2, nh = N / 2;
 
         int[] taskCountBuffer = new int[1];
         MPI.COMM_WORLD.Recv(taskCountBuffer, 0, 1, MPI.INT, ROOT, 50);
         int taskCount = taskCountBuffer[0];
 
+        checkWorkerPlan(rank, mh, kh, nh, taskCount);
+
         Set<Integer> receivedTasks = new HashSet<>();
         while (receivedTasks.size() < taskCount) {
             Status taskStatus = MPI.COMM_WORLD.Probe(ROOT, MPI.ANY_TAG);
@@ -315,19 +425,22 @@ public class StrassenAlgorithmDA extends MatrixOperations implements HelpersDA {
                 int task = taskBuf[0];
                 receivedTasks.add(task);
 
-                // Now receive matrices (4 parts)
-                int[][][] parts = new int[4][N / 2][N / 2];
+                // Now receive matrices (2 parts of A, mh x kh, then 2 parts of B, kh x nh)
+                int[][][] parts = new int[4][][];
                 for (int j = 0; j < 4; j++) {
+                    if (!shipped(j)) continue;
                     int matrixTag = 1000 + rank * 100 + (tag - 200 - rank * 10) * 10 + j;
-                    int[] flat = new int[N / 2 * N / 2];
+                    int rows = j < 2 ? mh : kh;
+                    int cols = j < 2 ? kh : nh;
+                    int[] flat = new int[rows * cols];
                     MPI.COMM_WORLD.Recv(flat, 0, flat.length, MPI.INT, ROOT, matrixTag);
-                    parts[j] = HelpersDA.unflatten(flat, N / 2);
+                    parts[j] = HelpersDA.unflatten(flat, rows, cols);
                 }
 
                 int[][] result = computeStrassenTask(task, parts);
 
                 int resultTag = 3000 + task;
-                MPI.COMM_WORLD.Isend(HelpersDA.flatten(result), 0, N / 2 * N / 2, MPI.INT, ROOT, resultTag);
+                MPI.COMM_WORLD.Isend(HelpersDA.flatten(result), 0, mh * nh, MPI.INT, ROOT, resultTag);
                 //System.out.printf("Worker %d: Completed task %d\n", rank, task);
             } else {
                 // Unexpected tag
@@ -360,9 +473,235 @@ public class StrassenAlgorithmDA extends MatrixOperations implements HelpersDA {
 //        }
     }
 
+    /*
+     * long, float and double products. The root forms both operands of every product with the typed engine, so each
+     * task ships exactly one A block and one B block as a primitive array of the element type, and the workers only
+     * multiply.
+     */
+    private void runTypedDistribution(int rank, int size, int M, int K, int N, int crossover, int ROOT)
+            throws Exception {
+
+        int workers = size - 1;
+        int mh = M / 2, kh = K / 2, nh = N / 2;
+        int me = 2 * mh, ke = 2 * kh, ne = 2 * nh;
+
+        if (rank != ROOT) {
+            handleTypedWorkerTasks(rank, mh, kh, nh, crossover, ROOT);
+            return;
+        }
+
+        System.out.println("Using distributed computation with " + workers + " workers (" + variant + ", " + type + ")");
+        System.out.println(MemoryPlanner.distributedRoot(M, K, N, crossover, variant, type, MemoryPlanner.budget()));
+
+        int[] taskToWorker = createTaskAssignment(workers);
+        long startTime, endTime;
+
+        switch (type) {
+            case LONG -> {
+                LongStrassenAlgorithmSA s = new LongStrassenAlgorithmSA(crossover, variant);
+                LongMatrix A = (LongMatrix) typedA;
+                LongMatrix B = (LongMatrix) typedB;
+                LongMatrix C = new LongMatrix(M, N);
+                startTime = System.nanoTime();
+
+                LongMatrix[] operands = s.productOperands(A.view(0, 0, me, ke), B.view(0, 0, ke, ne));
+                Object[] payloads = new Object[operands.length];
+                for (int i = 0; i < operands.length; i++) {
+                    payloads[i] = operands[i].data;
+                }
+                Object[] results = exchangeTypedTasks(workers, mh, kh, nh, payloads, taskToWorker);
+
+                LongMatrix[] P = new LongMatrix[7];
+                for (int i = 0; i < 7; i++) {
+                    P[i] = new LongMatrix((long[]) results[i], 0, nh, mh, nh);
+                }
+                s.combineProducts(P, C.view(0, 0, me, ne));
+                LongMatrixOperations.completePeeled(A, B, C, me, ke, ne);
+                endTime = System.nanoTime();
+                if (output != null) {
+                    MatrixFile.write(output, C);
+                }
+                Freivalds.report(A, B, C);
+            }
+            case FLOAT -> {
+                FloatStrassenAlgorithmSA s = new FloatStrassenAlgorithmSA(crossover, variant);
+                FloatMatrix A = (FloatMatrix) typedA;
+                FloatMatrix B = (FloatMatrix) typedB;
+                FloatMatrix C = new FloatMatrix(M, N);
+                startTime = System.nanoTime();
+
+                FloatMatrix[] operands = s.productOperands(A.view(0, 0, me, ke), B.view(0, 0, ke, ne));
+                Object[] payloads = new Object[operands.length];
+                for (int i = 0; i < operands.length; i++) {
+                    payloads[i] = operands[i].data;
+                }
+                Object[] results = exchangeTypedTasks(workers, mh, kh, nh, payloads, taskToWorker);
+
+                FloatMatrix[] P = new FloatMatrix[7];
+                for (int i = 0; i < 7; i++) {
+                    P[i] = new FloatMatrix((float[]) results[i], 0, nh, mh, nh);
+                }
+                s.combineProducts(P, C.view(0, 0, me, ne));
+                FloatMatrixOperations.completePeeled(A, B, C, me, ke, ne);
+                endTime = System.nanoTime();
+                if (output != null) {
+                    MatrixFile.write(output, C);
+                }
+                Freivalds.report(A, B, C);
+            }
+            case DOUBLE -> {
+                DoubleStrassenAlgorithmSA s = new DoubleStrassenAlgorithmSA(crossover, variant);
+                DoubleMatrix A = (DoubleMatrix) typedA;
+                DoubleMatrix B = (DoubleMatrix) typedB;
+                DoubleMatrix C = new DoubleMatrix(M, N);
+                startTime = System.nanoTime();
+
+                DoubleMatrix[] operands = s.productOperands(A.view(0, 0, me, ke), B.view(0, 0, ke, ne));
+                Object[] payloads = new Object[operands.length];
+                for (int i = 0; i < operands.length; i++) {
+                    payloads[i] = operands[i].data;
+                }
+                Object[] results = exchangeTypedTasks(workers, mh, kh, nh, payloads, taskToWorker);
+
+                DoubleMatrix[] P = new DoubleMatrix[7];
+                for (int i = 0; i < 7; i++) {
+                    P[i] = new DoubleMatrix((double[]) results[i], 0, nh, mh, nh);
+                }
+                s.combineProducts(P, C.view(0, 0, me, ne));
+                DoubleMatrixOperations.completePeeled(A, B, C, me, ke, ne);
+                endTime = System.nanoTime();
+                if (output != null) {
+                    MatrixFile.write(output, C);
+                }
+                Freivalds.report(A, B, C);
+            }
+            default -> throw new IllegalStateException("Int products use runAdaptiveDistribution");
+        }
+
+        long duration = endTime - startTime;
+        System.out.println("\nExecution time: " + duration + " nanoseconds");
+        System.out.println("______________________________________________________________");
+    }
+
+    // Sends payloads[2 * (task - 1)] (mh x kh) and payloads[2 * (task - 1) + 1] (kh x nh) to the worker of each task
+    // and returns the seven mh x nh products in task order
+    private Object[] exchangeTypedTasks(int workers, int mh, int kh, int nh, Object[] payloads, int[] taskToWorker)
+            throws Exception {
+
+        Datatype datatype = payloadType();
+        List<Request> requests = new ArrayList<>();
+
+        for (int worker = 1; worker <= workers; worker++) {
+            int taskCount = 0;
+            for (int task = 1; task <= 7; task++) {
+                if (taskToWorker[task] == worker) {
+                    taskCount++;
+                }
+            }
+            requests.add(MPI.COMM_WORLD.Isend(new int[]{taskCount}, 0, 1, MPI.INT, worker, 50));
+        }
+
+        for (int worker = 1; worker <= workers; worker++) {
+            int taskIndex = 0;
+            for (int task = 1; task <= 7; task++) {
+                if (taskToWorker[task] == worker) {
+                    int taskTag = 200 + worker * 10 + taskIndex;
+                    requests.add(MPI.COMM_WORLD.Isend(new int[]{task}, 0, 1, MPI.INT, worker, taskTag));
+
+                    int matrixTag = 1000 + worker * 100 + taskIndex * 10;
+                    requests.add(MPI.COMM_WORLD.Isend(payloads[2 * (task - 1)], 0, mh * kh, datatype,
+                            worker, matrixTag));
+                    requests.add(MPI.COMM_WORLD.Isend(payloads[2 * (task - 1) + 1], 0, kh * nh, datatype,
+                            worker, matrixTag + 1));
+
+                    taskIndex++;
+                }
+            }
+        }
+
+        Request.Waitall(requests.toArray(new Request[0]));
+
+        Object[] results = new Object[7];
+        for (int task = 1; task <= 7; task++) {
+            results[task - 1] = newPayload(mh * nh);
+            MPI.COMM_WORLD.Recv(results[task - 1], 0, mh * nh, datatype, taskToWorker[task], 3000 + task);
+        }
+
+        return results;
+    }
+
+    private void handleTypedWorkerTasks(int rank, int mh, int kh, int nh, int crossover, int ROOT) throws Exception {
+        Datatype datatype = payloadType();
+
+        int[] taskCountBuffer = new int[1];
+        MPI.COMM_WORLD.Recv(taskCountBuffer, 0, 1, MPI.INT, ROOT, 50);
+        int taskCount = taskCountBuffer[0];
+
+        checkWorkerPlan(rank, mh, kh, nh, taskCount);
+
+        // results are sent without blocking: the root only starts collecting once all inputs were delivered
+        List<Request> requests = new ArrayList<>();
+        for (int i = 0; i < taskCount; i++) {
+            int[] taskBuffer = new int[1];
+            MPI.COMM_WORLD.Recv(taskBuffer, 0, 1, MPI.INT, ROOT, 200 + rank * 10 + i);
+            int task = taskBuffer[0];
+
+            int matrixTag = 1000 + rank * 100 + i * 10;
+            Object a = newPayload(mh * kh);
+            Object b = newPayload(kh * nh);
+            MPI.COMM_WORLD.Recv(a, 0, mh * kh, datatype, ROOT, matrixTag);
+            MPI.COMM_WORLD.Recv(b, 0, kh * nh, datatype, ROOT, matrixTag + 1);
+
+            Object result = switch (type) {
+                case LONG -> new LongStrassenAlgorithmSA(crossover, variant)
+                        .multiplySA(new LongMatrix((long[]) a, 0, kh, mh, kh), new LongMatrix((long[]) b, 0, nh, kh, nh)).data;
+                case FLOAT -> new FloatStrassenAlgorithmSA(crossover, variant)
+                        .multiplySA(new FloatMatrix((float[]) a, 0, kh, mh, kh), new FloatMatrix((float[]) b, 0, nh, kh, nh)).data;
+                case DOUBLE -> new DoubleStrassenAlgorithmSA(crossover, variant)
+                        .multiplySA(new DoubleMatrix((double[]) a, 0, kh, mh, kh), new DoubleMatrix((double[]) b, 0, nh, kh, nh)).data;
+                default -> throw new IllegalStateException("Int tasks use handleWorkerTasksAdaptively");
+            };
+
+            requests.add(MPI.COMM_WORLD.Isend(result, 0, mh * nh, datatype, ROOT, 3000 + task));
+        }
+        Request.Waitall(requests.toArray(new Request[0]));
+    }
+
+    // Warns when this worker's plan for its tasks does not fit its heap
+    private void checkWorkerPlan(int rank, int mh, int kh, int nh, int taskCount) {
+        MemoryPlanner.Plan plan = MemoryPlanner.distributedWorker(mh, kh, nh, sequentialStrassen.getCrossover(),
+                variant, type, taskCount, MemoryPlanner.budget());
+        if (!plan.fits()) {
+            System.err.printf("Worker %d: Memory warning, %s%n", rank, plan);
+        }
+    }
+
+    private Datatype payloadType() {
+        return switch (type) {
+            case LONG -> MPI.LONG;
+            case FLOAT -> MPI.FLOAT;
+            case DOUBLE -> MPI.DOUBLE;
+            default -> MPI.INT;
+        };
+    }
+
+    private Object newPayload(int length) {
+        return switch (type) {
+            case LONG -> new long[length];
+            case FLOAT -> new float[length];
+            case DOUBLE -> new double[length];
+            default -> new int[length];
+        };
+    }
+
     private int[][] computeStrassenTask(int task, int[][][] parts) {
         int[][] matA = null, matB = null;
 
+        if (variant == StrassenVariant.WINOGRAD) {
+            // operand sums were formed by the root
+            return sequentialStrassen.multiplySA(parts[0], parts[2]);
+        }
+
         switch (task) {
             case 1:
                 matA = add(parts[0], parts[1]);
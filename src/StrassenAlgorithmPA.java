@@ -1,83 +1,374 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Scanner;
-import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.RecursiveAction;
 import java.util.concurrent.ForkJoinPool;
 
 public class StrassenAlgorithmPA extends MatrixOperations {
 
-    private static final ForkJoinPool forkJoinPool = ForkJoinPool.commonPool();
-    private static final double MEMORY_THRESHOLD = 0.9;
-    private int maxDepth = -1;
-    private static final StrassenAlgorithmSA sequentialStrassen = new StrassenAlgorithmSA();
+    // pool and granularity, see ParallelConfig
+    private final ParallelConfig config;
+    private final ForkJoinPool forkJoinPool;
+    // products of a batch with at least BATCH_INNER_SIZE^3 multiply-adds are forked inside, smaller ones run whole
+    static final int BATCH_INNER_SIZE = Integer.getInteger("strassen.batchInnerSize", 1024);
+    private final int crossover;
+    private final StrassenVariant variant;
+
+    public StrassenAlgorithmPA() {
+        this(StrassenCrossover.load("parallel"));
+    }
+
+    public StrassenAlgorithmPA(int crossover) {
+        this(crossover, StrassenVariant.CLASSIC);
+    }
+
+    public StrassenAlgorithmPA(int crossover, StrassenVariant variant) {
+        this(crossover, variant, ParallelConfig.defaults());
+    }
+
+    public StrassenAlgorithmPA(int crossover, StrassenVariant variant, ParallelConfig config) {
+        this.crossover = Math.max(1, crossover);
+        this.variant = variant;
+        this.config = config;
+        this.forkJoinPool = config.pool();
+    }
 
     public int[][] multiplyParallel(int[][] A, int[][] B) {
+        return multiplyParallel(Matrix.of(A), Matrix.of(B)).toArray();
+    }
+
+    // Memory plan of C = A * B for an m x k matrix A and a k x n matrix B on this pool, see MemoryPlanner
+    public MemoryPlanner.Plan plan(int m, int k, int n) {
+        return MemoryPlanner.parallel(m, k, n, crossover, variant, ElementType.INT, config,
+                MemoryPlanner.budget());
+    }
+
+    // C = A * B for an m x k matrix A and a k x n matrix B
+    public Matrix multiplyParallel(Matrix A, Matrix B) {
+
+        Matrix C = new Matrix(A.rows(), B.cols());
+        checkDimensions(A, B, C);
 
-        int n = A.length;
+        MemoryPlanner.Plan plan = plan(A.rows(), A.cols(), B.cols());
+        System.out.println(plan);
 
-        if (!hasEnoughMemoryForParallelStrassen(n)) {
-            System.out.println("Insufficient memory for ForkJoin Strassen recursion at size " + n + "x" + n +
-                    ". Falling back to conventional multiplication.");
-            return multiply(A, B);
+        multiplyParallel(A, B, C, plan, sequentialEngines());
+        return C;
+    }
+
+    // C = A * B with the schedule of plan, its leaves on the given sequential engines
+    private void multiplyParallel(Matrix A, Matrix B, Matrix C, MemoryPlanner.Plan plan,
+                                  SequentialEngines<StrassenAlgorithmSA> engines) {
+        if (!plan.strassen()) {
+            multiplyClassical(A, B, C);
+            return;
         }
+        forkJoinPool.invoke(new StrassenTask(A, B, C, 0, ForkSchedule.of(plan), engines));
+    }
 
-        this.maxDepth = calculateMaxRecursionDepth(n);
+    // Sequential engines for the leaves of one product, dropped with their workspaces when it ends
+    private SequentialEngines<StrassenAlgorithmSA> sequentialEngines() {
+        return new SequentialEngines<>(() -> new StrassenAlgorithmSA(crossover, variant));
+    }
 
-        System.out.printf("Adaptive max recursion depth (based on memory): %d\n", maxDepth);
+    // C = A * B by the classical blocked kernel on tiles of C across the pool, see TiledMultiply
+    public Matrix multiplyClassical(Matrix A, Matrix B) {
+        Matrix C = new Matrix(A.rows(), B.cols());
+        checkDimensions(A, B, C);
+        multiplyClassical(A, B, C);
+        return C;
+    }
 
-        return forkJoinPool.invoke(new StrassenTask(A, B, 0));
+    private void multiplyClassical(Matrix A, Matrix B, Matrix C) {
+        int k = A.cols();
+        TiledMultiply.run(config, A.rows(), k, B.cols(), (row, rows, col, cols) ->
+                multiply(A.view(row, 0, rows, k), B.view(0, col, k, cols), C.view(row, col, rows, cols)));
     }
 
-    private class StrassenTask extends RecursiveTask<int[][]> {
-        private final int[][] A, B;
-        private final int depth;
+    /**
+     * C_i = A_i * B_i for every pair of a batch of independent products. Products of at least BATCH_INNER_SIZE^3
+     * multiply-adds (-Dstrassen.batchInnerSize) run one after another, each forked over the whole pool. The smaller
+     * ones run whole, one per thread, on sequential engines that the whole batch shares, so their workspaces are
+     * reused from product to product. The batch is planned once for the envelope of its small products
+     * and submitted to the pool as a single task.
+     */
+    public List<Matrix> multiplyBatch(List<Matrix> A, List<Matrix> B) {
+        if (A.size() != B.size()) {
+            throw new IllegalArgumentException("Batch has " + A.size() + " left and " + B.size() + " right operands");
+        }
 
-        public StrassenTask(int[][] A, int[][] B, int depth) {
+        List<Matrix> C = new ArrayList<>(A.size());
+        List<Integer> small = new ArrayList<>();
+        List<Integer> large = new ArrayList<>();
+        long inner = (long) BATCH_INNER_SIZE * BATCH_INNER_SIZE * BATCH_INNER_SIZE;
+        long operands = 0;
+        // envelope of the small products
+        int m = 0, k = 0, n = 0;
+
+        for (int i = 0; i < A.size(); i++) {
+            Matrix a = A.get(i), b = B.get(i);
+            Matrix c = new Matrix(a.rows(), b.cols());
+            checkDimensions(a, b, c);
+            C.add(c);
+            operands += (long) a.rows() * a.cols() + (long) b.rows() * b.cols() + (long) c.rows() * c.cols();
+
+            if ((long) a.rows() * a.cols() * b.cols() >= inner) {
+                large.add(i);
+            } else {
+                small.add(i);
+                m = Math.max(m, a.rows());
+                k = Math.max(k, a.cols());
+                n = Math.max(n, b.cols());
+            }
+        }
+
+        SequentialEngines<StrassenAlgorithmSA> engines = sequentialEngines();
+        long budget = MemoryPlanner.budget();
+        for (int i : large) {
+            Matrix a = A.get(i), b = B.get(i), c = C.get(i);
+            // the operands and results of the rest of the batch stay live next to this product
+            long others = operands - (long) a.rows() * a.cols() - (long) b.rows() * b.cols()
+                    - (long) c.rows() * c.cols();
+            multiplyParallel(a, b, c, MemoryPlanner.parallel(a.rows(), a.cols(), b.cols(), crossover, variant,
+                    ElementType.INT, config, budget - others * ElementType.INT.bytes()), engines);
+        }
+
+        if (!small.isEmpty()) {
+            MemoryPlanner.Plan plan = MemoryPlanner.batch(m, k, n, operands, crossover, variant, ElementType.INT,
+                    config.parallelism(), budget);
+            System.out.println(plan);
+            forkJoinPool.invoke(new BatchTask(A, B, C, small, plan, engines, 0, small.size()));
+        }
+        return C;
+    }
+
+    /**
+     * The product of a chain of factors, in the order {@link MatrixChain} finds cheapest for this engine's crossover
+     * and variant. The products of the order run in rounds: a round multiplies every subproduct whose two operands
+     * are ready, as a batch when there are several, and drops the intermediates it consumed before the next round.
+     */
+    public Matrix multiplyChain(List<Matrix> factors) {
+        int count = factors.size();
+        int[] dims = MatrixChain.dimensions(count, i -> factors.get(i).rows(), i -> factors.get(i).cols());
+        MatrixChain.Order order = MatrixChain.order(dims, crossover, variant);
+        System.out.println(order);
+
+        // products[i][j] holds the product of factors i..j once it is formed and until it is consumed
+        Matrix[][] products = new Matrix[count][count];
+        for (int i = 0; i < count; i++) {
+            products[i][i] = factors.get(i);
+        }
+
+        for (int round = 1; round <= order.rounds(0, count - 1); round++) {
+            List<int[]> ready = new ArrayList<>();
+            collect(order, 0, count - 1, round, ready);
+
+            List<Matrix> A = new ArrayList<>(ready.size());
+            List<Matrix> B = new ArrayList<>(ready.size());
+            for (int[] r : ready) {
+                int s = order.split(r[0], r[1]);
+                A.add(products[r[0]][s]);
+                B.add(products[s + 1][r[1]]);
+                products[r[0]][s] = null;
+                products[s + 1][r[1]] = null;
+            }
+
+            // a single product gets the whole pool
+            List<Matrix> C = ready.size() == 1
+                    ? List.of(multiplyParallel(A.get(0), B.get(0)))
+                    : multiplyBatch(A, B);
+            for (int r = 0; r < ready.size(); r++) {
+                products[ready.get(r)[0]][ready.get(r)[1]] = C.get(r);
+            }
+        }
+        return products[0][count - 1];
+    }
+
+    // Adds the subproducts {i, j} of factors i..j that are formed in the given round to ready
+    private static void collect(MatrixChain.Order order, int i, int j, int round, List<int[]> ready) {
+        if (i == j) return;
+        if (order.rounds(i, j) == round) {
+            ready.add(new int[] {i, j});
+            return;
+        }
+        int s = order.split(i, j);
+        collect(order, i, s, round, ready);
+        collect(order, s + 1, j, round, ready);
+    }
+
+    /**
+     * A^exponent for a square A by repeated squaring, see {@link MatrixPower}. The n x n product is planned and
+     * printed once and every squaring and product forks with that plan. The sequential engines' workspaces and at
+     * most three n x n buffers are reused throughout; the temporaries of the forked levels above the leaves (the
+     * seven products, the operand sums, the Winograd blocks and a depth-first level's product) are allocated by every
+     * product, as in multiplyParallel, and stay within the plan's peak. A^0 is the identity.
+     */
+    public Matrix power(Matrix A, long exponent) {
+        MatrixPower.check(A.rows(), A.cols(), exponent);
+        int n = A.rows();
+        if (exponent == 0) return MatrixGenerator.identity(n);
+
+        MemoryPlanner.Plan plan = plan(n, n, n);
+        System.out.println(plan);
+        SequentialEngines<StrassenAlgorithmSA> engines = sequentialEngines();
+
+        return MatrixPower.power(A, exponent, () -> new Matrix(n),
+                (X, Y, Z) -> multiplyParallel(X, Y, Z, plan, engines),
+                M -> {
+                    Matrix C = new Matrix(n);
+                    C.copyFrom(M);
+                    return C;
+                });
+    }
+
+    // Runs the small products at indices[lo:hi] of a batch, halving the range until a task holds a single product
+    private class BatchTask extends RecursiveAction {
+        private final List<Matrix> A, B, C;
+        private final List<Integer> indices;
+        private final MemoryPlanner.Plan plan;
+        private final SequentialEngines<StrassenAlgorithmSA> engines;
+        private final int lo, hi;
+
+        BatchTask(List<Matrix> A, List<Matrix> B, List<Matrix> C, List<Integer> indices,
+                  MemoryPlanner.Plan plan, SequentialEngines<StrassenAlgorithmSA> engines, int lo, int hi) {
             this.A = A;
             this.B = B;
+            this.C = C;
+            this.indices = indices;
+            this.plan = plan;
+            this.engines = engines;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo > 1) {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new BatchTask(A, B, C, indices, plan, engines, lo, mid),
+                        new BatchTask(A, B, C, indices, plan, engines, mid, hi));
+                return;
+            }
+
+            int i = indices.get(lo);
+            if (plan.strassen()) {
+                engines.run(engine -> engine.multiplySA(A.get(i), B.get(i), C.get(i), plan.leanLevels()));
+            } else {
+                multiply(A.get(i), B.get(i), C.get(i));
+            }
+        }
+    }
+
+    /**
+     * Computes C = A * B in place; quadrants of A, B and C are views into their parents. The operands may be lazy
+     * sums: a leaf packs them straight from the parent's quadrants, any other task evaluates them when it runs, so
+     * the sums of a level are formed in parallel by the tasks instead of by the parent before it forks. The schedule
+     * of the product travels with its tasks.
+     */
+    private class StrassenTask extends RecursiveAction {
+        private final LinearCombination lazyA, lazyB;
+        private final Matrix C;
+        private final int depth;
+        // the schedule handed down by the parent, and the one of this task once it has its grain
+        private final ForkSchedule inherited;
+        private ForkSchedule schedule;
+        // where the leaves of the product run
+        private final SequentialEngines<StrassenAlgorithmSA> engines;
+        private Matrix A, B;
+
+        public StrassenTask(Matrix A, Matrix B, Matrix C, int depth, ForkSchedule schedule,
+                            SequentialEngines<StrassenAlgorithmSA> engines) {
+            this(LinearCombination.of(A), LinearCombination.of(B), C, depth, schedule, engines);
+        }
+
+        public StrassenTask(LinearCombination A, LinearCombination B, Matrix C, int depth,
+                            ForkSchedule schedule, SequentialEngines<StrassenAlgorithmSA> engines) {
+            this.lazyA = A;
+            this.lazyB = B;
+            this.C = C;
             this.depth = depth;
+            this.inherited = schedule;
+            this.engines = engines;
         }
 
         @Override
-        protected int[][] compute() {
-            int n = A.length;
-
-            boolean lowMemory = !hasEnoughMemoryForParallelStrassen(n);
-            if (n == 1 || n % 2 != 0 || lowMemory || depth >= maxDepth) {
-                if (lowMemory) {
-                    System.out.printf("Falling back to conventional multiply at size %dx%d due to memory.\n", n, n);
-                    return multiply(A, B);
-                } else if (depth >= maxDepth) {
-                    //System.out.printf("Max recursion depth %d reached at size %dx%d. Using sequential Strassen.\n", depth, n, n);
-                    return sequentialStrassen.multiplySA(A, B);
-                }
-                return multiply(A, B);
-            }
-
-            int newSize = n / 2;
-            int[][] A11 = new int[newSize][newSize];
-            int[][] A12 = new int[newSize][newSize];
-            int[][] A21 = new int[newSize][newSize];
-            int[][] A22 = new int[newSize][newSize];
-            int[][] B11 = new int[newSize][newSize];
-            int[][] B12 = new int[newSize][newSize];
-            int[][] B21 = new int[newSize][newSize];
-            int[][] B22 = new int[newSize][newSize];
-
-            extract(A, A11, 0, 0);
-            extract(A, A12, 0, newSize);
-            extract(A, A21, newSize, 0);
-            extract(A, A22, newSize, newSize);
-            extract(B, B11, 0, 0);
-            extract(B, B12, 0, newSize);
-            extract(B, B21, newSize, 0);
-            extract(B, B22, newSize, newSize);
-
-            StrassenTask M1 = new StrassenTask(add(A11, A22), add(B11, B22), depth + 1);
-            StrassenTask M2 = new StrassenTask(add(A21, A22), B11, depth + 1);
-            StrassenTask M3 = new StrassenTask(A11, subtract(B12, B22), depth + 1);
-            StrassenTask M4 = new StrassenTask(A22, subtract(B21, B11), depth + 1);
-            StrassenTask M5 = new StrassenTask(add(A11, A12), B22, depth + 1);
-            StrassenTask M6 = new StrassenTask(subtract(A21, A11), add(B11, B12), depth + 1);
-            StrassenTask M7 = new StrassenTask(subtract(A12, A22), add(B21, B22), depth + 1);
+        protected void compute() {
+            int m = lazyA.rows(), k = lazyA.cols(), n = lazyB.cols();
+            int smallest = Math.min(m, Math.min(k, n));
+            int largest = Math.max(m, Math.max(k, n));
+
+            if (smallest <= crossover) {
+                multiply(lazyA, lazyB, C);
+                return;
+            }
+
+            A = evaluate(lazyA);
+            B = evaluate(lazyB);
+
+            schedule = inherited.at(depth, config, m, k, n);
+            if (schedule.sequential(depth, (long) m * k * n)) {
+                engines.run(engine -> engine.multiplySA(A, B, C, schedule.leafLean()));
+                return;
+            }
+
+            if (largest >= 2 * smallest) {
+                computeSplit();
+                return;
+            }
+
+            if (m % 2 != 0 || k % 2 != 0 || n % 2 != 0) {
+                // dynamic peeling: Strassen on the even core, then the odd row, column and inner slice classically
+                int me = m & ~1, ke = k & ~1, ne = n & ~1;
+                new StrassenTask(A.view(0, 0, me, ke), B.view(0, 0, ke, ne), C.view(0, 0, me, ne), depth,
+                        inherited, engines).compute();
+                completePeeledInBlocks(me, ke, ne);
+                return;
+            }
+
+            if (schedule.depthFirstAt(depth)) {
+                computeDepthFirst();
+                return;
+            }
+
+            if (variant == StrassenVariant.WINOGRAD) {
+                computeWinograd();
+                return;
+            }
+
+            int mh = m / 2, nh = n / 2;
+            Matrix A11 = A.quadrant(0, 0);
+            Matrix A12 = A.quadrant(0, 1);
+            Matrix A21 = A.quadrant(1, 0);
+            Matrix A22 = A.quadrant(1, 1);
+            Matrix B11 = B.quadrant(0, 0);
+            Matrix B12 = B.quadrant(0, 1);
+            Matrix B21 = B.quadrant(1, 0);
+            Matrix B22 = B.quadrant(1, 1);
+
+            Matrix m1 = new Matrix(mh, nh);
+            Matrix m2 = new Matrix(mh, nh);
+            Matrix m3 = new Matrix(mh, nh);
+            Matrix m4 = new Matrix(mh, nh);
+            Matrix m5 = new Matrix(mh, nh);
+            Matrix m6 = new Matrix(mh, nh);
+            Matrix m7 = new Matrix(mh, nh);
+
+            StrassenTask M1 = new StrassenTask(LinearCombination.of(A11).plus(A22),
+                    LinearCombination.of(B11).plus(B22), m1, depth + 1, schedule, engines);
+            StrassenTask M2 = new StrassenTask(LinearCombination.of(A21).plus(A22),
+                    LinearCombination.of(B11), m2, depth + 1, schedule, engines);
+            StrassenTask M3 = new StrassenTask(LinearCombination.of(A11),
+                    LinearCombination.of(B12).minus(B22), m3, depth + 1, schedule, engines);
+            StrassenTask M4 = new StrassenTask(LinearCombination.of(A22),
+                    LinearCombination.of(B21).minus(B11), m4, depth + 1, schedule, engines);
+            StrassenTask M5 = new StrassenTask(LinearCombination.of(A11).plus(A12),
+                    LinearCombination.of(B22), m5, depth + 1, schedule, engines);
+            StrassenTask M6 = new StrassenTask(LinearCombination.of(A21).minus(A11),
+                    LinearCombination.of(B11).plus(B12), m6, depth + 1, schedule, engines);
+            StrassenTask M7 = new StrassenTask(LinearCombination.of(A12).minus(A22),
+                    LinearCombination.of(B21).plus(B22), m7, depth + 1, schedule, engines);
 
             M1.fork();
             M2.fork();
@@ -85,80 +376,228 @@ public class StrassenAlgorithmPA extends MatrixOperations {
             M4.fork();
             M5.fork();
             M6.fork();
-            int[][] m7 = M7.compute();
-            int[][] m6 = M6.join();
-            int[][] m5 = M5.join();
-            int[][] m4 = M4.join();
-            int[][] m3 = M3.join();
-            int[][] m2 = M2.join();
-            int[][] m1 = M1.join();
-
-            int[][] C11 = add(subtract(add(m1, m4), m5), m7);
-            int[][] C12 = add(m3, m5);
-            int[][] C21 = add(m2, m4);
-            int[][] C22 = add(add(subtract(m1, m2), m3), m6);
-
-            int[][] C = new int[n][n];
-            joinAll(C11, C, 0, 0);
-            joinAll(C12, C, 0, newSize);
-            joinAll(C21, C, newSize, 0);
-            joinAll(C22, C, newSize, newSize);
-
-            return C;
+            M7.compute();
+            M6.join();
+            M5.join();
+            M4.join();
+            M3.join();
+            M2.join();
+            M1.join();
+
+            Matrix C11 = C.quadrant(0, 0);
+            Matrix C12 = C.quadrant(0, 1);
+            Matrix C21 = C.quadrant(1, 0);
+            Matrix C22 = C.quadrant(1, 1);
+
+            RowBlocks.run(mh, 4 * nh, (row, rows) -> {
+                Matrix p1 = m1.rowBlock(row, rows), p2 = m2.rowBlock(row, rows), p3 = m3.rowBlock(row, rows);
+                Matrix p4 = m4.rowBlock(row, rows), p5 = m5.rowBlock(row, rows), p6 = m6.rowBlock(row, rows);
+                Matrix p7 = m7.rowBlock(row, rows);
+                addSubtractAdd(p1, p4, p5, p7, C11.rowBlock(row, rows));
+                add(p3, p5, C12.rowBlock(row, rows));
+                add(p2, p4, C21.rowBlock(row, rows));
+                subtractAddAdd(p1, p2, p3, p6, C22.rowBlock(row, rows));
+            });
         }
-    }
 
-    private void joinAll(int[][] C, int[][] A, int i, int j) {
-        for (int iC = 0; iC < C.length; iC++) {
-            for (int jC = 0; jC < C.length; jC++) {
-                A[i + iC][j + jC] = C[iC][jC];
+        // The lazy operand itself if it is a single matrix, otherwise its sum, formed over row blocks at the top levels
+        private Matrix evaluate(LinearCombination lazy) {
+            if (lazy.size() == 1) {
+                return lazy.evaluate();
             }
+            Matrix S = new Matrix(lazy.rows(), lazy.cols());
+            RowBlocks.run(S.rows(), lazy.size() * S.cols(),
+                    (row, rows) -> lazy.rowBlock(row, rows).evaluate(S.rowBlock(row, rows)));
+            return S;
         }
-    }
-    
-    private boolean hasEnoughMemoryForParallelStrassen(int n) {
-        Runtime runtime = Runtime.getRuntime();
-        long totalMemory = runtime.totalMemory();
-        long freeMemory = runtime.freeMemory();
-        long maxMemory = runtime.maxMemory();
-        long usedMemory = totalMemory - freeMemory;
-        long availableMemory = maxMemory - usedMemory;
-
-        // 3 matrices A, B, C (n x n each), 8 submatrices (n/2 x n/2 each) + 7 M matrices (n/2 x n/2 each)
-        // Total: 3 (n x n) and 15 (n/2 x n/2)
-        long elementsNeeded = (long)(6.75 * n * n);
-        long bytesNeeded = elementsNeeded * 4; // 4 bytes per int
 
-        long estimatedMemoryNeeded = (long) (bytesNeeded * 2);   // 100% overhead for concurrency
-
-        boolean hasEnough = estimatedMemoryNeeded < (availableMemory * MEMORY_THRESHOLD);
+        // completePeeled over row blocks of the even core and column blocks of the odd row
+        private void completePeeledInBlocks(int m, int k, int n) {
+            int kA = A.cols(), nB = B.cols();
+            if (k < kA) {
+                RowBlocks.run(m, n, (row, rows) -> multiplyAdd(A.view(row, k, rows, kA - k),
+                        B.view(k, 0, kA - k, n), C.view(row, 0, rows, n)));
+            }
+            if (n < nB) {
+                RowBlocks.run(m, kA, (row, rows) -> multiply(A.view(row, 0, rows, kA), B.view(0, n, kA, nB - n),
+                        C.view(row, n, rows, nB - n)));
+            }
+            if (m < A.rows()) {
+                // a single row, so its columns are split instead
+                Matrix lastA = A.view(m, 0, 1, kA), lastC = C.view(m, 0, 1, nB);
+                RowBlocks.run(nB, kA, (col, cols) -> multiply(lastA, B.view(0, col, kA, cols),
+                        lastC.view(0, col, 1, cols)));
+            }
+        }
 
-        if (!hasEnough) {
-            System.out.printf("Parallel memory check for %dx%d matrices:%n", n, n);
-            System.out.printf("  Available memory: %.2f MB%n", availableMemory / (1024.0 * 1024.0));
-            System.out.printf("  Estimated needed: %.2f MB%n", estimatedMemoryNeeded / (1024.0 * 1024.0));
-            System.out.printf("  Safety threshold: %.0f%% of available%n", MEMORY_THRESHOLD * 100);
-            System.out.printf("  Parallel overhead: 75%% (due to concurrent execution)%n");
-            System.out.printf("  ForkJoin pool size: %d threads%n", forkJoinPool.getParallelism());
+        /**
+         * One depth-first level: the seven products run one after another, each forking on the whole pool, and are
+         * folded into C as soon as they are formed, as on the sequential engine's lean schedule. The level holds a
+         * single product and the operand sums of the subproduct that runs instead of seven products and all sums.
+         */
+        private void computeDepthFirst() {
+            int mh = A.rows() / 2, nh = B.cols() / 2;
+            Matrix A11 = A.quadrant(0, 0);
+            Matrix A12 = A.quadrant(0, 1);
+            Matrix A21 = A.quadrant(1, 0);
+            Matrix A22 = A.quadrant(1, 1);
+            Matrix B11 = B.quadrant(0, 0);
+            Matrix B12 = B.quadrant(0, 1);
+            Matrix B21 = B.quadrant(1, 0);
+            Matrix B22 = B.quadrant(1, 1);
+            Matrix C11 = C.quadrant(0, 0);
+            Matrix C12 = C.quadrant(0, 1);
+            Matrix C21 = C.quadrant(1, 0);
+            Matrix C22 = C.quadrant(1, 1);
+
+            Matrix M = new Matrix(mh, nh);
+
+            // M1 = (A11 + A22) * (B11 + B22): C11 = M1, C22 = M1
+            product(LinearCombination.of(A11).plus(A22), LinearCombination.of(B11).plus(B22), C11);
+            RowBlocks.run(mh, nh, (row, rows) -> C22.rowBlock(row, rows).copyFrom(C11.rowBlock(row, rows)));
+            // M2 = (A21 + A22) * B11: C21 = M2, C22 -= M2
+            product(LinearCombination.of(A21).plus(A22), LinearCombination.of(B11), C21);
+            fold(C22, C21, true);
+            // M3 = A11 * (B12 - B22): C12 = M3, C22 += M3
+            product(LinearCombination.of(A11), LinearCombination.of(B12).minus(B22), C12);
+            fold(C22, C12, false);
+            // M4 = A22 * (B21 - B11): C11 += M4, C21 += M4
+            product(LinearCombination.of(A22), LinearCombination.of(B21).minus(B11), M);
+            fold(C11, M, false);
+            fold(C21, M, false);
+            // M5 = (A11 + A12) * B22: C11 -= M5, C12 += M5
+            product(LinearCombination.of(A11).plus(A12), LinearCombination.of(B22), M);
+            fold(C11, M, true);
+            fold(C12, M, false);
+            // M6 = (A21 - A11) * (B11 + B12): C22 += M6
+            product(LinearCombination.of(A21).minus(A11), LinearCombination.of(B11).plus(B12), M);
+            fold(C22, M, false);
+            // M7 = (A12 - A22) * (B21 + B22): C11 += M7
+            product(LinearCombination.of(A12).minus(A22), LinearCombination.of(B21).plus(B22), M);
+            fold(C11, M, false);
         }
 
-        return hasEnough;
-    }
+        // L * R into M as a subproduct of this depth-first level, forking on the whole pool below it
+        private void product(LinearCombination L, LinearCombination R, Matrix M) {
+            new StrassenTask(L, R, M, depth + 1, schedule, engines).compute();
+        }
 
-    private int calculateMaxRecursionDepth(int n) {
-        Runtime runtime = Runtime.getRuntime();
-        long totalMemory = runtime.totalMemory();
-        long freeMemory = runtime.freeMemory();
-        long usedMemory = totalMemory - freeMemory;
-        long availableMemory = runtime.maxMemory() - usedMemory;
+        // Z += X, or Z -= X when negate, over row blocks
+        private void fold(Matrix Z, Matrix X, boolean negate) {
+            RowBlocks.run(Z.rows(), Z.cols(), (row, rows) -> {
+                Matrix z = Z.rowBlock(row, rows);
+                if (negate) {
+                    subtract(z, X.rowBlock(row, rows), z);
+                } else {
+                    add(z, X.rowBlock(row, rows), z);
+                }
+            });
+        }
 
-        double safeMemory = availableMemory * MEMORY_THRESHOLD;
-        double denom = 105.0 * n * n;
+        // Halves the largest dimension and runs both halves concurrently, or one after the other on a depth-first
+        // level
+        private void computeSplit() {
+            int m = A.rows(), k = A.cols(), n = B.cols();
+
+            if (m >= k && m >= n) {
+                int top = (m + 1) / 2;
+                both(new StrassenTask(A.view(0, 0, top, k), B, C.view(0, 0, top, n), depth + 1, schedule, engines),
+                        new StrassenTask(A.view(top, 0, m - top, k), B, C.view(top, 0, m - top, n), depth + 1,
+                                schedule, engines));
+            } else if (n >= k) {
+                int left = (n + 1) / 2;
+                both(new StrassenTask(A, B.view(0, 0, k, left), C.view(0, 0, m, left), depth + 1, schedule, engines),
+                        new StrassenTask(A, B.view(0, left, k, n - left), C.view(0, left, m, n - left),
+                                depth + 1, schedule, engines));
+            } else {
+                // C = A1 * B1 + A2 * B2 over the two halves of the inner dimension
+                int front = (k + 1) / 2;
+                Matrix T = new Matrix(m, n);
+                both(new StrassenTask(A.view(0, 0, m, front), B.view(0, 0, front, n), C, depth + 1, schedule, engines),
+                        new StrassenTask(A.view(0, front, m, k - front), B.view(front, 0, k - front, n),
+                                T, depth + 1, schedule, engines));
+                RowBlocks.run(m, n, (row, rows) -> add(C.rowBlock(row, rows), T.rowBlock(row, rows),
+                        C.rowBlock(row, rows)));
+            }
+        }
 
-        if (denom <= 0 || safeMemory <= 0) return 0;
+        private void both(StrassenTask first, StrassenTask second) {
+            if (schedule.depthFirstAt(depth)) {
+                first.compute();
+                second.compute();
+            } else {
+                invokeAll(first, second);
+            }
+        }
 
-        double ratio = safeMemory / denom;
-        return Math.max(0, (int) Math.floor(0.5 * (Math.log(ratio) / Math.log(2))));
+        private void computeWinograd() {
+            int mh = A.rows() / 2, kh = A.cols() / 2, nh = B.cols() / 2;
+            Matrix A11 = A.quadrant(0, 0);
+            Matrix A12 = A.quadrant(0, 1);
+            Matrix A21 = A.quadrant(1, 0);
+            Matrix A22 = A.quadrant(1, 1);
+            Matrix B11 = B.quadrant(0, 0);
+            Matrix B12 = B.quadrant(0, 1);
+            Matrix B21 = B.quadrant(1, 0);
+            Matrix B22 = B.quadrant(1, 1);
+
+            Matrix S1 = new Matrix(mh, kh), S2 = new Matrix(mh, kh), S3 = new Matrix(mh, kh), S4 = new Matrix(mh, kh);
+            Matrix T1 = new Matrix(kh, nh), T2 = new Matrix(kh, nh), T3 = new Matrix(kh, nh), T4 = new Matrix(kh, nh);
+            RowBlocks.run(mh, 4 * kh, (row, rows) -> {
+                Matrix a11 = A11.rowBlock(row, rows), a12 = A12.rowBlock(row, rows);
+                Matrix a21 = A21.rowBlock(row, rows), a22 = A22.rowBlock(row, rows);
+                Matrix s1 = S1.rowBlock(row, rows), s2 = S2.rowBlock(row, rows);
+                add(a21, a22, s1);
+                subtract(s1, a11, s2);
+                subtract(a11, a21, S3.rowBlock(row, rows));
+                subtract(a12, s2, S4.rowBlock(row, rows));
+            });
+            RowBlocks.run(kh, 4 * nh, (row, rows) -> {
+                Matrix b11 = B11.rowBlock(row, rows), b12 = B12.rowBlock(row, rows);
+                Matrix b21 = B21.rowBlock(row, rows), b22 = B22.rowBlock(row, rows);
+                Matrix t1 = T1.rowBlock(row, rows), t2 = T2.rowBlock(row, rows);
+                subtract(b12, b11, t1);
+                subtract(b22, t1, t2);
+                subtract(b22, b12, T3.rowBlock(row, rows));
+                subtract(t2, b21, T4.rowBlock(row, rows));
+            });
+
+            Matrix m1 = new Matrix(mh, nh);
+            Matrix m2 = new Matrix(mh, nh);
+            Matrix m3 = new Matrix(mh, nh);
+            Matrix m4 = new Matrix(mh, nh);
+            Matrix m5 = new Matrix(mh, nh);
+            Matrix m6 = new Matrix(mh, nh);
+            Matrix m7 = new Matrix(mh, nh);
+
+            StrassenTask M1 = new StrassenTask(A11, B11, m1, depth + 1, schedule, engines);
+            StrassenTask M2 = new StrassenTask(A12, B21, m2, depth + 1, schedule, engines);
+            StrassenTask M3 = new StrassenTask(S4, B22, m3, depth + 1, schedule, engines);
+            StrassenTask M4 = new StrassenTask(A22, T4, m4, depth + 1, schedule, engines);
+            StrassenTask M5 = new StrassenTask(S1, T1, m5, depth + 1, schedule, engines);
+            StrassenTask M6 = new StrassenTask(S2, T2, m6, depth + 1, schedule, engines);
+            StrassenTask M7 = new StrassenTask(S3, T3, m7, depth + 1, schedule, engines);
+
+            invokeAll(M1, M2, M3, M4, M5, M6, M7);
+
+            Matrix C11 = C.quadrant(0, 0);
+            Matrix C12 = C.quadrant(0, 1);
+            Matrix C21 = C.quadrant(1, 0);
+            Matrix C22 = C.quadrant(1, 1);
+
+            RowBlocks.run(mh, 4 * nh, (row, rows) -> {
+                Matrix p1 = m1.rowBlock(row, rows), p2 = m2.rowBlock(row, rows), p3 = m3.rowBlock(row, rows);
+                Matrix p4 = m4.rowBlock(row, rows), p5 = m5.rowBlock(row, rows), p6 = m6.rowBlock(row, rows);
+                Matrix p7 = m7.rowBlock(row, rows);
+                add(p1, p2, C11.rowBlock(row, rows));
+                add(p1, p6, p6);
+                add(p6, p7, p7);
+                add(p6, p5, p6);
+                add(p6, p3, C12.rowBlock(row, rows));
+                subtract(p7, p4, C21.rowBlock(row, rows));
+                add(p7, p5, C22.rowBlock(row, rows));
+            });
+        }
     }
 
 
@@ -166,13 +605,19 @@ public class StrassenAlgorithmPA extends MatrixOperations {
         System.out.println("Strassen's Algorithm Parallel (ForkJoin-Based) Implementation (memory adaptive)");
         System.out.println("______________________________________________________________");
 
+        // java StrassenAlgorithmPA A.mat B.mat C.mat multiplies matrix files instead of random matrices
+        if (args.length == 3) {
+            multiplyFiles(Path.of(args[0]), Path.of(args[1]), Path.of(args[2]));
+            return;
+        }
+
         Scanner scanner = new Scanner(System.in);
         System.out.print("Please specify the size of the matrices: ");
         int N = scanner.nextInt();
         scanner.close();
 
-        int[][] A = create(N);
-        int[][] B = create(N);
+        int[][] A = create(N, N, MatrixGenerator.SEED);
+        int[][] B = create(N, N, MatrixGenerator.SEED + 1);
 
         StrassenAlgorithmPA strassen = new StrassenAlgorithmPA();
 
@@ -183,7 +628,67 @@ public class StrassenAlgorithmPA extends MatrixOperations {
 //        printMatrix(A);
 //        printMatrix(B);
 //        printMatrix(C);
+        Freivalds.report(A, B, C);
 
         System.out.println("\nExecution time: " + (endTime - startTime) + " nanoseconds");
     }
+
+    // C = A * B for MatrixFile operands of any element type
+    private static void multiplyFiles(Path a, Path b, Path c) {
+        try {
+            MatrixFile.Header headerA = MatrixFile.readHeader(a);
+            MatrixFile.Header headerB = MatrixFile.readHeader(b);
+            if (headerA.type() != headerB.type()) {
+                throw new IOException(a + " and " + b + " hold different element types");
+            }
+            if (headerB.rows() != headerA.cols()) {
+                throw new IOException("Cannot multiply " + headerA.rows() + "x" + headerA.cols() + " by "
+                        + headerB.rows() + "x" + headerB.cols());
+            }
+
+            long startTime, endTime;
+            switch (headerA.type()) {
+                case INT -> {
+                    Matrix A = MatrixFile.readMatrix(a);
+                    Matrix B = MatrixFile.readMatrix(b);
+                    startTime = System.nanoTime();
+                    Matrix C = new StrassenAlgorithmPA().multiplyParallel(A, B);
+                    endTime = System.nanoTime();
+                    MatrixFile.write(c, C);
+                    Freivalds.report(A, B, C);
+                }
+                case LONG -> {
+                    LongMatrix A = MatrixFile.readLongMatrix(a);
+                    LongMatrix B = MatrixFile.readLongMatrix(b);
+                    startTime = System.nanoTime();
+                    LongMatrix C = new LongStrassenAlgorithmPA().multiplyParallel(A, B);
+                    endTime = System.nanoTime();
+                    MatrixFile.write(c, C);
+                    Freivalds.report(A, B, C);
+                }
+                case FLOAT -> {
+                    FloatMatrix A = MatrixFile.readFloatMatrix(a);
+                    FloatMatrix B = MatrixFile.readFloatMatrix(b);
+                    startTime = System.nanoTime();
+                    FloatMatrix C = new FloatStrassenAlgorithmPA().multiplyParallel(A, B);
+                    endTime = System.nanoTime();
+                    MatrixFile.write(c, C);
+                    Freivalds.report(A, B, C);
+                }
+                default -> {
+                    DoubleMatrix A = MatrixFile.readDoubleMatrix(a);
+                    DoubleMatrix B = MatrixFile.readDoubleMatrix(b);
+                    startTime = System.nanoTime();
+                    DoubleMatrix C = new DoubleStrassenAlgorithmPA().multiplyParallel(A, B);
+                    endTime = System.nanoTime();
+                    MatrixFile.write(c, C);
+                    Freivalds.report(A, B, C);
+                }
+            }
+
+            System.out.println("\nExecution time: " + (endTime - startTime) + " nanoseconds");
+        } catch (IOException e) {
+            System.out.println("Multiplying matrix files failed: " + e.getMessage());
+        }
+    }
 }
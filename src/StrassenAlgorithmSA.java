@@ -1,106 +1,396 @@
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
 import java.util.Scanner;
 
 public class StrassenAlgorithmSA extends MatrixOperations {
 
-    private static final double MEMORY_THRESHOLD = 0.9;
-    
+    // blocks of this size or smaller are multiplied classically
+    private final int crossover;
+    private final StrassenVariant variant;
+    // scratch arena, grown on demand and reused across products
+    private StrassenWorkspace workspace;
+    // Strassen levels, from the top, still to run on the lean schedule
+    private int leanLevels;
+    // packing buffers of the leaf kernel, or null for the calling thread's own
+    private final BlockedMultiply.Packing packing;
+
+    public StrassenAlgorithmSA() {
+        this(StrassenCrossover.load("sequential"));
+    }
+
+    public StrassenAlgorithmSA(int crossover) {
+        this(crossover, StrassenVariant.CLASSIC);
+    }
+
+    public StrassenAlgorithmSA(int crossover, StrassenVariant variant) {
+        this(crossover, variant, null);
+    }
+
+    // An engine whose leaves pack into the given buffers, for callers whose threads do not live long enough to keep
+    // buffers of their own
+    StrassenAlgorithmSA(int crossover, StrassenVariant variant, BlockedMultiply.Packing packing) {
+        this.crossover = Math.max(1, crossover);
+        this.variant = variant;
+        this.packing = packing;
+    }
+
+    public int getCrossover() {
+        return crossover;
+    }
+
+    public StrassenVariant getVariant() {
+        return variant;
+    }
+
+    // Memory plan of C = A * B for an m x k matrix A and a k x n matrix B, see MemoryPlanner
+    public MemoryPlanner.Plan plan(int m, int k, int n) {
+        return MemoryPlanner.sequential(m, k, n, crossover, variant, ElementType.INT, MemoryPlanner.budget());
+    }
+
     public int[][] multiplySA(int[][] A, int[][] B) {
+        return multiplySA(Matrix.of(A), Matrix.of(B)).toArray();
+    }
 
-        int n = A.length;
-        int[][] C = new int[n][n];
-
-        if (n == 1) {
-            C[0][0] = A[0][0] * B[0][0];
-        } else if (n % 2 == 0) {
-            
-            if (!hasEnoughMemoryForStrassen(n)) {
-                System.out.println("Insufficient memory for Strassen recursion at size " + n + 
-                                 "x" + n + ". Falling back to conventional multiplication.");
-                return multiply(A, B);
-            }
+    public Matrix multiplySA(Matrix A, Matrix B) {
+        Matrix C = new Matrix(A.rows(), B.cols());
+        multiplySA(A, B, C);
+        return C;
+    }
+
+    /**
+     * The product of a chain of factors, in the order {@link MatrixChain} finds cheapest for this engine's crossover
+     * and variant. Every intermediate is dropped as soon as the product that consumes it is formed.
+     */
+    public Matrix multiplyChain(List<Matrix> factors) {
+        int[] dims = MatrixChain.dimensions(factors.size(), i -> factors.get(i).rows(), i -> factors.get(i).cols());
+        MatrixChain.Order order = MatrixChain.order(dims, crossover, variant);
+        return multiplyChain(factors, order, 0, factors.size() - 1);
+    }
+
+    // The product of factors i..j
+    private Matrix multiplyChain(List<Matrix> factors, MatrixChain.Order order, int i, int j) {
+        if (i == j) return factors.get(i);
+        int s = order.split(i, j);
+        return multiplySA(multiplyChain(factors, order, i, s), multiplyChain(factors, order, s + 1, j));
+    }
+
+    /**
+     * A^exponent for a square A by repeated squaring, see {@link MatrixPower}: at most three n x n buffers and this
+     * engine's workspace, sized by the first squaring, are reused by every product. A^0 is the identity.
+     */
+    public Matrix power(Matrix A, long exponent) {
+        MatrixPower.check(A.rows(), A.cols(), exponent);
+        int n = A.rows();
+        if (exponent == 0) return MatrixGenerator.identity(n);
+
+        return MatrixPower.power(A, exponent, () -> new Matrix(n), this::multiplySA, M -> {
+            Matrix C = new Matrix(n);
+            C.copyFrom(M);
+            return C;
+        });
+    }
+
+    /**
+     * C = A * B for an m x k matrix A and a k x n matrix B. Quadrants of A, B and C are views and every temporary is
+     * carved from this engine's workspace, which is sized once for the largest product seen and reused by later
+     * calls. Not thread-safe.
+     */
+    public void multiplySA(Matrix A, Matrix B, Matrix C) {
+
+        checkDimensions(A, B, C);
+
+        int m = A.rows(), k = A.cols(), n = B.cols();
+        long scratch = StrassenWorkspace.scratchSize(m, k, n, crossover, variant);
+
+        if (workspace != null && workspace.capacity() >= scratch) {
+            multiplySA(A, B, C, 0);
+            return;
+        }
+
+        // the workspace has to grow: plan first, trading temporaries for the lean schedule before giving up Strassen
+        workspace = null;
+        MemoryPlanner.Plan plan = plan(m, k, n);
+        if (!plan.strassen()) {
+            System.out.println("Insufficient memory for Strassen recursion, falling back to conventional " +
+                    "multiplication: " + plan);
+            multiply(A, B, C, packing);
+            return;
+        }
+        if (plan.leanLevels() > 0) {
+            System.out.println("Memory is tight, using the lean schedule: " + plan);
+        }
+        multiplySA(A, B, C, plan.leanLevels());
+    }
+
+    // C = A * B with the top leanLevels Strassen levels on the lean schedule, growing the workspace without planning
+    void multiplySA(Matrix A, Matrix B, Matrix C, int leanLevels) {
+        long scratch = StrassenWorkspace.scratchSize(A.rows(), A.cols(), B.cols(), crossover, variant, leanLevels);
+        if (workspace == null || workspace.capacity() < scratch) {
+            workspace = null;
+            workspace = new StrassenWorkspace(scratch);
+        }
+
+        this.leanLevels = leanLevels;
+        strassen(A, B, C);
+    }
+
+    private void strassen(Matrix A, Matrix B, Matrix C) {
+
+        int m = A.rows(), k = A.cols(), n = B.cols();
+        int smallest = Math.min(m, Math.min(k, n));
+        int largest = Math.max(m, Math.max(k, n));
+
+        if (smallest <= crossover) {
+            multiply(A, B, C, packing);
+            return;
+        }
+
+        if (largest >= 2 * smallest) {
+            splitLargest(A, B, C);
+            return;
+        }
+
+        if (m % 2 != 0 || k % 2 != 0 || n % 2 != 0) {
+            // dynamic peeling: Strassen on the even core, then the odd row, column and inner slice classically
+            int me = m & ~1, ke = k & ~1, ne = n & ~1;
+            strassen(A.view(0, 0, me, ke), B.view(0, 0, ke, ne), C.view(0, 0, me, ne));
+            completePeeled(A, B, C, me, ke, ne, packing);
+            return;
+        }
+
+        if (leanLevels > 0) {
+            lean(A, B, C);
+            return;
+        }
+
+        if (variant == StrassenVariant.WINOGRAD) {
+            winograd(A, B, C);
+            return;
+        }
 
-            int[][] A11 = new int[n / 2][n / 2];
-            int[][] A12 = new int[n / 2][n / 2];
-            int[][] A21 = new int[n / 2][n / 2];
-            int[][] A22 = new int[n / 2][n / 2];
-            int[][] B11 = new int[n / 2][n / 2];
-            int[][] B12 = new int[n / 2][n / 2];
-            int[][] B21 = new int[n / 2][n / 2];
-            int[][] B22 = new int[n / 2][n / 2];
-
-            extract(A, A11, 0, 0);
-            extract(A, A12, 0, n / 2);
-            extract(A, A21, n / 2, 0);
-            extract(A, A22, n / 2, n / 2);
-
-            extract(B, B11, 0, 0);
-            extract(B, B12, 0, n / 2);
-            extract(B, B21, n / 2, 0);
-            extract(B, B22, n / 2, n / 2);
-
-            // M1 = (A11 + A22) * (B11 + B22)
-            int[][] M1 = multiplySA(add(A11, A22), add(B11, B22));
-            // M2 = (A21 + A22) * B11
-            int[][] M2 = multiplySA(add(A21, A22), B11);
-            // M3 = A11 * (B12 - B22)
-            int[][] M3 = multiplySA(A11, subtract(B12, B22));
-            // M4 = A22 * (B21 − B11)
-            int[][] M4 = multiplySA(A22, subtract(B21, B11));
-            // M5 = (A11 + A12) * B22
-            int[][] M5 = multiplySA(add(A11, A12), B22);
-            // M6 = (A21 - A11) * (B11 + B12)
-            int[][] M6 = multiplySA(subtract(A21, A11), add(B11, B12));
-            // M7 = (A12 - A22) * (B21 + B22)
-            int[][] M7 = multiplySA(subtract(A12, A22), add(B21, B22));
-
-            // C11 = M1 + M4 − M5 + M7
-            int[][] C11 = add(subtract(add(M1, M4), M5), M7);
-            // C12 = M3 + M5
-            int[][] C12 = add(M3, M5);
-            // C21 = M2 + M4
-            int[][] C21 = add(M2, M4);
-            // C22 = M1 − M2 + M3 + M6
-            int[][] C22 = add(add(subtract(M1, M2), M3), M6);
-
-            join(C11, C, 0, 0);
-            join(C12, C, 0, n / 2);
-            join(C21, C, n / 2, 0);
-            join(C22, C, n / 2, n / 2);
+        int mh = m / 2, kh = k / 2, nh = n / 2;
+        int mark = workspace.mark();
+
+        Matrix A11 = A.quadrant(0, 0);
+        Matrix A12 = A.quadrant(0, 1);
+        Matrix A21 = A.quadrant(1, 0);
+        Matrix A22 = A.quadrant(1, 1);
+        Matrix B11 = B.quadrant(0, 0);
+        Matrix B12 = B.quadrant(0, 1);
+        Matrix B21 = B.quadrant(1, 0);
+        Matrix B22 = B.quadrant(1, 1);
+
+        Matrix M1 = workspace.allocate(mh, nh);
+        Matrix M2 = workspace.allocate(mh, nh);
+        Matrix M3 = workspace.allocate(mh, nh);
+        Matrix M4 = workspace.allocate(mh, nh);
+        Matrix M5 = workspace.allocate(mh, nh);
+        Matrix M6 = workspace.allocate(mh, nh);
+        Matrix M7 = workspace.allocate(mh, nh);
+        // operand sums, overwritten for every product that recurses further
+        Matrix S = workspace.allocate(mh, kh);
+        Matrix T = workspace.allocate(kh, nh);
+
+        // M1 = (A11 + A22) * (B11 + B22)
+        product(LinearCombination.of(A11).plus(A22), LinearCombination.of(B11).plus(B22), S, T, M1);
+        // M2 = (A21 + A22) * B11
+        product(LinearCombination.of(A21).plus(A22), LinearCombination.of(B11), S, T, M2);
+        // M3 = A11 * (B12 - B22)
+        product(LinearCombination.of(A11), LinearCombination.of(B12).minus(B22), S, T, M3);
+        // M4 = A22 * (B21 − B11)
+        product(LinearCombination.of(A22), LinearCombination.of(B21).minus(B11), S, T, M4);
+        // M5 = (A11 + A12) * B22
+        product(LinearCombination.of(A11).plus(A12), LinearCombination.of(B22), S, T, M5);
+        // M6 = (A21 - A11) * (B11 + B12)
+        product(LinearCombination.of(A21).minus(A11), LinearCombination.of(B11).plus(B12), S, T, M6);
+        // M7 = (A12 - A22) * (B21 + B22)
+        product(LinearCombination.of(A12).minus(A22), LinearCombination.of(B21).plus(B22), S, T, M7);
+
+        // C11 = M1 + M4 − M5 + M7
+        addSubtractAdd(M1, M4, M5, M7, C.quadrant(0, 0));
+        // C12 = M3 + M5
+        add(M3, M5, C.quadrant(0, 1));
+        // C21 = M2 + M4
+        add(M2, M4, C.quadrant(1, 0));
+        // C22 = M1 − M2 + M3 + M6
+        subtractAddAdd(M1, M2, M3, M6, C.quadrant(1, 1));
+
+        workspace.release(mark);
+    }
+
+    /**
+     * M = L * R for lazy operand sums. A product at the crossover packs the sums straight from the quadrants; a
+     * deeper one evaluates them into the workspace blocks S and T first, since its own quadrants must be views.
+     */
+    private void product(LinearCombination L, LinearCombination R, Matrix S, Matrix T, Matrix M) {
+        if (Math.min(L.rows(), Math.min(L.cols(), R.cols())) <= crossover) {
+            multiply(L, R, M, packing);
+            return;
+        }
+        strassen(L.evaluate(S), R.evaluate(T), M);
+    }
+
+    /**
+     * One classic Strassen level with three temporaries: an A-side sum S, a B-side sum T and a product M. M1, M2 and
+     * M3 are computed straight into C quadrants and the other products are folded into C as soon as they are formed,
+     * so the level needs mh x kh + kh x nh + mh x nh scratch instead of seven products.
+     */
+    private void lean(Matrix A, Matrix B, Matrix C) {
+
+        int mh = A.rows() / 2, kh = A.cols() / 2, nh = B.cols() / 2;
+        int mark = workspace.mark();
+        leanLevels--;
+
+        Matrix A11 = A.quadrant(0, 0);
+        Matrix A12 = A.quadrant(0, 1);
+        Matrix A21 = A.quadrant(1, 0);
+        Matrix A22 = A.quadrant(1, 1);
+        Matrix B11 = B.quadrant(0, 0);
+        Matrix B12 = B.quadrant(0, 1);
+        Matrix B21 = B.quadrant(1, 0);
+        Matrix B22 = B.quadrant(1, 1);
+        Matrix C11 = C.quadrant(0, 0);
+        Matrix C12 = C.quadrant(0, 1);
+        Matrix C21 = C.quadrant(1, 0);
+        Matrix C22 = C.quadrant(1, 1);
+
+        Matrix S = workspace.allocate(mh, kh);
+        Matrix T = workspace.allocate(kh, nh);
+        Matrix M = workspace.allocate(mh, nh);
+
+        // M1 = (A11 + A22) * (B11 + B22): C11 = M1, C22 = M1
+        product(LinearCombination.of(A11).plus(A22), LinearCombination.of(B11).plus(B22), S, T, C11);
+        C22.copyFrom(C11);
+        // M2 = (A21 + A22) * B11: C21 = M2, C22 -= M2
+        product(LinearCombination.of(A21).plus(A22), LinearCombination.of(B11), S, T, C21);
+        subtract(C22, C21, C22);
+        // M3 = A11 * (B12 - B22): C12 = M3, C22 += M3
+        product(LinearCombination.of(A11), LinearCombination.of(B12).minus(B22), S, T, C12);
+        add(C22, C12, C22);
+        // M4 = A22 * (B21 - B11): C11 += M4, C21 += M4
+        product(LinearCombination.of(A22), LinearCombination.of(B21).minus(B11), S, T, M);
+        add(C11, M, C11);
+        add(C21, M, C21);
+        // M5 = (A11 + A12) * B22: C11 -= M5, C12 += M5
+        product(LinearCombination.of(A11).plus(A12), LinearCombination.of(B22), S, T, M);
+        subtract(C11, M, C11);
+        add(C12, M, C12);
+        // M6 = (A21 - A11) * (B11 + B12): C22 += M6
+        product(LinearCombination.of(A21).minus(A11), LinearCombination.of(B11).plus(B12), S, T, M);
+        add(C22, M, C22);
+        // M7 = (A12 - A22) * (B21 + B22): C11 += M7
+        product(LinearCombination.of(A12).minus(A22), LinearCombination.of(B21).plus(B22), S, T, M);
+        add(C11, M, C11);
+
+        leanLevels++;
+        workspace.release(mark);
+    }
+
+    // Halves the largest of m, k and n; a product this skewed gains nothing from a Strassen step
+    private void splitLargest(Matrix A, Matrix B, Matrix C) {
+
+        int m = A.rows(), k = A.cols(), n = B.cols();
+
+        if (m >= k && m >= n) {
+            int top = (m + 1) / 2;
+            strassen(A.view(0, 0, top, k), B, C.view(0, 0, top, n));
+            strassen(A.view(top, 0, m - top, k), B, C.view(top, 0, m - top, n));
+        } else if (n >= k) {
+            int left = (n + 1) / 2;
+            strassen(A, B.view(0, 0, k, left), C.view(0, 0, m, left));
+            strassen(A, B.view(0, left, k, n - left), C.view(0, left, m, n - left));
         } else {
-            C = multiply(A, B);
+            // C = A1 * B1 + A2 * B2 over the two halves of the inner dimension
+            int front = (k + 1) / 2;
+            int mark = workspace.mark();
+            Matrix T = workspace.allocate(m, n);
+            strassen(A.view(0, 0, m, front), B.view(0, 0, front, n), C);
+            strassen(A.view(0, front, m, k - front), B.view(front, 0, k - front, n), T);
+            add(C, T, C);
+            workspace.release(mark);
         }
+    }
 
-        return C;
+    // One Strassen-Winograd level: 8 operand additions, 7 products and 7 result additions
+    private void winograd(Matrix A, Matrix B, Matrix C) {
+
+        int mh = A.rows() / 2, kh = A.cols() / 2, nh = B.cols() / 2;
+        int mark = workspace.mark();
+
+        Matrix A11 = A.quadrant(0, 0);
+        Matrix A12 = A.quadrant(0, 1);
+        Matrix A21 = A.quadrant(1, 0);
+        Matrix A22 = A.quadrant(1, 1);
+        Matrix B11 = B.quadrant(0, 0);
+        Matrix B12 = B.quadrant(0, 1);
+        Matrix B21 = B.quadrant(1, 0);
+        Matrix B22 = B.quadrant(1, 1);
+
+        Matrix S1 = workspace.allocate(mh, kh);
+        Matrix S2 = workspace.allocate(mh, kh);
+        Matrix S3 = workspace.allocate(mh, kh);
+        Matrix S4 = workspace.allocate(mh, kh);
+        Matrix T1 = workspace.allocate(kh, nh);
+        Matrix T2 = workspace.allocate(kh, nh);
+        Matrix T3 = workspace.allocate(kh, nh);
+        Matrix T4 = workspace.allocate(kh, nh);
+
+        // S1 = A21 + A22, S2 = S1 − A11, S3 = A11 − A21, S4 = A12 − S2
+        add(A21, A22, S1);
+        subtract(S1, A11, S2);
+        subtract(A11, A21, S3);
+        subtract(A12, S2, S4);
+        // T1 = B12 − B11, T2 = B22 − T1, T3 = B22 − B12, T4 = T2 − B21
+        subtract(B12, B11, T1);
+        subtract(B22, T1, T2);
+        subtract(B22, B12, T3);
+        subtract(T2, B21, T4);
+
+        Matrix M1 = workspace.allocate(mh, nh);
+        Matrix M2 = workspace.allocate(mh, nh);
+        Matrix M3 = workspace.allocate(mh, nh);
+        Matrix M4 = workspace.allocate(mh, nh);
+        Matrix M5 = workspace.allocate(mh, nh);
+        Matrix M6 = workspace.allocate(mh, nh);
+        Matrix M7 = workspace.allocate(mh, nh);
+
+        strassen(A11, B11, M1);
+        strassen(A12, B21, M2);
+        strassen(S4, B22, M3);
+        strassen(A22, T4, M4);
+        strassen(S1, T1, M5);
+        strassen(S2, T2, M6);
+        strassen(S3, T3, M7);
+
+        // C11 = M1 + M2
+        add(M1, M2, C.quadrant(0, 0));
+        // U2 = M1 + M6, U3 = U2 + M7, U4 = U2 + M5 (kept in M6, M7 and M6)
+        add(M1, M6, M6);
+        add(M6, M7, M7);
+        add(M6, M5, M6);
+        // C12 = U4 + M3, C21 = U3 − M4, C22 = U3 + M5
+        add(M6, M3, C.quadrant(0, 1));
+        subtract(M7, M4, C.quadrant(1, 0));
+        add(M7, M5, C.quadrant(1, 1));
+
+        workspace.release(mark);
     }
 
-    private static boolean hasEnoughMemoryForStrassen(int n) {
-        Runtime runtime = Runtime.getRuntime();
-        long totalMemory = runtime.totalMemory();
-        long freeMemory = runtime.freeMemory();
-        long maxMemory = runtime.maxMemory();
-        long usedMemory = totalMemory - freeMemory;
-        long availableMemory = maxMemory - usedMemory;
-        
-        // 3 matrices A, B, C (n x n each), 8 submatrices (n/2 x n/2 each) + 7 M matrices (n/2 x n/2 each)
-        // Total: 3 (n x n) and 15 (n/2 x n/2)
-        long elementsNeeded = (long)(6.75 * n * n);
-        long bytesNeeded = elementsNeeded * 4; // 4 bytes per int
+    // A, B and C (n x n each) plus the workspace for a product of size n
+    public boolean hasEnoughMemoryForStrassen(int n) {
+        return hasEnoughMemoryForStrassen(n, n, n);
+    }
 
-        int depth = (int)(Math.log(n) / Math.log(2));
-        
-        // Conservative estimate: 50% overhead for temporary objects and GC headroom
-        long estimatedMemoryNeeded = (long)(depth * bytesNeeded * 1.5);
-        
-        boolean hasEnoughMemory = estimatedMemoryNeeded < (availableMemory * MEMORY_THRESHOLD);
-        
-        if (!hasEnoughMemory) {
-            System.out.printf("Memory check for %dx%d matrices:%n", n, n);
-            System.out.printf("  Available memory: %.2f MB%n", availableMemory / (1024.0 * 1024.0));
-            System.out.printf("  Estimated needed: %.2f MB%n", estimatedMemoryNeeded / (1024.0 * 1024.0));
-            System.out.printf("  Safety threshold: %.0f%% of available%n", MEMORY_THRESHOLD * 100);
+    // A (m x k), B (k x n) and C (m x n) plus the workspace of their product
+    public boolean hasEnoughMemoryForStrassen(int m, int k, int n) {
+        MemoryPlanner.Plan plan = plan(m, k, n);
+        if (!plan.strassen()) {
+            System.out.println(plan);
         }
-        
-        return hasEnoughMemory;
+        return plan.strassen();
     }
 
     public static void main(String[] args) {
@@ -110,13 +400,20 @@ public class StrassenAlgorithmSA extends MatrixOperations {
         
         StrassenAlgorithmSA s = new StrassenAlgorithmSA();
 
+        // java StrassenAlgorithmSA A.mat B.mat C.mat multiplies matrix files instead of random matrices
+        if (args.length == 3) {
+            multiplyFiles(s, Path.of(args[0]), Path.of(args[1]), Path.of(args[2]));
+            return;
+        }
+
         Scanner scanner = new Scanner(System.in);
         System.out.print("Please specify the size of the matrices: ");
         int N = scanner.nextInt();
         scanner.close();
 
-        if (!hasEnoughMemoryForStrassen(N)) {
-            System.out.println("Insufficient memory for storing and multiplying matrices " + N + "x" + N);
+        if (!s.hasEnoughMemoryForStrassen(N)) {
+            System.out.println("Insufficient heap for matrices " + N + "x" + N + ", multiplying out of core");
+            multiplyOutOfCore(s, N);
             return;
         }
         // Display initial memory status
@@ -133,8 +430,8 @@ public class StrassenAlgorithmSA extends MatrixOperations {
         //CHECKING WITH IDENTITY MATRIX
         //int[][] A = createIdentity(N);
 
-        int[][] A = create(N);
-        int[][] B = create(N);
+        int[][] A = create(N, N, MatrixGenerator.SEED);
+        int[][] B = create(N, N, MatrixGenerator.SEED + 1);
 
         long startTime = System.nanoTime();
         int[][] C = s.multiplySA(A, B);
@@ -143,7 +440,128 @@ public class StrassenAlgorithmSA extends MatrixOperations {
 //        printMatrix(A);
 //        printMatrix(B);
 //        printMatrix(C);
+        Freivalds.report(A, B, C);
 
         System.out.println("\nExecution time: " + "\033[0;1m" + (endTime - startTime) + " nanoseconds.\n______________________________________________________________");
     }
+
+    // A, B and C live in files under the temporary directory, which are removed afterwards
+    private static void multiplyOutOfCore(StrassenAlgorithmSA s, int N) {
+        try {
+            Path directory = Files.createTempDirectory("strassen-");
+            // shared, so the rows can be generated in parallel
+            try (Arena arena = Arena.ofShared();
+                 OutOfCoreStrassenAlgorithmSA engine = new OutOfCoreStrassenAlgorithmSA(s.getCrossover(), s.getVariant(),
+                         directory, OutOfCoreStrassenAlgorithmSA.defaultMemoryBudget())) {
+                OffHeapMatrix A = OutOfCoreStrassenAlgorithmSA.map(arena, directory.resolve("A.bin"), N, N);
+                OffHeapMatrix B = OutOfCoreStrassenAlgorithmSA.map(arena, directory.resolve("B.bin"), N, N);
+                OffHeapMatrix C = OutOfCoreStrassenAlgorithmSA.map(arena, directory.resolve("C.bin"), N, N);
+
+                // the same entries as create(N, N, seed) in memory
+                MatrixGenerator.fillRows(N, MatrixGenerator.SEED, (i, random) -> {
+                    for (int j = 0; j < N; j++) {
+                        A.set(i, j, random.nextInt(1, 11));
+                    }
+                });
+                MatrixGenerator.fillRows(N, MatrixGenerator.SEED + 1, (i, random) -> {
+                    for (int j = 0; j < N; j++) {
+                        B.set(i, j, random.nextInt(1, 11));
+                    }
+                });
+
+                long startTime = System.nanoTime();
+                engine.multiplyOutOfCore(A, B, C);
+                long endTime = System.nanoTime();
+                Freivalds.report(A, B, C);
+
+                System.out.println("\nExecution time: " + "\033[0;1m" + (endTime - startTime) + " nanoseconds.\n______________________________________________________________");
+            } finally {
+                for (String name : new String[] {"A.bin", "B.bin", "C.bin"}) {
+                    Files.deleteIfExists(directory.resolve(name));
+                }
+                Files.deleteIfExists(directory);
+            }
+        } catch (IOException e) {
+            System.out.println("Out-of-core multiplication failed: " + e.getMessage());
+        }
+    }
+
+    // C = A * B for MatrixFile operands; int products that do not fit in the heap are mapped and run out of core
+    private static void multiplyFiles(StrassenAlgorithmSA s, Path a, Path b, Path c) {
+        try {
+            MatrixFile.Header headerA = MatrixFile.readHeader(a);
+            MatrixFile.Header headerB = MatrixFile.readHeader(b);
+            if (headerA.type() != headerB.type()) {
+                throw new IOException(a + " and " + b + " hold different element types");
+            }
+            int m = headerA.rows(), k = headerA.cols(), n = headerB.cols();
+            if (headerB.rows() != k) {
+                throw new IOException("Cannot multiply " + m + "x" + k + " by " + headerB.rows() + "x" + n);
+            }
+            System.out.printf("Multiplying %dx%d by %dx%d %s matrices%n", m, k, k, n,
+                    headerA.type().name().toLowerCase());
+
+            long startTime, endTime;
+            switch (headerA.type()) {
+                case INT -> {
+                    boolean mappable = headerA.layout() == MatrixFile.ROW_MAJOR
+                            && headerB.layout() == MatrixFile.ROW_MAJOR;
+                    if (mappable && !s.hasEnoughMemoryForStrassen(m, k, n)) {
+                        System.out.println("Insufficient heap, multiplying out of core");
+                        try (Arena arena = Arena.ofConfined();
+                             OutOfCoreStrassenAlgorithmSA engine = new OutOfCoreStrassenAlgorithmSA(s.getCrossover(),
+                                     s.getVariant(), c.toAbsolutePath().getParent(),
+                                     OutOfCoreStrassenAlgorithmSA.defaultMemoryBudget())) {
+                            OffHeapMatrix A = MatrixFile.map(arena, a);
+                            OffHeapMatrix B = MatrixFile.map(arena, b);
+                            OffHeapMatrix C = MatrixFile.create(arena, c, m, n);
+                            startTime = System.nanoTime();
+                            engine.multiplyOutOfCore(A, B, C);
+                            endTime = System.nanoTime();
+                            Freivalds.report(A, B, C);
+                        }
+                    } else {
+                        Matrix A = MatrixFile.readMatrix(a);
+                        Matrix B = MatrixFile.readMatrix(b);
+                        startTime = System.nanoTime();
+                        Matrix C = s.multiplySA(A, B);
+                        endTime = System.nanoTime();
+                        MatrixFile.write(c, C);
+                        Freivalds.report(A, B, C);
+                    }
+                }
+                case LONG -> {
+                    LongMatrix A = MatrixFile.readLongMatrix(a);
+                    LongMatrix B = MatrixFile.readLongMatrix(b);
+                    startTime = System.nanoTime();
+                    LongMatrix C = new LongStrassenAlgorithmSA().multiplySA(A, B);
+                    endTime = System.nanoTime();
+                    MatrixFile.write(c, C);
+                    Freivalds.report(A, B, C);
+                }
+                case FLOAT -> {
+                    FloatMatrix A = MatrixFile.readFloatMatrix(a);
+                    FloatMatrix B = MatrixFile.readFloatMatrix(b);
+                    startTime = System.nanoTime();
+                    FloatMatrix C = new FloatStrassenAlgorithmSA().multiplySA(A, B);
+                    endTime = System.nanoTime();
+                    MatrixFile.write(c, C);
+                    Freivalds.report(A, B, C);
+                }
+                default -> {
+                    DoubleMatrix A = MatrixFile.readDoubleMatrix(a);
+                    DoubleMatrix B = MatrixFile.readDoubleMatrix(b);
+                    startTime = System.nanoTime();
+                    DoubleMatrix C = new DoubleStrassenAlgorithmSA().multiplySA(A, B);
+                    endTime = System.nanoTime();
+                    MatrixFile.write(c, C);
+                    Freivalds.report(A, B, C);
+                }
+            }
+
+            System.out.println("\nExecution time: " + "\033[0;1m" + (endTime - startTime) + " nanoseconds.\n______________________________________________________________");
+        } catch (IOException e) {
+            System.out.println("Multiplying matrix files failed: " + e.getMessage());
+        }
+    }
 }
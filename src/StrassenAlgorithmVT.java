@@ -0,0 +1,456 @@
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+/**
+ * Strassen engine on virtual threads, an alternative to {@link StrassenAlgorithmPA} for workloads that run many
+ * products at once.
+ * <p>
+ * Every forked level starts its seven products (or the two halves of a split) on virtual threads of a structured
+ * {@link Scope}: the level returns only once all of them have finished, the first one to fail interrupts its
+ * siblings, and that failure is rethrown to the caller. Virtual threads only wait; every stretch of arithmetic (an
+ * operand sum, a combination, a leaf product) first takes one of the permits of a semaphore sized to the carrier
+ * cores, so concurrent products share the cores instead of oversubscribing them, and no thread holds a permit while
+ * it waits for its children. Leaves borrow a sequential engine and a set of packing buffers while they hold a permit,
+ * so there is at most one of each per permit, however many virtual threads come and go.
+ * <p>
+ * Fork depth, depth-first levels, grain and leaf lean levels come from the same {@link MemoryPlanner} plan and
+ * {@link ParallelConfig} as the ForkJoin engine, but are kept per product, so one engine may run any number of
+ * products concurrently. A deadline interrupts the whole recursion; a leaf that is already multiplying finishes
+ * first, so a timed-out call returns after at most one leaf product, with none of its threads left running.
+ */
+public class StrassenAlgorithmVT extends MatrixOperations {
+
+    // one permit per core of the configured parallelism, held while computing
+    private final Semaphore cores;
+    private final ParallelConfig config;
+    private final int crossover;
+    private final StrassenVariant variant;
+    // sequential engines and packing buffers of the leaves, at most one per permit
+    private final SequentialEngines<Leaf> leaves;
+
+    // A sequential engine with the packing buffers its leaves, and any other multiply of the permit holder, pack into
+    private record Leaf(StrassenAlgorithmSA engine, BlockedMultiply.Packing packing) {
+    }
+
+    // A subproduct of a forked level
+    private interface Subproduct {
+        void run() throws InterruptedException;
+    }
+
+    public StrassenAlgorithmVT() {
+        // calibrated with the ForkJoin engine, whose leaves are the same
+        this(StrassenCrossover.load("parallel"));
+    }
+
+    public StrassenAlgorithmVT(int crossover) {
+        this(crossover, StrassenVariant.CLASSIC);
+    }
+
+    public StrassenAlgorithmVT(int crossover, StrassenVariant variant) {
+        this(crossover, variant, ParallelConfig.defaults());
+    }
+
+    // Only config's parallelism and granularity are used, its pool runs nothing of this engine
+    public StrassenAlgorithmVT(int crossover, StrassenVariant variant, ParallelConfig config) {
+        this.crossover = Math.max(1, crossover);
+        this.variant = variant;
+        this.config = config;
+        this.cores = new Semaphore(config.parallelism());
+        this.leaves = new SequentialEngines<>(() -> {
+            BlockedMultiply.Packing packing = new BlockedMultiply.Packing();
+            return new Leaf(new StrassenAlgorithmSA(this.crossover, variant, packing), packing);
+        });
+    }
+
+    // Memory plan of C = A * B for an m x k matrix A and a k x n matrix B, see MemoryPlanner
+    public MemoryPlanner.Plan plan(int m, int k, int n) {
+        return MemoryPlanner.parallel(m, k, n, crossover, variant, ElementType.INT, config, MemoryPlanner.budget());
+    }
+
+    // C = A * B for an m x k matrix A and a k x n matrix B
+    public Matrix multiplyVirtual(Matrix A, Matrix B) throws InterruptedException {
+        try {
+            return multiplyVirtual(A, B, null);
+        } catch (TimeoutException e) {
+            throw new AssertionError("No deadline", e);
+        }
+    }
+
+    /**
+     * C = A * B, given up with a TimeoutException once timeout (unbounded if null) has passed. An interrupt of the
+     * caller cancels the product the same way and is rethrown.
+     */
+    public Matrix multiplyVirtual(Matrix A, Matrix B, Duration timeout) throws InterruptedException,
+            TimeoutException {
+        Instant deadline = timeout == null ? null : Instant.now().plus(timeout);
+
+        Matrix C = new Matrix(A.rows(), B.cols());
+        checkDimensions(A, B, C);
+
+        MemoryPlanner.Plan plan = plan(A.rows(), A.cols(), B.cols());
+        System.out.println(plan);
+
+        Scope scope = new Scope();
+        if (plan.strassen()) {
+            scope.fork(() -> compute(LinearCombination.of(A), LinearCombination.of(B), C, 0, ForkSchedule.of(plan)));
+        } else {
+            scope.fork(() -> onLeaf(leaf -> multiply(A, B, C, leaf.packing())));
+        }
+        scope.join(deadline);
+        return C;
+    }
+
+    // Computes C = A * B in place; quadrants of A, B and C are views into their parents
+    private void compute(LinearCombination lazyA, LinearCombination lazyB, Matrix C, int depth,
+                         ForkSchedule inherited)
+            throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        int m = lazyA.rows(), k = lazyA.cols(), n = lazyB.cols();
+        int smallest = Math.min(m, Math.min(k, n));
+        int largest = Math.max(m, Math.max(k, n));
+
+        if (smallest <= crossover) {
+            onLeaf(leaf -> multiply(lazyA, lazyB, C, leaf.packing()));
+            return;
+        }
+
+        Matrix A = evaluate(lazyA);
+        Matrix B = evaluate(lazyB);
+
+        ForkSchedule schedule = inherited.at(depth, config, m, k, n);
+        if (schedule.sequential(depth, (long) m * k * n)) {
+            onLeaf(leaf -> leaf.engine().multiplySA(A, B, C, schedule.leafLean()));
+            return;
+        }
+
+        if (largest >= 2 * smallest) {
+            computeSplit(A, B, C, depth, schedule);
+            return;
+        }
+
+        if (m % 2 != 0 || k % 2 != 0 || n % 2 != 0) {
+            // dynamic peeling: Strassen on the even core, then the odd row, column and inner slice classically
+            int me = m & ~1, ke = k & ~1, ne = n & ~1;
+            compute(LinearCombination.of(A.view(0, 0, me, ke)), LinearCombination.of(B.view(0, 0, ke, ne)),
+                    C.view(0, 0, me, ne), depth, schedule);
+            onLeaf(leaf -> completePeeled(A, B, C, me, ke, ne, leaf.packing()));
+            return;
+        }
+
+        if (schedule.depthFirstAt(depth)) {
+            computeDepthFirst(A, B, C, depth, schedule);
+            return;
+        }
+
+        if (variant == StrassenVariant.WINOGRAD) {
+            computeWinograd(A, B, C, depth, schedule);
+            return;
+        }
+
+        int mh = m / 2, nh = n / 2;
+        Matrix A11 = A.quadrant(0, 0);
+        Matrix A12 = A.quadrant(0, 1);
+        Matrix A21 = A.quadrant(1, 0);
+        Matrix A22 = A.quadrant(1, 1);
+        Matrix B11 = B.quadrant(0, 0);
+        Matrix B12 = B.quadrant(0, 1);
+        Matrix B21 = B.quadrant(1, 0);
+        Matrix B22 = B.quadrant(1, 1);
+
+        Matrix m1 = new Matrix(mh, nh);
+        Matrix m2 = new Matrix(mh, nh);
+        Matrix m3 = new Matrix(mh, nh);
+        Matrix m4 = new Matrix(mh, nh);
+        Matrix m5 = new Matrix(mh, nh);
+        Matrix m6 = new Matrix(mh, nh);
+        Matrix m7 = new Matrix(mh, nh);
+
+        Scope scope = new Scope();
+        scope.fork(() -> compute(LinearCombination.of(A11).plus(A22), LinearCombination.of(B11).plus(B22), m1,
+                depth + 1, schedule));
+        scope.fork(() -> compute(LinearCombination.of(A21).plus(A22), LinearCombination.of(B11), m2,
+                depth + 1, schedule));
+        scope.fork(() -> compute(LinearCombination.of(A11), LinearCombination.of(B12).minus(B22), m3,
+                depth + 1, schedule));
+        scope.fork(() -> compute(LinearCombination.of(A22), LinearCombination.of(B21).minus(B11), m4,
+                depth + 1, schedule));
+        scope.fork(() -> compute(LinearCombination.of(A11).plus(A12), LinearCombination.of(B22), m5,
+                depth + 1, schedule));
+        scope.fork(() -> compute(LinearCombination.of(A21).minus(A11), LinearCombination.of(B11).plus(B12), m6,
+                depth + 1, schedule));
+        scope.fork(() -> compute(LinearCombination.of(A12).minus(A22), LinearCombination.of(B21).plus(B22), m7,
+                depth + 1, schedule));
+        scope.join();
+
+        onCore(() -> {
+            addSubtractAdd(m1, m4, m5, m7, C.quadrant(0, 0));
+            add(m3, m5, C.quadrant(0, 1));
+            add(m2, m4, C.quadrant(1, 0));
+            subtractAddAdd(m1, m2, m3, m6, C.quadrant(1, 1));
+        });
+    }
+
+    /**
+     * One depth-first level: the seven products run one after another, each forking below, and are folded into C as
+     * soon as they are formed, as on the sequential engine's lean schedule.
+     */
+    private void computeDepthFirst(Matrix A, Matrix B, Matrix C, int depth, ForkSchedule schedule)
+            throws InterruptedException {
+        int mh = A.rows() / 2, nh = B.cols() / 2;
+        Matrix A11 = A.quadrant(0, 0);
+        Matrix A12 = A.quadrant(0, 1);
+        Matrix A21 = A.quadrant(1, 0);
+        Matrix A22 = A.quadrant(1, 1);
+        Matrix B11 = B.quadrant(0, 0);
+        Matrix B12 = B.quadrant(0, 1);
+        Matrix B21 = B.quadrant(1, 0);
+        Matrix B22 = B.quadrant(1, 1);
+        Matrix C11 = C.quadrant(0, 0);
+        Matrix C12 = C.quadrant(0, 1);
+        Matrix C21 = C.quadrant(1, 0);
+        Matrix C22 = C.quadrant(1, 1);
+
+        Matrix M = new Matrix(mh, nh);
+
+        // M1 = (A11 + A22) * (B11 + B22): C11 = M1, C22 = M1
+        compute(LinearCombination.of(A11).plus(A22), LinearCombination.of(B11).plus(B22), C11, depth + 1, schedule);
+        onCore(() -> C22.copyFrom(C11));
+        // M2 = (A21 + A22) * B11: C21 = M2, C22 -= M2
+        compute(LinearCombination.of(A21).plus(A22), LinearCombination.of(B11), C21, depth + 1, schedule);
+        onCore(() -> subtract(C22, C21, C22));
+        // M3 = A11 * (B12 - B22): C12 = M3, C22 += M3
+        compute(LinearCombination.of(A11), LinearCombination.of(B12).minus(B22), C12, depth + 1, schedule);
+        onCore(() -> add(C22, C12, C22));
+        // M4 = A22 * (B21 - B11): C11 += M4, C21 += M4
+        compute(LinearCombination.of(A22), LinearCombination.of(B21).minus(B11), M, depth + 1, schedule);
+        onCore(() -> {
+            add(C11, M, C11);
+            add(C21, M, C21);
+        });
+        // M5 = (A11 + A12) * B22: C11 -= M5, C12 += M5
+        compute(LinearCombination.of(A11).plus(A12), LinearCombination.of(B22), M, depth + 1, schedule);
+        onCore(() -> {
+            subtract(C11, M, C11);
+            add(C12, M, C12);
+        });
+        // M6 = (A21 - A11) * (B11 + B12): C22 += M6
+        compute(LinearCombination.of(A21).minus(A11), LinearCombination.of(B11).plus(B12), M, depth + 1, schedule);
+        onCore(() -> add(C22, M, C22));
+        // M7 = (A12 - A22) * (B21 + B22): C11 += M7
+        compute(LinearCombination.of(A12).minus(A22), LinearCombination.of(B21).plus(B22), M, depth + 1, schedule);
+        onCore(() -> add(C11, M, C11));
+    }
+
+    // Halves the largest dimension and runs both halves concurrently, or one after the other on a depth-first level
+    private void computeSplit(Matrix A, Matrix B, Matrix C, int depth, ForkSchedule schedule)
+            throws InterruptedException {
+        int m = A.rows(), k = A.cols(), n = B.cols();
+        Scope scope = new Scope();
+
+        if (m >= k && m >= n) {
+            int top = (m + 1) / 2;
+            fork(scope, A.view(0, 0, top, k), B, C.view(0, 0, top, n), depth + 1, schedule);
+            fork(scope, A.view(top, 0, m - top, k), B, C.view(top, 0, m - top, n), depth + 1, schedule);
+            scope.join();
+        } else if (n >= k) {
+            int left = (n + 1) / 2;
+            fork(scope, A, B.view(0, 0, k, left), C.view(0, 0, m, left), depth + 1, schedule);
+            fork(scope, A, B.view(0, left, k, n - left), C.view(0, left, m, n - left), depth + 1, schedule);
+            scope.join();
+        } else {
+            // C = A1 * B1 + A2 * B2 over the two halves of the inner dimension
+            int front = (k + 1) / 2;
+            Matrix T = new Matrix(m, n);
+            fork(scope, A.view(0, 0, m, front), B.view(0, 0, front, n), C, depth + 1, schedule);
+            fork(scope, A.view(0, front, m, k - front), B.view(front, 0, k - front, n), T, depth + 1, schedule);
+            scope.join();
+            onCore(() -> add(C, T, C));
+        }
+    }
+
+    private void computeWinograd(Matrix A, Matrix B, Matrix C, int depth, ForkSchedule schedule)
+            throws InterruptedException {
+        int mh = A.rows() / 2, kh = A.cols() / 2, nh = B.cols() / 2;
+        Matrix A11 = A.quadrant(0, 0);
+        Matrix A12 = A.quadrant(0, 1);
+        Matrix A21 = A.quadrant(1, 0);
+        Matrix A22 = A.quadrant(1, 1);
+        Matrix B11 = B.quadrant(0, 0);
+        Matrix B12 = B.quadrant(0, 1);
+        Matrix B21 = B.quadrant(1, 0);
+        Matrix B22 = B.quadrant(1, 1);
+
+        Matrix S1 = new Matrix(mh, kh), S2 = new Matrix(mh, kh), S3 = new Matrix(mh, kh), S4 = new Matrix(mh, kh);
+        Matrix T1 = new Matrix(kh, nh), T2 = new Matrix(kh, nh), T3 = new Matrix(kh, nh), T4 = new Matrix(kh, nh);
+        onCore(() -> {
+            add(A21, A22, S1);
+            subtract(S1, A11, S2);
+            subtract(A11, A21, S3);
+            subtract(A12, S2, S4);
+            subtract(B12, B11, T1);
+            subtract(B22, T1, T2);
+            subtract(B22, B12, T3);
+            subtract(T2, B21, T4);
+        });
+
+        Matrix m1 = new Matrix(mh, nh);
+        Matrix m2 = new Matrix(mh, nh);
+        Matrix m3 = new Matrix(mh, nh);
+        Matrix m4 = new Matrix(mh, nh);
+        Matrix m5 = new Matrix(mh, nh);
+        Matrix m6 = new Matrix(mh, nh);
+        Matrix m7 = new Matrix(mh, nh);
+
+        Scope scope = new Scope();
+        fork(scope, A11, B11, m1, depth + 1, schedule);
+        fork(scope, A12, B21, m2, depth + 1, schedule);
+        fork(scope, S4, B22, m3, depth + 1, schedule);
+        fork(scope, A22, T4, m4, depth + 1, schedule);
+        fork(scope, S1, T1, m5, depth + 1, schedule);
+        fork(scope, S2, T2, m6, depth + 1, schedule);
+        fork(scope, S3, T3, m7, depth + 1, schedule);
+        scope.join();
+
+        onCore(() -> {
+            add(m1, m2, C.quadrant(0, 0));
+            add(m1, m6, m6);
+            add(m6, m7, m7);
+            add(m6, m5, m6);
+            add(m6, m3, C.quadrant(0, 1));
+            subtract(m7, m4, C.quadrant(1, 0));
+            add(m7, m5, C.quadrant(1, 1));
+        });
+    }
+
+    // Starts a subproduct at the given depth in scope, or runs it right away below a depth-first level
+    private void fork(Scope scope, Matrix A, Matrix B, Matrix C, int depth, ForkSchedule schedule)
+            throws InterruptedException {
+        if (depth <= schedule.depthFirst()) {
+            compute(LinearCombination.of(A), LinearCombination.of(B), C, depth, schedule);
+            return;
+        }
+        scope.fork(() -> compute(LinearCombination.of(A), LinearCombination.of(B), C, depth, schedule));
+    }
+
+    // The lazy operand itself if it is a single matrix, otherwise its sum in a new matrix
+    private Matrix evaluate(LinearCombination lazy) throws InterruptedException {
+        if (lazy.size() == 1) {
+            return lazy.evaluate();
+        }
+        Matrix S = new Matrix(lazy.rows(), lazy.cols());
+        onCore(() -> lazy.evaluate(S));
+        return S;
+    }
+
+    // Runs arithmetic under one of the permits, so that at most one thread per core computes
+    private void onCore(Runnable work) throws InterruptedException {
+        cores.acquire();
+        try {
+            work.run();
+        } finally {
+            cores.release();
+        }
+    }
+
+    // Runs a multiply under one of the permits, on the sequential engine and packing buffers lent with it
+    private void onLeaf(Consumer<Leaf> work) throws InterruptedException {
+        onCore(() -> leaves.run(work));
+    }
+
+    /**
+     * The subproducts of one level, each on its own virtual thread. The first one to fail interrupts the others;
+     * join waits for all of them before it rethrows that failure, so no subproduct outlives its scope. An interrupt
+     * of the joining thread, or its deadline, cancels the scope the same way.
+     */
+    private static final class Scope {
+        private final List<Thread> threads = new ArrayList<>();
+        private Throwable failure;
+
+        synchronized void fork(Subproduct subproduct) {
+            if (failure != null) return;
+            threads.add(Thread.ofVirtual().start(() -> {
+                try {
+                    subproduct.run();
+                } catch (Throwable t) {
+                    fail(t);
+                }
+            }));
+        }
+
+        void join() throws InterruptedException {
+            try {
+                join(null);
+            } catch (TimeoutException e) {
+                throw new AssertionError("No deadline", e);
+            }
+        }
+
+        // Waits for every subproduct until deadline (unbounded if null) and rethrows the first failure
+        void join(Instant deadline) throws InterruptedException, TimeoutException {
+            List<Thread> forked;
+            synchronized (this) {
+                forked = List.copyOf(threads);
+            }
+
+            try {
+                for (Thread thread : forked) {
+                    if (deadline == null) {
+                        thread.join();
+                    } else if (!thread.join(Duration.between(Instant.now(), deadline))) {
+                        TimeoutException timeout = new TimeoutException("Product not finished by " + deadline);
+                        fail(timeout);
+                        awaitAll(forked);
+                        throw timeout;
+                    }
+                }
+            } catch (InterruptedException e) {
+                fail(e);
+                awaitAll(forked);
+                throw e;
+            }
+
+            Throwable first;
+            synchronized (this) {
+                first = failure;
+            }
+            if (first instanceof InterruptedException e) throw e;
+            if (first instanceof RuntimeException e) throw e;
+            if (first instanceof Error e) throw e;
+        }
+
+        // Records the first failure and interrupts the other subproducts
+        private synchronized void fail(Throwable t) {
+            if (failure != null) return;
+            failure = t;
+            for (Thread thread : threads) {
+                if (thread != Thread.currentThread()) {
+                    thread.interrupt();
+                }
+            }
+        }
+
+        // Waits for cancelled subproducts, which finish their current leaf at most, keeping the caller's interrupt
+        private static void awaitAll(List<Thread> forked) {
+            boolean interrupted = false;
+            for (Thread thread : forked) {
+                while (thread.isAlive()) {
+                    try {
+                        thread.join();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
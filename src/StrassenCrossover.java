@@ -0,0 +1,227 @@
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Size below which the Strassen engines stop recursing and hand the block to the classical kernel.
+ * <p>
+ * Crossovers are calibrated per engine and element type on the current machine and persisted in
+ * {@code results/crossover.properties}, so later runs pick them up without re-tuning. Int engines use the plain
+ * engine name as key, the other element types append theirs, e.g. {@code sequential-double}.
+ */
+public class StrassenCrossover {
+
+    public static final int DEFAULT_CROSSOVER = 64;
+    public static final String FILE_NAME = "results/crossover.properties";
+    public static final String[] ENGINES = {"sequential", "parallel", "distributed"};
+
+    private static final int[] CANDIDATE_SIZES = {16, 32, 64, 128, 256, 512, 1024};
+    private static final int RUNS = 3;
+    private static final int WARMUP_SIZE = 128;
+
+    private static Properties persisted;
+
+    /**
+     * Returns the persisted crossover for {@code engine}, or {@link #DEFAULT_CROSSOVER} if it was never calibrated.
+     */
+    public static synchronized int load(String engine) {
+        if (persisted == null) {
+            persisted = new Properties();
+            File file = new File(FILE_NAME);
+            if (file.exists()) {
+                try (FileReader reader = new FileReader(file)) {
+                    persisted.load(reader);
+                } catch (IOException e) {
+                    System.err.println("Failed to read " + FILE_NAME + ": " + e.getMessage());
+                }
+            }
+        }
+
+        String value = persisted.getProperty(engine);
+        if (value == null) return DEFAULT_CROSSOVER;
+
+        try {
+            return Math.max(1, Integer.parseInt(value.trim()));
+        } catch (NumberFormatException e) {
+            System.err.println("Ignoring invalid crossover for " + engine + ": " + value);
+            return DEFAULT_CROSSOVER;
+        }
+    }
+
+    public static synchronized void store(String engine, int crossover) {
+        load(engine);
+        persisted.setProperty(engine, Integer.toString(crossover));
+
+        new File(FILE_NAME).getParentFile().mkdirs();
+        try (FileWriter writer = new FileWriter(FILE_NAME)) {
+            persisted.store(writer, "Strassen crossover per engine (sizes <= crossover use the classical kernel)");
+        } catch (IOException e) {
+            System.err.println("Failed to write " + FILE_NAME + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Measures one Strassen level (seven classical products of size n/2 plus the additions) against a classical
+     * product of size n for every candidate n. The crossover is the largest size at which classical still wins,
+     * i.e. Strassen wins at every candidate above it.
+     * <p>
+     * The parallel engine runs its leaves on every core at once, so it is calibrated with one measurement per core
+     * running concurrently; this captures the memory bandwidth contention the leaves see in practice.
+     * <p>
+     * {@code engine} is a crossover key such as {@code parallel} or {@code sequential-double}; the suffix selects
+     * the element type whose kernels are measured.
+     */
+    public static int calibrate(String engine) {
+        int dash = engine.indexOf('-');
+        ElementType type = dash < 0 ? ElementType.INT : ElementType.parse(engine.substring(dash + 1));
+        int threads = engine.startsWith("parallel") ? Runtime.getRuntime().availableProcessors() : 1;
+        int crossover = CANDIDATE_SIZES[0];
+
+        System.out.printf("Calibrating %s crossover on %d thread(s)%n", engine, threads);
+
+        // let the JIT compile both paths before anything is measured
+        for (int i = 0; i < 10; i++) {
+            timeClassical(WARMUP_SIZE, type);
+            timeOneLevel(WARMUP_SIZE, type);
+        }
+
+        for (int n : CANDIDATE_SIZES) {
+            long classical = timeConcurrently(threads, () -> timeClassical(n, type));
+            long strassen = timeConcurrently(threads, () -> timeOneLevel(n, type));
+            System.out.printf("  n = %4d: classical %10.3f ms, one Strassen level %10.3f ms%n",
+                    n, classical / 1e6, strassen / 1e6);
+
+            if (strassen >= classical) {
+                crossover = n;
+            }
+        }
+
+        store(engine, crossover);
+        System.out.printf("Stored %s crossover %d in %s%n", engine, crossover, FILE_NAME);
+        return crossover;
+    }
+
+    private static long timeClassical(int n, ElementType type) {
+        Runnable product = switch (type) {
+            case INT -> {
+                Matrix A = Matrix.of(MatrixOperations.create(n));
+                Matrix B = Matrix.of(MatrixOperations.create(n));
+                Matrix C = new Matrix(n);
+                yield () -> MatrixOperations.multiply(A, B, C);
+            }
+            case LONG -> {
+                LongMatrix A = LongMatrixOperations.create(n);
+                LongMatrix B = LongMatrixOperations.create(n);
+                LongMatrix C = new LongMatrix(n);
+                yield () -> LongMatrixOperations.multiply(A, B, C);
+            }
+            case FLOAT -> {
+                FloatMatrix A = FloatMatrixOperations.create(n);
+                FloatMatrix B = FloatMatrixOperations.create(n);
+                FloatMatrix C = new FloatMatrix(n);
+                yield () -> FloatMatrixOperations.multiply(A, B, C);
+            }
+            case DOUBLE -> {
+                DoubleMatrix A = DoubleMatrixOperations.create(n);
+                DoubleMatrix B = DoubleMatrixOperations.create(n);
+                DoubleMatrix C = new DoubleMatrix(n);
+                yield () -> DoubleMatrixOperations.multiply(A, B, C);
+            }
+        };
+        return best(product);
+    }
+
+    private static long timeOneLevel(int n, ElementType type) {
+        // crossover n / 2 makes the engine recurse exactly once
+        Runnable product = switch (type) {
+            case INT -> {
+                StrassenAlgorithmSA s = new StrassenAlgorithmSA(n / 2);
+                Matrix A = Matrix.of(MatrixOperations.create(n));
+                Matrix B = Matrix.of(MatrixOperations.create(n));
+                Matrix C = new Matrix(n);
+                yield () -> s.multiplySA(A, B, C);
+            }
+            case LONG -> {
+                LongStrassenAlgorithmSA s = new LongStrassenAlgorithmSA(n / 2);
+                LongMatrix A = LongMatrixOperations.create(n);
+                LongMatrix B = LongMatrixOperations.create(n);
+                LongMatrix C = new LongMatrix(n);
+                yield () -> s.multiplySA(A, B, C);
+            }
+            case FLOAT -> {
+                FloatStrassenAlgorithmSA s = new FloatStrassenAlgorithmSA(n / 2);
+                FloatMatrix A = FloatMatrixOperations.create(n);
+                FloatMatrix B = FloatMatrixOperations.create(n);
+                FloatMatrix C = new FloatMatrix(n);
+                yield () -> s.multiplySA(A, B, C);
+            }
+            case DOUBLE -> {
+                DoubleStrassenAlgorithmSA s = new DoubleStrassenAlgorithmSA(n / 2);
+                DoubleMatrix A = DoubleMatrixOperations.create(n);
+                DoubleMatrix B = DoubleMatrixOperations.create(n);
+                DoubleMatrix C = new DoubleMatrix(n);
+                yield () -> s.multiplySA(A, B, C);
+            }
+        };
+        return best(product);
+    }
+
+    // Best of RUNS timings, which filters out GC pauses and scheduling noise
+    private static long best(Runnable product) {
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < RUNS; run++) {
+            long start = System.nanoTime();
+            product.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+
+    // Runs the measurement on every thread at once and returns the slowest thread's time
+    private static long timeConcurrently(int threads, Callable<Long> measurement) {
+        if (threads == 1) {
+            try {
+                return measurement.call();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Long>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                results.add(executor.submit(measurement));
+            }
+
+            long slowest = 0;
+            for (Future<Long> result : results) {
+                slowest = Math.max(slowest, result.get());
+            }
+            return slowest;
+        } catch (Exception e) {
+            throw new RuntimeException("Calibration failed", e);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    public static void main(String[] args) {
+        String[] engines = args.length > 0 ? args : ENGINES;
+
+        System.out.println("Strassen crossover calibration");
+        System.out.println("______________________________________________________________");
+
+        for (String engine : engines) {
+            calibrate(engine.toLowerCase());
+        }
+    }
+}
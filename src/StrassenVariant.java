@@ -0,0 +1,17 @@
+/**
+ * Recursion scheme used by the Strassen engines. Both use seven half-size products per level;
+ * {@link #WINOGRAD} needs 15 block additions instead of the classic 18, which matters at the
+ * upper levels where every addition is a full pass over large blocks.
+ */
+public enum StrassenVariant {
+    CLASSIC,
+    WINOGRAD;
+
+    public static StrassenVariant parse(String name) {
+        return switch (name.toLowerCase()) {
+            case "classic" -> CLASSIC;
+            case "winograd" -> WINOGRAD;
+            default -> throw new IllegalArgumentException("Unknown Strassen variant: " + name);
+        };
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * Scratch arena for the sequential Strassen engine.
+ * <p>
+ * The engine asks for the exact scratch size of a product up front, allocates one workspace and then carves every
+ * temporary block out of it with a bump pointer. Temporaries of a recursion level are released when the level
+ * returns, so sibling subproblems reuse the same region and a product allocates no matrix storage beyond its output.
+ */
+public class StrassenWorkspace {
+
+    private final int[] buffer;
+    private int top;
+
+    public StrassenWorkspace(long size) {
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Workspace of " + size + " elements exceeds the array size limit");
+        }
+        this.buffer = new int[(int) size];
+    }
+
+    /**
+     * Number of scratch elements {@link StrassenAlgorithmSA} needs to multiply an m x k by a k x n matrix.
+     * Mirrors the engine's recursion: every level keeps its temporaries while the (sequential) child levels run.
+     */
+    public static long scratchSize(int m, int k, int n, int crossover, StrassenVariant variant) {
+        return scratchSize(m, k, n, crossover, variant, 0);
+    }
+
+    // Scratch elements when the top leanLevels Strassen levels run the lean schedule (one sum per side and one product)
+    public static long scratchSize(int m, int k, int n, int crossover, StrassenVariant variant, int leanLevels) {
+        int smallest = Math.min(m, Math.min(k, n));
+        int largest = Math.max(m, Math.max(k, n));
+
+        if (smallest <= crossover) return 0;
+
+        // skewed products are halved along their largest dimension; only an inner split needs a partial sum
+        if (largest >= 2 * smallest) {
+            if (m >= k && m >= n) {
+                return Math.max(scratchSize((m + 1) / 2, k, n, crossover, variant, leanLevels),
+                        scratchSize(m / 2, k, n, crossover, variant, leanLevels));
+            } else if (n >= k) {
+                return Math.max(scratchSize(m, k, (n + 1) / 2, crossover, variant, leanLevels),
+                        scratchSize(m, k, n / 2, crossover, variant, leanLevels));
+            }
+            return (long) m * n + Math.max(scratchSize(m, (k + 1) / 2, n, crossover, variant, leanLevels),
+                    scratchSize(m, k / 2, n, crossover, variant, leanLevels));
+        }
+
+        // odd dimensions are peeled and the even core recursed on
+        if (m % 2 != 0 || k % 2 != 0 || n % 2 != 0) {
+            return scratchSize(m & ~1, k & ~1, n & ~1, crossover, variant, leanLevels);
+        }
+
+        long mh = m / 2, kh = k / 2, nh = n / 2;
+        long children = scratchSize(m / 2, k / 2, n / 2, crossover, variant, Math.max(0, leanLevels - 1));
+        if (leanLevels > 0) {
+            // lean: one A-side sum, one B-side sum and one product, the rest accumulates in C
+            return mh * kh + kh * nh + mh * nh + children;
+        }
+        // classic: M1..M7 plus one A-side and one B-side operand sum
+        // winograd: M1..M7 plus S1..S4 and T1..T4
+        int sums = variant == StrassenVariant.WINOGRAD ? 4 : 1;
+        return 7 * mh * nh + sums * (mh * kh + kh * nh) + children;
+    }
+
+    public long capacity() {
+        return buffer.length;
+    }
+
+    Matrix allocate(int rows, int cols) {
+        int size = rows * cols;
+        if (top + size > buffer.length) {
+            throw new IllegalStateException("Workspace exhausted: " + (top + size) + " > " + buffer.length);
+        }
+
+        Matrix M = new Matrix(buffer, top, cols, rows, cols);
+        top += size;
+        return M;
+    }
+
+    int mark() {
+        return top;
+    }
+
+    void release(int mark) {
+        top = mark;
+    }
+}
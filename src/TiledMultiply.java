@@ -0,0 +1,62 @@
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Classical C = A * B on the pool of a {@link ParallelConfig}, the fallback of the parallel engines when not even a
+ * lean Strassen plan fits the memory budget.
+ * <p>
+ * C is cut into tiles by halving the longer side of a tile, at multiples of the micro-kernel's MR x NR block, until a
+ * tile has no more multiply-adds than the config's grain. Every tile multiplies a row panel of A by a column panel of
+ * B into its own block of C with the blocked kernel, so no two tasks write the same element and nothing is allocated
+ * beyond the packing buffers each pool thread keeps anyway.
+ */
+public class TiledMultiply {
+
+    // Multiplies the rows [row, row + rows) of A by the columns [col, col + cols) of B into that block of C
+    public interface Tile {
+        void multiply(int row, int rows, int col, int cols);
+    }
+
+    // Runs tile over an m x n C with inner dimension k on config's pool
+    public static void run(ParallelConfig config, int m, int k, int n, Tile tile) {
+        if (m == 0 || n == 0) return;
+        config.pool().invoke(new TileTask(tile, k, config.grain(m, k, n), 0, m, 0, n));
+    }
+
+    private static class TileTask extends RecursiveAction {
+        private final Tile tile;
+        private final int k;
+        private final long grain;
+        private final int row, rows, col, cols;
+
+        TileTask(Tile tile, int k, long grain, int row, int rows, int col, int cols) {
+            this.tile = tile;
+            this.k = k;
+            this.grain = grain;
+            this.row = row;
+            this.rows = rows;
+            this.col = col;
+            this.cols = cols;
+        }
+
+        @Override
+        protected void compute() {
+            boolean splitRows = rows >= cols;
+            int block = splitRows ? BlockedMultiply.MR : BlockedMultiply.NR;
+            int side = splitRows ? rows : cols;
+
+            if ((long) rows * cols * k <= grain || side < 2 * block) {
+                tile.multiply(row, rows, col, cols);
+                return;
+            }
+
+            int half = side / 2 / block * block;
+            if (splitRows) {
+                invokeAll(new TileTask(tile, k, grain, row, half, col, cols),
+                        new TileTask(tile, k, grain, row + half, rows - half, col, cols));
+            } else {
+                invokeAll(new TileTask(tile, k, grain, row, rows, col, half),
+                        new TileTask(tile, k, grain, row, rows, col + half, cols - half));
+            }
+        }
+    }
+}
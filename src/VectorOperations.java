@@ -0,0 +1,344 @@
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteOrder;
+
+/**
+ * SIMD versions of the element-wise passes and the leaf multiply kernel, built on the incubating Vector API.
+ * <p>
+ * Only reached through {@link MatrixOperations} when {@link MatrixOperations#VECTORIZED} is set, so the class is never
+ * loaded when the JVM was started without {@code --add-modules jdk.incubator.vector}.
+ */
+class VectorOperations {
+
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+    // byte order of the OffHeapMatrix segments
+    private static final ByteOrder ORDER = OffHeapMatrix.INT.order();
+
+    // micro-tile of MR rows by two vectors of columns
+    private static final int MR = BlockedMultiply.MR;
+    private static final int NR = 2 * LANES;
+
+    // C = A + B
+    static void add(Matrix A, Matrix B, Matrix C) {
+        int[] a = A.data, b = B.data, c = C.data;
+        int bound = SPECIES.loopBound(C.cols);
+
+        for (int i = 0; i < C.rows; i++) {
+            int iA = A.offset + i * A.stride;
+            int iB = B.offset + i * B.stride;
+            int iC = C.offset + i * C.stride;
+            int j = 0;
+            for (; j < bound; j += LANES) {
+                IntVector.fromArray(SPECIES, a, iA + j)
+                        .add(IntVector.fromArray(SPECIES, b, iB + j))
+                        .intoArray(c, iC + j);
+            }
+            for (; j < C.cols; j++) {
+                c[iC + j] = a[iA + j] + b[iB + j];
+            }
+        }
+    }
+
+    // C = A - B
+    static void subtract(Matrix A, Matrix B, Matrix C) {
+        int[] a = A.data, b = B.data, c = C.data;
+        int bound = SPECIES.loopBound(C.cols);
+
+        for (int i = 0; i < C.rows; i++) {
+            int iA = A.offset + i * A.stride;
+            int iB = B.offset + i * B.stride;
+            int iC = C.offset + i * C.stride;
+            int j = 0;
+            for (; j < bound; j += LANES) {
+                IntVector.fromArray(SPECIES, a, iA + j)
+                        .sub(IntVector.fromArray(SPECIES, b, iB + j))
+                        .intoArray(c, iC + j);
+            }
+            for (; j < C.cols; j++) {
+                c[iC + j] = a[iA + j] - b[iB + j];
+            }
+        }
+    }
+
+    // C = W + X - Y + Z, i.e. C11 = M1 + M4 - M5 + M7
+    static void addSubtractAdd(Matrix W, Matrix X, Matrix Y, Matrix Z, Matrix C) {
+        int[] w = W.data, x = X.data, y = Y.data, z = Z.data, c = C.data;
+        int bound = SPECIES.loopBound(C.cols);
+
+        for (int i = 0; i < C.rows; i++) {
+            int iW = W.offset + i * W.stride;
+            int iX = X.offset + i * X.stride;
+            int iY = Y.offset + i * Y.stride;
+            int iZ = Z.offset + i * Z.stride;
+            int iC = C.offset + i * C.stride;
+            int j = 0;
+            for (; j < bound; j += LANES) {
+                IntVector.fromArray(SPECIES, w, iW + j)
+                        .add(IntVector.fromArray(SPECIES, x, iX + j))
+                        .sub(IntVector.fromArray(SPECIES, y, iY + j))
+                        .add(IntVector.fromArray(SPECIES, z, iZ + j))
+                        .intoArray(c, iC + j);
+            }
+            for (; j < C.cols; j++) {
+                c[iC + j] = w[iW + j] + x[iX + j] - y[iY + j] + z[iZ + j];
+            }
+        }
+    }
+
+    // C = W - X + Y + Z, i.e. C22 = M1 - M2 + M3 + M6
+    static void subtractAddAdd(Matrix W, Matrix X, Matrix Y, Matrix Z, Matrix C) {
+        int[] w = W.data, x = X.data, y = Y.data, z = Z.data, c = C.data;
+        int bound = SPECIES.loopBound(C.cols);
+
+        for (int i = 0; i < C.rows; i++) {
+            int iW = W.offset + i * W.stride;
+            int iX = X.offset + i * X.stride;
+            int iY = Y.offset + i * Y.stride;
+            int iZ = Z.offset + i * Z.stride;
+            int iC = C.offset + i * C.stride;
+            int j = 0;
+            for (; j < bound; j += LANES) {
+                IntVector.fromArray(SPECIES, w, iW + j)
+                        .sub(IntVector.fromArray(SPECIES, x, iX + j))
+                        .add(IntVector.fromArray(SPECIES, y, iY + j))
+                        .add(IntVector.fromArray(SPECIES, z, iZ + j))
+                        .intoArray(c, iC + j);
+            }
+            for (; j < C.cols; j++) {
+                c[iC + j] = w[iW + j] - x[iX + j] + y[iY + j] + z[iZ + j];
+            }
+        }
+    }
+
+    // C = A + B on the segments, see OffHeapOperations.add
+    static void add(OffHeapMatrix A, OffHeapMatrix B, OffHeapMatrix C) {
+        MemorySegment a = A.segment, b = B.segment, c = C.segment;
+        int bound = SPECIES.loopBound(C.cols);
+
+        for (int i = 0; i < C.rows; i++) {
+            long iA = A.offset + i * A.stride;
+            long iB = B.offset + i * B.stride;
+            long iC = C.offset + i * C.stride;
+            int j = 0;
+            for (; j < bound; j += LANES) {
+                load(a, iA + j)
+                        .add(load(b, iB + j))
+                        .intoMemorySegment(c, (iC + j) * Integer.BYTES, ORDER);
+            }
+            for (; j < C.cols; j++) {
+                c.setAtIndex(OffHeapMatrix.INT, iC + j,
+                        a.getAtIndex(OffHeapMatrix.INT, iA + j) + b.getAtIndex(OffHeapMatrix.INT, iB + j));
+            }
+        }
+    }
+
+    // C = A - B on the segments
+    static void subtract(OffHeapMatrix A, OffHeapMatrix B, OffHeapMatrix C) {
+        MemorySegment a = A.segment, b = B.segment, c = C.segment;
+        int bound = SPECIES.loopBound(C.cols);
+
+        for (int i = 0; i < C.rows; i++) {
+            long iA = A.offset + i * A.stride;
+            long iB = B.offset + i * B.stride;
+            long iC = C.offset + i * C.stride;
+            int j = 0;
+            for (; j < bound; j += LANES) {
+                load(a, iA + j)
+                        .sub(load(b, iB + j))
+                        .intoMemorySegment(c, (iC + j) * Integer.BYTES, ORDER);
+            }
+            for (; j < C.cols; j++) {
+                c.setAtIndex(OffHeapMatrix.INT, iC + j,
+                        a.getAtIndex(OffHeapMatrix.INT, iA + j) - b.getAtIndex(OffHeapMatrix.INT, iB + j));
+            }
+        }
+    }
+
+    // C = W + X - Y + Z on the segments
+    static void addSubtractAdd(OffHeapMatrix W, OffHeapMatrix X, OffHeapMatrix Y, OffHeapMatrix Z, OffHeapMatrix C) {
+        MemorySegment w = W.segment, x = X.segment, y = Y.segment, z = Z.segment, c = C.segment;
+        int bound = SPECIES.loopBound(C.cols);
+
+        for (int i = 0; i < C.rows; i++) {
+            long iW = W.offset + i * W.stride;
+            long iX = X.offset + i * X.stride;
+            long iY = Y.offset + i * Y.stride;
+            long iZ = Z.offset + i * Z.stride;
+            long iC = C.offset + i * C.stride;
+            int j = 0;
+            for (; j < bound; j += LANES) {
+                load(w, iW + j)
+                        .add(load(x, iX + j))
+                        .sub(load(y, iY + j))
+                        .add(load(z, iZ + j))
+                        .intoMemorySegment(c, (iC + j) * Integer.BYTES, ORDER);
+            }
+            for (; j < C.cols; j++) {
+                c.setAtIndex(OffHeapMatrix.INT, iC + j,
+                        w.getAtIndex(OffHeapMatrix.INT, iW + j) + x.getAtIndex(OffHeapMatrix.INT, iX + j)
+                                - y.getAtIndex(OffHeapMatrix.INT, iY + j) + z.getAtIndex(OffHeapMatrix.INT, iZ + j));
+            }
+        }
+    }
+
+    // C = W - X + Y + Z on the segments
+    static void subtractAddAdd(OffHeapMatrix W, OffHeapMatrix X, OffHeapMatrix Y, OffHeapMatrix Z, OffHeapMatrix C) {
+        MemorySegment w = W.segment, x = X.segment, y = Y.segment, z = Z.segment, c = C.segment;
+        int bound = SPECIES.loopBound(C.cols);
+
+        for (int i = 0; i < C.rows; i++) {
+            long iW = W.offset + i * W.stride;
+            long iX = X.offset + i * X.stride;
+            long iY = Y.offset + i * Y.stride;
+            long iZ = Z.offset + i * Z.stride;
+            long iC = C.offset + i * C.stride;
+            int j = 0;
+            for (; j < bound; j += LANES) {
+                load(w, iW + j)
+                        .sub(load(x, iX + j))
+                        .add(load(y, iY + j))
+                        .add(load(z, iZ + j))
+                        .intoMemorySegment(c, (iC + j) * Integer.BYTES, ORDER);
+            }
+            for (; j < C.cols; j++) {
+                c.setAtIndex(OffHeapMatrix.INT, iC + j,
+                        w.getAtIndex(OffHeapMatrix.INT, iW + j) - x.getAtIndex(OffHeapMatrix.INT, iX + j)
+                                + y.getAtIndex(OffHeapMatrix.INT, iY + j) + z.getAtIndex(OffHeapMatrix.INT, iZ + j));
+            }
+        }
+    }
+
+    // The LANES ints of segment from element index on, in the byte order of OffHeapMatrix.INT
+    private static IntVector load(MemorySegment segment, long index) {
+        return IntVector.fromMemorySegment(SPECIES, segment, index * Integer.BYTES, ORDER);
+    }
+
+    // C = the sum of a linear combination, a row at a time, see LinearCombination.evaluate
+    static void evaluate(LinearCombination L, Matrix C) {
+        int[] c = C.data;
+        int bound = SPECIES.loopBound(C.cols);
+
+        for (int i = 0; i < C.rows; i++) {
+            int iC = C.offset + i * C.stride;
+            Matrix F = L.term(0);
+            System.arraycopy(F.data, F.offset + i * F.stride, c, iC, C.cols);
+            for (int t = 1; t < L.size(); t++) {
+                Matrix T = L.term(t);
+                int[] a = T.data;
+                int iA = T.offset + i * T.stride;
+                int j = 0;
+                if (L.negated(t)) {
+                    for (; j < bound; j += LANES) {
+                        IntVector.fromArray(SPECIES, c, iC + j)
+                                .sub(IntVector.fromArray(SPECIES, a, iA + j))
+                                .intoArray(c, iC + j);
+                    }
+                    for (; j < C.cols; j++) {
+                        c[iC + j] -= a[iA + j];
+                    }
+                } else {
+                    for (; j < bound; j += LANES) {
+                        IntVector.fromArray(SPECIES, c, iC + j)
+                                .add(IntVector.fromArray(SPECIES, a, iA + j))
+                                .intoArray(c, iC + j);
+                    }
+                    for (; j < C.cols; j++) {
+                        c[iC + j] += a[iA + j];
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * C += A * B with the same blocking and A packing as {@link BlockedMultiply}, but B is packed in slivers two
+     * vectors wide and the micro-kernel accumulates an MR x NR tile in vector registers.
+     */
+    static void multiplyAdd(LinearCombination A, LinearCombination B, Matrix C, BlockedMultiply.Packing buffers) {
+        int m = A.rows(), k = A.cols(), n = B.cols();
+        int[] Ap = buffers.a;
+        int[] Bp = buffers.b;
+        int[] edge = buffers.edge(MR * NR);
+
+        for (int jc = 0; jc < n; jc += BlockedMultiply.NC) {
+            int nc = Math.min(BlockedMultiply.NC, n - jc);
+            for (int pc = 0; pc < k; pc += BlockedMultiply.KC) {
+                int kc = Math.min(BlockedMultiply.KC, k - pc);
+                BlockedMultiply.packB(B, pc, jc, kc, nc, NR, Bp);
+                for (int ic = 0; ic < m; ic += BlockedMultiply.MC) {
+                    int mc = Math.min(BlockedMultiply.MC, m - ic);
+                    BlockedMultiply.packA(A, ic, pc, mc, kc, Ap);
+
+                    for (int jr = 0; jr < nc; jr += NR) {
+                        int cols = Math.min(NR, nc - jr);
+                        int offB = (jr / NR) * kc * NR;
+                        for (int ir = 0; ir < mc; ir += MR) {
+                            int rows = Math.min(MR, mc - ir);
+                            int offA = (ir / MR) * kc * MR;
+                            microKernel(Ap, offA, Bp, offB, kc, C, ic + ir, jc + jr, rows, cols, edge);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static void microKernel(int[] Ap, int offA, int[] Bp, int offB, int kc,
+                                    Matrix C, int i, int j, int rows, int cols, int[] edge) {
+        IntVector c00 = IntVector.zero(SPECIES), c01 = IntVector.zero(SPECIES);
+        IntVector c10 = IntVector.zero(SPECIES), c11 = IntVector.zero(SPECIES);
+        IntVector c20 = IntVector.zero(SPECIES), c21 = IntVector.zero(SPECIES);
+        IntVector c30 = IntVector.zero(SPECIES), c31 = IntVector.zero(SPECIES);
+
+        for (int p = 0; p < kc; p++) {
+            IntVector b0 = IntVector.fromArray(SPECIES, Bp, offB);
+            IntVector b1 = IntVector.fromArray(SPECIES, Bp, offB + LANES);
+            int a0 = Ap[offA], a1 = Ap[offA + 1], a2 = Ap[offA + 2], a3 = Ap[offA + 3];
+            offA += MR;
+            offB += NR;
+
+            c00 = c00.add(b0.mul(a0));
+            c01 = c01.add(b1.mul(a0));
+            c10 = c10.add(b0.mul(a1));
+            c11 = c11.add(b1.mul(a1));
+            c20 = c20.add(b0.mul(a2));
+            c21 = c21.add(b1.mul(a2));
+            c30 = c30.add(b0.mul(a3));
+            c31 = c31.add(b1.mul(a3));
+        }
+
+        int[] c = C.data;
+        int row = C.offset + i * C.stride + j;
+
+        if (rows == MR && cols == NR) {
+            int r0 = row, r1 = row + C.stride, r2 = r1 + C.stride, r3 = r2 + C.stride;
+            IntVector.fromArray(SPECIES, c, r0).add(c00).intoArray(c, r0);
+            IntVector.fromArray(SPECIES, c, r0 + LANES).add(c01).intoArray(c, r0 + LANES);
+            IntVector.fromArray(SPECIES, c, r1).add(c10).intoArray(c, r1);
+            IntVector.fromArray(SPECIES, c, r1 + LANES).add(c11).intoArray(c, r1 + LANES);
+            IntVector.fromArray(SPECIES, c, r2).add(c20).intoArray(c, r2);
+            IntVector.fromArray(SPECIES, c, r2 + LANES).add(c21).intoArray(c, r2 + LANES);
+            IntVector.fromArray(SPECIES, c, r3).add(c30).intoArray(c, r3);
+            IntVector.fromArray(SPECIES, c, r3 + LANES).add(c31).intoArray(c, r3 + LANES);
+            return;
+        }
+
+        // edge tile: spill the register tile and write back only its valid part
+        c00.intoArray(edge, 0);
+        c01.intoArray(edge, LANES);
+        c10.intoArray(edge, NR);
+        c11.intoArray(edge, NR + LANES);
+        c20.intoArray(edge, 2 * NR);
+        c21.intoArray(edge, 2 * NR + LANES);
+        c30.intoArray(edge, 3 * NR);
+        c31.intoArray(edge, 3 * NR + LANES);
+        for (int r = 0; r < rows; r++) {
+            for (int col = 0; col < cols; col++) {
+                c[row + r * C.stride + col] += edge[r * NR + col];
+            }
+        }
+    }
+}